@@ -0,0 +1,635 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+public class AutoScheduler {
+
+    private static final long MINUTE_MILLIS = 60 * 1000L;
+    private static final int HEURISTICS = 4;
+    private static final int STALL_MOVES_PER_TASK = 50;
+
+    private final List<Request> requests;
+    private final long[] freeStarts;
+    private final long[] freeEnds;
+    private final long origin;
+    private final int parallelism;
+
+    /**
+     * Creates AutoScheduler that places a batch of requested Tasks into free time. A placement is worked out
+     * from an order of the requests by giving each in turn the earliest free stretch at or after its earliest
+     * start that fits it, so only orders need searching and every placement found is free of conflicts
+     * @param requests Tasks to place
+     * @param free free time to place them in, in ascending order of start time and not overlapping
+     * @param parallelism number of searches to run at once
+     */
+    public AutoScheduler(List<Request> requests, List<TimeSlot> free, int parallelism) {
+        this.requests = new ArrayList<>(requests);
+        this.parallelism = Math.max(1, parallelism);
+        long[] starts = new long[free.size()];
+        long[] ends = new long[free.size()];
+        int count = 0;
+        for (TimeSlot slot : free) {
+            long start = ceilMinute(slot.getStartMillis());
+            long end = Math.floorDiv(slot.getEndMillis(), MINUTE_MILLIS) * MINUTE_MILLIS;
+            if (end > start) {
+                starts[count] = start;
+                ends[count] = end;
+                count++;
+            }
+        }
+        this.freeStarts = Arrays.copyOf(starts, count);
+        this.freeEnds = Arrays.copyOf(ends, count);
+        this.origin = count == 0 ? 0 : starts[0];
+    }
+
+    /**
+     * Rounds a time up to a whole minute, since Tasks are saved to the minute
+     * @param millis time in milliseconds
+     * @return time rounded up to a whole minute
+     */
+    private static long ceilMinute(long millis) {
+        return Math.floorDiv(millis + MINUTE_MILLIS - 1, MINUTE_MILLIS) * MINUTE_MILLIS;
+    }
+
+    /**
+     * Reads a batch of requests from a text file, one per line in the format
+     * ||name||...||desc||...||dur||minutes||after||date-time||due||date-time||priority||number. Blank lines
+     * are skipped
+     * @param file file to read the requests from
+     * @return requests in the order they appear in the file
+     * @throws IOException if the file could not be read
+     * @throws TaskFormatException if a line is not a valid request, naming the first such line
+     */
+    public static List<Request> readRequests(File file) throws IOException {
+        ArrayList<Request> requests = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            int lineNum = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNum++;
+                if (line.trim().isEmpty())
+                    continue;
+                try {
+                    requests.add(new Request(line));
+                } catch (RuntimeException e) {
+                    throw new TaskFormatException("Formatting error in " + file.getName() + " at line " + lineNum + "!",
+                            file.getName(), lineNum);
+                }
+            }
+        }
+        return requests;
+    }
+
+    /**
+     * Searches for the placement that misses the fewest deadlines, weighted by priority, within a time budget.
+     * Each search starts from a different greedy order (earliest deadline first, highest priority first, least
+     * slack first, or highest priority per minute first) and improves it by local search, swapping two
+     * requests or moving one to another place in the order and keeping the change unless it makes the
+     * placement worse. A search that stops improving restarts from a shaken-up copy of its best order. The
+     * searches run in parallel on a fork-join pool of their own, so they never hold up the common pool, and
+     * stop once the budget runs out or a placement meets every deadline. Each greedy order is always tried,
+     * however small the budget
+     * @param budgetMillis time the searches may take in milliseconds
+     * @return best placement found
+     */
+    public Plan solve(long budgetMillis) {
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + Math.max(0, budgetMillis) * 1000000L;
+        int[][] initial = initialOrders();
+        ArrayList<Search> searches = new ArrayList<>();
+        ArrayList<ForkJoinTask<Score>> tasks = new ArrayList<>();
+        for (int i = 0; i < Math.max(parallelism, HEURISTICS); i++) {
+            searches.add(new Search(initial[i % HEURISTICS], i, deadline));
+            tasks.add(ForkJoinTask.adapt(searches.get(i)));
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> ForkJoinTask.invokeAll(tasks)).join();
+        } finally {
+            pool.shutdown();
+        }
+        Search best = null;
+        long evaluations = 0;
+        for (int i = 0; i < searches.size(); i++) {
+            tasks.get(i).join();
+            Search s = searches.get(i);
+            evaluations += s.evaluations;
+            if (best == null || s.bestScore.compareTo(best.bestScore) < 0)
+                best = s;
+        }
+        long[] starts = new long[requests.size()];
+        decode(best.best, starts);
+        return new Plan(requests, starts, best.bestScore, System.nanoTime() - startNanos, evaluations,
+                searches.size());
+    }
+
+    /**
+     * Builds the greedy orders the searches start from
+     * @return one order of request indexes per heuristic
+     */
+    private int[][] initialOrders() {
+        List<Comparator<Integer>> orders = Arrays.asList(
+                Comparator.comparingLong((Integer i) -> requests.get(i).deadlineMillis),
+                Comparator.comparingInt((Integer i) -> -requests.get(i).priority)
+                        .thenComparingLong(i -> requests.get(i).deadlineMillis),
+                Comparator.comparingLong((Integer i) -> requests.get(i).deadlineMillis -
+                        requests.get(i).earliestMillis - requests.get(i).duration * MINUTE_MILLIS),
+                Comparator.comparingDouble((Integer i) -> -(double) requests.get(i).priority / requests.get(i).duration)
+                        .thenComparingLong(i -> requests.get(i).deadlineMillis));
+        int[][] initial = new int[HEURISTICS][];
+        for (int h = 0; h < HEURISTICS; h++) {
+            ArrayList<Integer> order = new ArrayList<>();
+            for (int i = 0; i < requests.size(); i++)
+                order.add(i);
+            Collections.sort(order, orders.get(h));
+            initial[h] = new int[order.size()];
+            for (int i = 0; i < order.size(); i++)
+                initial[h][i] = order.get(i);
+        }
+        return initial;
+    }
+
+    /**
+     * Places the requests in the order given, each at the earliest free time it fits at or after its earliest
+     * start, and scores the result
+     * @param order request indexes in the order they are placed
+     * @param starts filled in with each request's start time in milliseconds, or -1 if it could not be placed
+     * @return score of the placement
+     */
+    private Score decode(int[] order, long[] starts) {
+        TreeMap<Long, Long> placed = new TreeMap<>();
+        for (int i : order) {
+            Request r = requests.get(i);
+            long length = r.duration * MINUTE_MILLIS;
+            long start = place(placed, ceilMinute(r.earliestMillis), length);
+            starts[i] = start;
+            if (start != -1)
+                placed.put(start, start + length);
+        }
+        return score(starts);
+    }
+
+    /**
+     * Finds the earliest time at or after the time given at which a Task of the length given fits in the free
+     * time without overlapping any request placed so far
+     * @param placed start and end times of the requests placed so far
+     * @param earliest earliest allowed start time in milliseconds
+     * @param length length of the Task in milliseconds
+     * @return start time in milliseconds, or -1 if it fits nowhere
+     */
+    private long place(TreeMap<Long, Long> placed, long earliest, long length) {
+        int low = 0;
+        int high = freeEnds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (freeEnds[mid] > earliest)
+                high = mid;
+            else
+                low = mid + 1;
+        }
+        for (int k = low; k < freeEnds.length; k++) {
+            long candidate = Math.max(earliest, freeStarts[k]);
+            while (candidate + length <= freeEnds[k]) {
+                Map.Entry<Long, Long> before = placed.floorEntry(candidate);
+                if (before != null && before.getValue() > candidate) {
+                    candidate = before.getValue();
+                    continue;
+                }
+                Map.Entry<Long, Long> after = placed.higherEntry(candidate);
+                if (after != null && after.getKey() < candidate + length) {
+                    candidate = after.getValue();
+                    continue;
+                }
+                return candidate;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Scores a placement
+     * @param starts each request's start time in milliseconds, or -1 if it could not be placed
+     * @return score of the placement
+     */
+    private Score score(long[] starts) {
+        long unplaced = 0;
+        long missed = 0;
+        long lateness = 0;
+        long finish = 0;
+        for (int i = 0; i < starts.length; i++) {
+            Request r = requests.get(i);
+            if (starts[i] == -1) {
+                unplaced += r.priority;
+                continue;
+            }
+            long end = starts[i] + r.duration * MINUTE_MILLIS;
+            if (end > r.deadlineMillis) {
+                missed += r.priority;
+                lateness += r.priority * ((end - r.deadlineMillis + MINUTE_MILLIS - 1) / MINUTE_MILLIS);
+            }
+            finish += (end - origin) / MINUTE_MILLIS;
+        }
+        return new Score(unplaced, missed, lateness, finish);
+    }
+
+    /**
+     * One local search over orders of the requests, run on the fork-join pool
+     */
+    private class Search implements Callable<Score> {
+        private final int[] initial;
+        private final long seed;
+        private final long deadline;
+        private int[] best;
+        private Score bestScore;
+        private long evaluations;
+
+        /**
+         * Creates Search based on params
+         * @param initial order to start from
+         * @param seed seed for the search's random moves
+         * @param deadline System.nanoTime() value at which to stop
+         */
+        private Search(int[] initial, long seed, long deadline) {
+            this.initial = initial;
+            this.seed = seed;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Runs the search until the deadline passes or every deadline is met
+         * @return score of the best placement found
+         */
+        @Override
+        public Score call() {
+            int n = initial.length;
+            SplittableRandom random = new SplittableRandom(seed);
+            long[] starts = new long[n];
+            int[] current = initial.clone();
+            Score currentScore = decode(current, starts);
+            evaluations = 1;
+            best = current.clone();
+            bestScore = currentScore;
+            int stall = 0;
+            while (n > 1 && !bestScore.meetsDeadlines() && System.nanoTime() < deadline) {
+                int i = random.nextInt(n);
+                int j = random.nextInt(n - 1);
+                if (j >= i)
+                    j++;
+                boolean swap = random.nextBoolean();
+                if (swap)
+                    swap(current, i, j);
+                else
+                    move(current, i, j);
+                Score s = decode(current, starts);
+                evaluations++;
+                int c = s.compareTo(currentScore);
+                if (c <= 0) {
+                    currentScore = s;
+                    if (s.compareTo(bestScore) < 0) {
+                        best = current.clone();
+                        bestScore = s;
+                        stall = 0;
+                        continue;
+                    }
+                } else if (swap) {
+                    swap(current, i, j);
+                } else {
+                    move(current, j, i);
+                }
+                if (++stall > STALL_MOVES_PER_TASK * n) {
+                    current = best.clone();
+                    for (int k = 0; k < Math.max(2, n / 4); k++)
+                        swap(current, random.nextInt(n), random.nextInt(n));
+                    currentScore = decode(current, starts);
+                    evaluations++;
+                    stall = 0;
+                }
+            }
+            return bestScore;
+        }
+    }
+
+    /**
+     * Swaps two entries of an order
+     * @param order order to change
+     * @param i index of one entry
+     * @param j index of the other entry
+     */
+    private static void swap(int[] order, int i, int j) {
+        int t = order[i];
+        order[i] = order[j];
+        order[j] = t;
+    }
+
+    /**
+     * Takes an entry out of an order and puts it back at another index, shifting the entries between along.
+     * move(order, j, i) undoes move(order, i, j)
+     * @param order order to change
+     * @param from index of the entry to move
+     * @param to index the entry ends up at
+     */
+    private static void move(int[] order, int from, int to) {
+        int t = order[from];
+        if (from < to)
+            System.arraycopy(order, from + 1, order, from, to - from);
+        else
+            System.arraycopy(order, to, order, to + 1, from - to);
+        order[to] = t;
+    }
+
+    /**
+     * Quality of a placement, compared in order of priority of requests left unplaced, priority of requests
+     * placed after their deadline, minutes late weighted by priority, and finally how early the requests end
+     */
+    private static class Score implements Comparable<Score> {
+        private final long unplaced;
+        private final long missed;
+        private final long lateness;
+        private final long finish;
+
+        /**
+         * Creates Score based on params
+         * @param unplaced total priority of requests that could not be placed
+         * @param missed total priority of requests placed after their deadline
+         * @param lateness minutes past their deadlines the requests end, weighted by priority
+         * @param finish minutes from the start of the free time to each request's end, summed
+         */
+        private Score(long unplaced, long missed, long lateness, long finish) {
+            this.unplaced = unplaced;
+            this.missed = missed;
+            this.lateness = lateness;
+            this.finish = finish;
+        }
+
+        /**
+         * Checks whether every request was placed by its deadline, in which case no search can do better on
+         * what matters
+         * @return true if every deadline is met, false otherwise
+         */
+        private boolean meetsDeadlines() {
+            return unplaced == 0 && missed == 0;
+        }
+
+        /**
+         * Compares this Score to other
+         * @param other other Score to compare this Score to
+         * @return negative number if this Score is better, positive number if it is worse, or 0 if equal
+         */
+        @Override
+        public int compareTo(Score other) {
+            if (unplaced != other.unplaced)
+                return Long.compare(unplaced, other.unplaced);
+            if (missed != other.missed)
+                return Long.compare(missed, other.missed);
+            if (lateness != other.lateness)
+                return Long.compare(lateness, other.lateness);
+            return Long.compare(finish, other.finish);
+        }
+    }
+
+    /**
+     * Task to be placed by AutoScheduler, with the window it should be placed in and how much it matters
+     */
+    public static class Request {
+        private final String name;
+        private final String description;
+        private final int duration;
+        private final long earliestMillis;
+        private final long deadlineMillis;
+        private final int priority;
+
+        /**
+         * Creates Request based on params
+         * @param name name of the Task
+         * @param description description of the Task
+         * @param duration how many minutes the Task will take
+         * @param earliestMillis earliest time the Task may start, in milliseconds
+         * @param deadlineMillis time the Task should be finished by, in milliseconds
+         * @param priority how much meeting the deadline matters, at least 1
+         * @throws TaskFormatException if the duration or priority is below 1, or the name or description uses the
+         *                             | character
+         */
+        public Request(String name, String description, int duration, long earliestMillis, long deadlineMillis,
+                       int priority) {
+            if (duration < 1 || priority < 1)
+                throw new TaskFormatException("Duration and priority must be at least 1!");
+            if (name.isEmpty() || !Schedule.isValidName(name) || !Schedule.isValidDescription(description))
+                throw new TaskFormatException("Invalid name or description!");
+            this.name = name;
+            this.description = description;
+            this.duration = duration;
+            this.earliestMillis = earliestMillis;
+            this.deadlineMillis = deadlineMillis;
+            this.priority = priority;
+        }
+
+        /**
+         * Creates Request based on a String in the format
+         * ||name||...||desc||...||dur||minutes||after||date-time||due||date-time||priority||number
+         * @param data String containing all Request data
+         * @throws TaskFormatException if the String is not in that format
+         */
+        public Request(String data) {
+            this(field(data, "||name||", "||desc||"), field(data, "||desc||", "||dur||"),
+                    Integer.parseInt(field(data, "||dur||", "||after||")),
+                    ScheduledTime.getInputMillis(field(data, "||after||", "||due||")),
+                    ScheduledTime.getInputMillis(field(data, "||due||", "||priority||")),
+                    Integer.parseInt(field(data, "||priority||", null)));
+        }
+
+        /**
+         * Gets the text between two markers of a Request String
+         * @param data String containing all Request data
+         * @param marker marker the field follows
+         * @param next marker following the field, or null if the field runs to the end
+         * @return text of the field
+         * @throws TaskFormatException if a marker is missing
+         */
+        private static String field(String data, String marker, String next) {
+            int start = data.indexOf(marker);
+            int end = next == null ? data.length() : data.indexOf(next);
+            if (start == -1 || end < start + marker.length())
+                throw new TaskFormatException();
+            return data.substring(start + marker.length(), end);
+        }
+
+        /**
+         * Gets Request name
+         * @return Request name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets Request duration in minutes
+         * @return Request duration
+         */
+        public int getDuration() {
+            return duration;
+        }
+
+        /**
+         * Gets the earliest time the Task may start
+         * @return earliest start time in milliseconds
+         */
+        public long getEarliestMillis() {
+            return earliestMillis;
+        }
+
+        /**
+         * Gets the time the Task should be finished by
+         * @return deadline in milliseconds
+         */
+        public long getDeadlineMillis() {
+            return deadlineMillis;
+        }
+
+        /**
+         * Gets how much meeting the deadline matters
+         * @return priority, at least 1
+         */
+        public int getPriority() {
+            return priority;
+        }
+
+        /**
+         * Makes the Task this Request asks for, starting at the time given
+         * @param startMillis start time in milliseconds
+         * @return new Task
+         */
+        public Task toTask(long startMillis) {
+            return new Task(name, description, new ScheduledTime(startMillis), duration);
+        }
+    }
+
+    /**
+     * Placement found by solve(), with how good it is and how long it took to find
+     */
+    public static class Plan {
+        private final List<Request> requests;
+        private final long[] starts;
+        private final Score score;
+        private final long solveNanos;
+        private final long evaluations;
+        private final int searches;
+
+        /**
+         * Creates Plan based on params
+         * @param requests requests placed
+         * @param starts each request's start time in milliseconds, or -1 if it could not be placed
+         * @param score score of the placement
+         * @param solveNanos time taken to find the placement in nanoseconds
+         * @param evaluations number of placements worked out by every search together
+         * @param searches number of searches run
+         */
+        private Plan(List<Request> requests, long[] starts, Score score, long solveNanos, long evaluations,
+                     int searches) {
+            this.requests = requests;
+            this.starts = starts;
+            this.score = score;
+            this.solveNanos = solveNanos;
+            this.evaluations = evaluations;
+            this.searches = searches;
+        }
+
+        /**
+         * Gets the Tasks placed, none overlapping each other or the free time's surroundings
+         * @return Tasks placed in ascending order of scheduled time
+         */
+        public List<Task> getTasks() {
+            ArrayList<Task> tasks = new ArrayList<>();
+            for (int i = 0; i < starts.length; i++) {
+                if (starts[i] != -1)
+                    tasks.add(requests.get(i).toTask(starts[i]));
+            }
+            Collections.sort(tasks);
+            return tasks;
+        }
+
+        /**
+         * Gets the requests that could not be placed at all
+         * @return requests left unplaced, in the order they were given
+         */
+        public List<Request> getUnplaced() {
+            ArrayList<Request> unplaced = new ArrayList<>();
+            for (int i = 0; i < starts.length; i++) {
+                if (starts[i] == -1)
+                    unplaced.add(requests.get(i));
+            }
+            return unplaced;
+        }
+
+        /**
+         * Gets the requests placed so that they end after their deadline
+         * @return late requests, in the order they were given
+         */
+        public List<Request> getLate() {
+            ArrayList<Request> late = new ArrayList<>();
+            for (int i = 0; i < starts.length; i++) {
+                Request r = requests.get(i);
+                if (starts[i] != -1 && starts[i] + r.duration * MINUTE_MILLIS > r.deadlineMillis)
+                    late.add(r);
+            }
+            return late;
+        }
+
+        /**
+         * Checks whether every request was placed by its deadline
+         * @return true if every deadline is met, false otherwise
+         */
+        public boolean meetsDeadlines() {
+            return score.meetsDeadlines();
+        }
+
+        /**
+         * Gets the time taken to find the placement
+         * @return solve time in nanoseconds
+         */
+        public long getSolveNanos() {
+            return solveNanos;
+        }
+
+        /**
+         * Gets the number of placements worked out by every search together
+         * @return number of placements evaluated
+         */
+        public long getEvaluations() {
+            return evaluations;
+        }
+
+        /**
+         * Gets a summary of the placement's quality and how long it took to find
+         * @return String giving Tasks placed, deadlines missed, minutes late, solve time and search effort
+         */
+        public String report() {
+            List<Request> late = getLate();
+            List<Request> unplaced = getUnplaced();
+            long lateMinutes = 0;
+            for (int i = 0; i < starts.length; i++) {
+                Request r = requests.get(i);
+                long end = starts[i] + r.duration * MINUTE_MILLIS;
+                if (starts[i] != -1 && end > r.deadlineMillis)
+                    lateMinutes += (end - r.deadlineMillis + MINUTE_MILLIS - 1) / MINUTE_MILLIS;
+            }
+            return "Placed " + (starts.length - unplaced.size()) + " of " + starts.length + " tasks in " +
+                    solveNanos / 1000000 + " ms (" + evaluations + " placements tried by " + searches +
+                    " searches): " + (late.size() + unplaced.size()) + " deadlines missed, " + late.size() +
+                    " tasks late by " + lateMinutes + " minutes in total, " + unplaced.size() + " tasks not placed";
+        }
+    }
+
+}
@@ -0,0 +1,196 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Scanner;
+
+public class BinaryTaskFile {
+
+    /** "SCHD" in ASCII, marking a file as a binary Task file */
+    public static final int MAGIC = 0x53434844;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 32;
+
+    /**
+     * Checks whether a file starts with the binary Task file magic number
+     * @param file file to check
+     * @return true if the file is a binary Task file, false if it is missing, too short or a text file
+     */
+    public static boolean isBinary(File file) {
+        if (file.length() < HEADER_BYTES)
+            return false;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes Tasks in the binary format: a header holding the magic number, version and Task count, then one
+     * fixed width record per Task holding its start time in milliseconds, duration and the offsets and lengths
+     * of its name and description, then a heap holding each distinct name and description once in UTF-8
+     * @param out stream to write to
+     * @param tasks Tasks to write, in the order they should be read back
+     * @param count number of Tasks given
+     * @throws IOException if the Tasks could not be written
+     */
+    public static void write(OutputStream out, Iterable<Task> tasks, int count) throws IOException {
+        ByteArrayOutputStream heap = new ByteArrayOutputStream();
+        HashMap<String, Integer> heapOffsets = new HashMap<>();
+        DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(out));
+        dataOut.writeInt(MAGIC);
+        dataOut.writeInt(VERSION);
+        dataOut.writeInt(count);
+        dataOut.writeInt(0);
+        for (Task t : tasks) {
+            byte[] name = t.getName().getBytes(StandardCharsets.UTF_8);
+            byte[] desc = t.getDescription().getBytes(StandardCharsets.UTF_8);
+            dataOut.writeLong(t.getSchedTime().getMillis());
+            dataOut.writeInt(t.getDuration());
+            dataOut.writeInt(heapOffset(heap, heapOffsets, t.getName(), name));
+            dataOut.writeInt(name.length);
+            dataOut.writeInt(heapOffset(heap, heapOffsets, t.getDescription(), desc));
+            dataOut.writeInt(desc.length);
+            dataOut.writeInt(0);
+        }
+        heap.writeTo(dataOut);
+        dataOut.flush();
+    }
+
+    /**
+     * Gets the offset of a String within the heap, appending it to the heap if it is not there yet
+     * @param heap heap being built
+     * @param heapOffsets offsets of the Strings already in the heap
+     * @param str String to look up
+     * @param bytes UTF-8 bytes of the String
+     * @return offset of the String from the start of the heap
+     */
+    private static int heapOffset(ByteArrayOutputStream heap, HashMap<String, Integer> heapOffsets, String str, byte[] bytes) {
+        Integer offset = heapOffsets.get(str);
+        if (offset == null) {
+            offset = heap.size();
+            heap.write(bytes, 0, bytes.length);
+            heapOffsets.put(str, offset);
+        }
+        return offset;
+    }
+
+    /**
+     * Reads all Tasks from a binary Task file by memory-mapping it, so no dates need to be parsed
+     * @param file binary Task file to read
+     * @return Tasks in the order they were written
+     * @throws IOException if the file could not be read
+     * @throws TaskFormatException if the file is not a valid binary Task file
+     */
+    public static List<Task> read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buf.limit() < HEADER_BYTES || buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION)
+                throw new TaskFormatException("Formatting error in " + file.getName() + "!", file.getName(), 0);
+            int count = buf.getInt(8);
+            long heapStart = HEADER_BYTES + (long) count * RECORD_BYTES;
+            if (count < 0 || heapStart > buf.limit())
+                throw new TaskFormatException("Formatting error in " + file.getName() + "!", file.getName(), 0);
+            ArrayList<Task> tasks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int pos = HEADER_BYTES + i * RECORD_BYTES;
+                String name = heapString(buf, (int) heapStart, buf.getInt(pos + 12), buf.getInt(pos + 16));
+                String desc = heapString(buf, (int) heapStart, buf.getInt(pos + 20), buf.getInt(pos + 24));
+                if (name == null || desc == null)
+                    throw new TaskFormatException("Formatting error in " + file.getName() + " at record " + (i + 1) + "!",
+                            file.getName(), i + 1);
+                tasks.add(new Task(name, desc, new ScheduledTime(buf.getLong(pos)), buf.getInt(pos + 8)));
+            }
+            return tasks;
+        }
+    }
+
+    /**
+     * Decodes a String stored in the heap of a mapped binary Task file
+     * @param buf mapped file
+     * @param heapStart position of the heap in the file
+     * @param offset offset of the String from the start of the heap
+     * @param length length of the String in bytes
+     * @return decoded String, or null if it lies outside the heap
+     */
+    private static String heapString(ByteBuffer buf, int heapStart, int offset, int length) {
+        if (offset < 0 || length < 0 || (long) heapStart + offset + length > buf.limit())
+            return null;
+        byte[] bytes = new byte[length];
+        buf.get(heapStart + offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Converts a text Task file, with one ||name||...||dur|| line per Task, to a binary Task file
+     * @param textFile name of the text file to read
+     * @param binaryFile name of the binary file to write
+     * @throws IOException if either file could not be accessed
+     */
+    public static void toBinary(String textFile, String binaryFile) throws IOException {
+        ArrayList<Task> tasks = new ArrayList<>();
+        Scanner fileSc = new Scanner(new File(textFile));
+        while (fileSc.hasNextLine())
+            tasks.add(new Task(fileSc.nextLine()));
+        fileSc.close();
+        try (FileOutputStream out = new FileOutputStream(binaryFile)) {
+            write(out, tasks, tasks.size());
+        }
+    }
+
+    /**
+     * Converts a binary Task file back to a text Task file with one ||name||...||dur|| line per Task
+     * @param binaryFile name of the binary file to read
+     * @param textFile name of the text file to write
+     * @throws IOException if either file could not be accessed
+     */
+    public static void toText(String binaryFile, String textFile) throws IOException {
+        List<Task> tasks = read(new File(binaryFile));
+        FileWriter fileWriter = new FileWriter(textFile);
+        for (Task t : tasks) {
+            fileWriter.write(t.getData() + '\n');
+        }
+        fileWriter.close();
+    }
+
+    /**
+     * Converts between the text and binary formats from the command line, for example to switch data.txt
+     * over to the binary format: java BinaryTaskFile tobinary data.txt data.bin, then rename data.bin to data.txt
+     */
+    public static void main(String[] args) {
+        if (args.length != 3 || !(args[0].equals("tobinary") || args[0].equals("totext"))) {
+            System.out.println("Usage: java BinaryTaskFile tobinary|totext <input-file> <output-file>");
+            return;
+        }
+        try {
+            if (args[0].equals("tobinary"))
+                toBinary(args[1], args[2]);
+            else
+                toText(args[1], args[2]);
+            System.out.println("Converted " + args[1] + " to " + args[2] + "!");
+        } catch (FileNotFoundException e) {
+            System.out.println("File " + args[1] + " not found!");
+        } catch (IOException e) {
+            System.out.println("Unable to convert " + args[1] + "!");
+        } catch (RuntimeException e) {
+            System.out.println("Formatting error in " + args[1] + "!");
+        }
+    }
+
+}
@@ -0,0 +1,332 @@
+import java.io.File;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import javax.management.JMException;
+
+public class CalendarCatalog {
+
+    private static final String EXTENSION = ".txt";
+    private static final long MINUTE_MILLIS = 60 * 1000L;
+
+    private final File directory;
+    private final boolean compact;
+    private final boolean archiving;
+    private volatile int loadWindowDays = 0;
+    private volatile long flushDelayMillis = -1;
+    private final ConcurrentHashMap<String, CompletableFuture<Schedule>> calendars = new ConcurrentHashMap<>();
+    private final ExecutorService loader;
+
+    /**
+     * Creates CalendarCatalog holding the named calendars kept in a directory, each a separate Schedule with its
+     * own data file (calendar "room-a" is saved to room-a.txt, with room-a.journal and so on beside it), index
+     * and locks, so changes to different calendars never wait on each other. Calendars are loaded on first
+     * access, or all at once in parallel by loadAll(), and each publishes its own metrics over JMX once loaded
+     * @param directory directory holding the calendars' files, created if it does not exist
+     * @param compact true to hold each calendar's Tasks in a CompactTaskStore, false for a TaskIndex
+     * @param archiving true to archive finished Tasks beside each calendar's data file
+     */
+    public CalendarCatalog(String directory, boolean compact, boolean archiving) {
+        this.directory = new File(directory);
+        this.compact = compact;
+        this.archiving = archiving;
+        this.directory.mkdirs();
+        loader = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "calendar-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sets how many days ahead each calendar loaded from now on reads at first (see Schedule.setLoadWindow())
+     * @param days number of days from today to load, or 0 to load whole data files
+     */
+    public void setLoadWindow(int days) {
+        this.loadWindowDays = days;
+    }
+
+    /**
+     * Sets how long a change to any calendar loaded from now on may wait before it is written to disk (see
+     * Schedule.setFlushDelay())
+     * @param millis maximum delay in milliseconds
+     */
+    public void setFlushDelay(long millis) {
+        this.flushDelayMillis = millis;
+    }
+
+    /**
+     * Checks whether a name can be used for a calendar: it must be made up of letters, digits, - and _ only, so
+     * it is always a plain file name within the catalog's directory
+     * @param name calendar name to check
+     * @return true if the name is valid, false otherwise
+     */
+    public static boolean isValidName(String name) {
+        return name.matches("[A-Za-z0-9_-]+");
+    }
+
+    /**
+     * Gets the names of every calendar in the catalog, whether saved in the directory or created since
+     * @return calendar names in alphabetical order
+     */
+    public List<String> names() {
+        TreeSet<String> names = new TreeSet<>(calendars.keySet());
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String fileName = file.getName();
+                if (fileName.endsWith(EXTENSION)) {
+                    String name = fileName.substring(0, fileName.length() - EXTENSION.length());
+                    if (isValidName(name))
+                        names.add(name);
+                }
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Checks whether a calendar exists, either saved in the directory or created since
+     * @param name name of the calendar
+     * @return true if the calendar exists, false otherwise
+     */
+    public boolean exists(String name) {
+        return isValidName(name) && (calendars.containsKey(name) || new File(directory, name + EXTENSION).isFile());
+    }
+
+    /**
+     * Gets an existing calendar, loading it on the calling thread if this is its first access, or waiting for
+     * the load if another thread has started it. Unknown names are refused rather than creating a calendar, so
+     * clients naming calendars cannot fill the catalog with new ones
+     * @param name name of the calendar
+     * @return the calendar, or null if the name is not valid or no such calendar exists
+     */
+    public Schedule get(String name) {
+        if (!exists(name))
+            return null;
+        return join(start(name, false));
+    }
+
+    /**
+     * Gets a calendar, creating it if it does not exist yet. A new calendar starts empty and its data file is
+     * created when it is first saved
+     * @param name name of the calendar
+     * @return the calendar, or null if the name is not valid
+     */
+    public Schedule create(String name) {
+        if (!isValidName(name))
+            return null;
+        return join(start(name, false));
+    }
+
+    /**
+     * Starts loading every calendar not yet loaded, several at a time on the catalog's loader threads. Each
+     * calendar can be used as soon as its own load finishes, and one asked for with get() before its turn is
+     * loaded straight away rather than waiting behind the others
+     * @return future completing once every calendar has loaded
+     */
+    public CompletableFuture<Void> loadAll() {
+        ArrayList<CompletableFuture<Schedule>> loads = new ArrayList<>();
+        for (String name : names())
+            loads.add(start(name, true));
+        return CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Gets the future for a calendar's load, starting the load if nobody has yet. Only the thread that puts the
+     * future in the map starts the load, so each calendar is loaded once however many threads ask for it
+     * @param name name of the calendar
+     * @param background true to load on the loader threads, false to load on the calling thread
+     * @return future completing with the loaded calendar
+     */
+    private CompletableFuture<Schedule> start(String name, boolean background) {
+        CompletableFuture<Schedule> calendar = calendars.get(name);
+        if (calendar != null)
+            return calendar;
+        CompletableFuture<Schedule> created = new CompletableFuture<>();
+        calendar = calendars.putIfAbsent(name, created);
+        if (calendar != null)
+            return calendar;
+        if (background)
+            loader.execute(() -> open(name, created));
+        else
+            open(name, created);
+        return created;
+    }
+
+    /**
+     * Loads a calendar from its data file and publishes its metrics, completing the future given with it. A
+     * calendar whose file is damaged still opens, empty, as Schedule.load() reports the error and keeps going
+     * @param name name of the calendar
+     * @param calendar future to complete with the loaded calendar
+     */
+    private void open(String name, CompletableFuture<Schedule> calendar) {
+        try {
+            Schedule schedule = new Schedule(new File(directory, name + EXTENSION).getPath(), compact);
+            schedule.setArchiving(archiving);
+            schedule.setLoadWindow(loadWindowDays);
+            if (flushDelayMillis >= 0)
+                schedule.setFlushDelay(flushDelayMillis);
+            schedule.load(schedule.getDataFile());
+            try {
+                schedule.getMetrics().register();
+            } catch (JMException e) {
+                System.out.println("Unable to publish metrics for " + name + "!");
+            }
+            calendar.complete(schedule);
+        } catch (RuntimeException e) {
+            calendar.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Gets every calendar loaded so far, without loading any others, for background work such as ExpirySweeper
+     * that has nothing to do for calendars nobody has touched
+     * @return loaded calendars
+     */
+    public List<Schedule> loaded() {
+        ArrayList<Schedule> schedules = new ArrayList<>();
+        for (CompletableFuture<Schedule> calendar : calendars.values()) {
+            if (calendar.isDone() && !calendar.isCompletedExceptionally())
+                schedules.add(calendar.join());
+        }
+        return schedules;
+    }
+
+    /**
+     * Gets several calendars, loading those not loaded yet in parallel on the loader threads before returning
+     * @param names names of the calendars
+     * @return the calendars in the order named
+     * @throws IllegalArgumentException if a name is not valid or no such calendar exists
+     */
+    private List<Schedule> getAll(List<String> names) {
+        ArrayList<CompletableFuture<Schedule>> loads = new ArrayList<>();
+        for (String name : names) {
+            if (!isValidName(name))
+                throw new IllegalArgumentException("Invalid calendar name: " + name);
+            if (!exists(name))
+                throw new IllegalArgumentException("Unknown calendar: " + name);
+            loads.add(start(name, true));
+        }
+        ArrayList<Schedule> schedules = new ArrayList<>(loads.size());
+        for (CompletableFuture<Schedule> load : loads)
+            schedules.add(join(load));
+        return schedules;
+    }
+
+    /**
+     * Gets the Tasks overlapping a time range in each of several calendars, querying them in parallel
+     * @param names names of the calendars
+     * @param from start of the range in milliseconds
+     * @param to end of the range in milliseconds
+     * @return Tasks found in each calendar, keyed by calendar name in the order named
+     * @throws IllegalArgumentException if a name is not valid or no such calendar exists
+     */
+    public Map<String, List<Task>> tasksBetween(List<String> names, long from, long to) {
+        List<Schedule> schedules = getAll(names);
+        ArrayList<CompletableFuture<List<Task>>> queries = new ArrayList<>(schedules.size());
+        for (Schedule schedule : schedules)
+            queries.add(CompletableFuture.supplyAsync(() -> schedule.tasksBetween(from, to), ForkJoinPool.commonPool()));
+        LinkedHashMap<String, List<Task>> found = new LinkedHashMap<>();
+        for (int i = 0; i < names.size(); i++)
+            found.put(names.get(i), join(queries.get(i)));
+        return found;
+    }
+
+    /**
+     * Finds the earliest slot at or after the time given in which every calendar named is free for the
+     * duration given, for example a time rooms A, B and C can all be booked. Each round asks every calendar in
+     * parallel for its earliest free slot from a candidate time (see Schedule.findFreeSlots()); if the slots
+     * all cover the latest of their starts for the whole duration that is the answer, otherwise the search
+     * carries on from that latest start. Some calendar's slot starts later each round, so the search only
+     * takes as many rounds as there are Tasks in the way. Like Schedule.findFreeSlots(), the search gives up
+     * after Schedule.UNBOUNDED_CHECK_YEARS years
+     * @param names names of the calendars
+     * @param afterMillis earliest allowed start time in milliseconds
+     * @param duration duration needed in minutes
+     * @param workStart start of working hours each day, or null to allow any time of day
+     * @param workEnd end of working hours each day, or null to allow any time of day
+     * @return the earliest common free slot, running until the first calendar stops being free, or null if
+     *         some calendar has no free slot left or none is found in time
+     * @throws IllegalArgumentException if a name is not valid or no such calendar exists
+     */
+    public TimeSlot findCommonFreeSlot(List<String> names, long afterMillis, int duration, LocalTime workStart,
+                                       LocalTime workEnd) {
+        List<Schedule> schedules = getAll(names);
+        long length = Math.max(1, duration * MINUTE_MILLIS);
+        long limit = afterMillis + Schedule.UNBOUNDED_CHECK_MILLIS;
+        long candidate = afterMillis;
+        while (candidate <= limit) {
+            long from = candidate;
+            ArrayList<CompletableFuture<List<TimeSlot>>> queries = new ArrayList<>(schedules.size());
+            for (Schedule schedule : schedules)
+                queries.add(CompletableFuture.supplyAsync(() ->
+                        schedule.findFreeSlots(from, duration, 1, workStart, workEnd), ForkJoinPool.commonPool()));
+            ArrayList<TimeSlot> slots = new ArrayList<>(queries.size());
+            long latestStart = from;
+            for (CompletableFuture<List<TimeSlot>> query : queries) {
+                List<TimeSlot> found = join(query);
+                if (found.isEmpty())
+                    return null;
+                slots.add(found.get(0));
+                latestStart = Math.max(latestStart, found.get(0).getStartMillis());
+            }
+            long commonEnd = Long.MAX_VALUE;
+            for (TimeSlot slot : slots) {
+                if (slot.getStartMillis() > latestStart || slot.getEndMillis() - latestStart < length) {
+                    commonEnd = -1;
+                    break;
+                }
+                commonEnd = Math.min(commonEnd, slot.getEndMillis());
+            }
+            if (commonEnd != -1)
+                return new TimeSlot(latestStart, commonEnd);
+            candidate = latestStart;
+        }
+        return null;
+    }
+
+    /**
+     * Waits for a query, passing on whatever it threw
+     * @param query query to wait for
+     * @param <T> type of the query's result
+     * @return result of the query
+     */
+    private static <T> T join(CompletableFuture<T> query) {
+        try {
+            return query.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes every loaded calendar, syncing its journal and unpublishing its metrics, and stops the loader
+     * threads
+     */
+    public void close() {
+        loader.shutdown();
+        for (Schedule schedule : loaded())
+            schedule.close();
+    }
+
+    /**
+     * Iterates over every calendar loaded so far without loading any others
+     * @return iterable over the loaded calendars
+     */
+    public Iterable<Schedule> loadedCalendars() {
+        return () -> loaded().iterator();
+    }
+
+}
@@ -0,0 +1,742 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class CompactTaskStore implements TaskStore {
+
+    private static final long MINUTE_MILLIS = 60 * 1000L;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int BLOCK_SIZE = 4096;
+    private static final int MERGE_SIZE = BLOCK_SIZE / 4;
+
+    private final ReentrantReadWriteLock structureLock = new ReentrantReadWriteLock();
+    private long[] separators = new long[INITIAL_CAPACITY];
+    private Block[] blocks = new Block[INITIAL_CAPACITY];
+    private int blockCount;
+    private final AtomicInteger size = new AtomicInteger();
+    private final StringPool pool = new StringPool();
+
+    /**
+     * Creates an empty CompactTaskStore. Instead of one Task object per Task, the store keeps a column each of
+     * start times, end times, name ids and description ids, with every distinct name and description held once
+     * in a string pool. That comes to 24 bytes per Task plus the distinct strings, and the primitive columns
+     * give the garbage collector nothing to trace. Tasks handed out are views built on demand, so changing one
+     * does not change the store. The columns are cut into blocks of at most 4096 Tasks sorted by start time,
+     * found through a small index of the earliest start time each block takes, so adding or removing a Task
+     * takes O(log n + 4096) time and loading Tasks in order only appends. Reading or changing a block locks
+     * just that block; only splitting a full block or dropping a nearly empty one locks the whole store, once
+     * every few thousand changes. Callers adding Tasks that might overlap each other at the same time must lock
+     * around them themselves, as Schedule does with its day stripes. Iterating needs the store to be left
+     * unchanged until it finishes, as Schedule does by holding its snapshot lock
+     */
+    public CompactTaskStore() {
+        separators[0] = Long.MIN_VALUE;
+        blocks[0] = new Block(INITIAL_CAPACITY);
+        blockCount = 1;
+    }
+
+    /**
+     * Finds the block a start time belongs in, which is the last block whose separator is at or before it.
+     * The structure lock must be held
+     * @param start start time in milliseconds
+     * @return index of the block
+     */
+    private int blockIndex(long start) {
+        int i = Arrays.binarySearch(separators, 0, blockCount, start);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    /**
+     * Builds a Task view of an entry in a block. The block's lock must be held
+     * @param b block holding the Task
+     * @param i index of the Task in the block
+     * @return new Task holding the Task's data
+     */
+    private Task view(Block b, int i) {
+        return new Task(pool.get(b.nameIds[i]), pool.get(b.descriptionIds[i]), new ScheduledTime(b.starts[i]),
+                (int) ((b.ends[i] - b.starts[i]) / MINUTE_MILLIS));
+    }
+
+    /**
+     * Gets the first Task starting after a time, or at it if inclusive, looking on into later blocks if the
+     * block the time belongs in has none. The structure lock must be held
+     * @param millis time in milliseconds
+     * @param inclusive true to also take a Task starting exactly then
+     * @return first such Task, or null if there is none
+     */
+    private Task ceiling(long millis, boolean inclusive) {
+        for (int k = blockIndex(millis); k < blockCount; k++) {
+            Block b = blocks[k];
+            synchronized (b) {
+                int i = inclusive ? b.ceilingIndex(millis) : b.higherIndex(millis);
+                if (i < b.size)
+                    return view(b, i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the last Task starting before a time, or at it if inclusive, looking back into earlier blocks if
+     * the block the time belongs in has none. The structure lock must be held
+     * @param millis time in milliseconds
+     * @param inclusive true to also take a Task starting exactly then
+     * @return last such Task, or null if there is none
+     */
+    private Task floor(long millis, boolean inclusive) {
+        for (int k = blockIndex(millis); k >= 0; k--) {
+            Block b = blocks[k];
+            synchronized (b) {
+                int i = (inclusive ? b.higherIndex(millis) : b.ceilingIndex(millis)) - 1;
+                if (i >= 0)
+                    return view(b, i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds a Task overlapping the time range given. Since Tasks never overlap, only the Task starting at or
+     * before the range and the first Task starting after it need to be looked at, so this takes O(log n)
+     * time. The structure lock must be held
+     * @param start start of the time range in milliseconds
+     * @param end end of the time range in milliseconds
+     * @return a Task overlapping the range, or null if there is none
+     */
+    private Task conflict(long start, long end) {
+        Task after = ceiling(start, true);
+        if (after != null && after.getSchedTime().getMillis() == start)
+            return after;
+        Task before = floor(start, false);
+        if (before != null && before.getSchedTimeEnd().getMillis() > start)
+            return before;
+        return after != null && after.getSchedTime().getMillis() < end ? after : null;
+    }
+
+    /**
+     * Checks whether the time range given overlaps any Task already in the store
+     * @param start start of the time range in milliseconds
+     * @param end end of the time range in milliseconds
+     * @return true if the range overlaps a Task in the store, false otherwise
+     */
+    @Override
+    public boolean conflicts(long start, long end) {
+        return conflicting(start, end) != null;
+    }
+
+    /**
+     * Finds a Task in the store overlapping the time range given, in O(log n) time
+     * @param start start of the time range in milliseconds
+     * @param end end of the time range in milliseconds
+     * @return a Task overlapping the range, or null if there is none
+     */
+    @Override
+    public Task conflicting(long start, long end) {
+        structureLock.readLock().lock();
+        try {
+            return conflict(start, end);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a Task to the store if it does not conflict with any Task already in it. The Task goes into its
+     * block under that block's lock, unless the block is full, in which case the whole store is locked while
+     * the block is split in two, or a new block is started when appending past the last one
+     * @param t Task to add
+     * @return true if the Task was added, false if it conflicts with another Task
+     */
+    @Override
+    public boolean add(Task t) {
+        long start = t.getSchedTime().getMillis();
+        long end = t.getSchedTimeEnd().getMillis();
+        structureLock.readLock().lock();
+        try {
+            if (conflict(start, end) != null)
+                return false;
+            Block b = blocks[blockIndex(start)];
+            synchronized (b) {
+                if (b.size < BLOCK_SIZE)
+                    return insert(b, t);
+            }
+        } finally {
+            structureLock.readLock().unlock();
+        }
+        structureLock.writeLock().lock();
+        try {
+            if (conflict(start, end) != null)
+                return false;
+            int k = blockIndex(start);
+            Block b = blocks[k];
+            if (b.size == BLOCK_SIZE) {
+                if (k == blockCount - 1 && b.ceilingIndex(start) == b.size) {
+                    insertBlock(k + 1, start, new Block(INITIAL_CAPACITY));
+                    k++;
+                } else {
+                    int half = BLOCK_SIZE / 2;
+                    insertBlock(k + 1, b.starts[half], b.split(half));
+                    if (start >= separators[k + 1])
+                        k++;
+                }
+                b = blocks[k];
+            }
+            return insert(b, t);
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Inserts a Task into a block with room for it. The block's lock or the structure write lock must be held
+     * @param b block to insert into
+     * @param t Task to insert
+     * @return true if the Task was inserted, false if a Task already starts then
+     */
+    private boolean insert(Block b, Task t) {
+        long start = t.getSchedTime().getMillis();
+        int i = b.ceilingIndex(start);
+        if (i < b.size && b.starts[i] == start)
+            return false;
+        b.insert(i, start, t.getSchedTimeEnd().getMillis(), pool.intern(t.getName()), pool.intern(t.getDescription()));
+        size.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Removes the Task with the same start time, duration, name and description as the one given, since the
+     * store keeps no Task objects to compare by identity. A block left empty, or left at a quarter full, is
+     * dropped or merged into a neighbour with room under the structure write lock
+     * @param t Task to remove
+     * @return true if a matching Task was in the store and has been removed, false otherwise
+     */
+    @Override
+    public boolean remove(Task t) {
+        long start = t.getSchedTime().getMillis();
+        boolean shrunk;
+        structureLock.readLock().lock();
+        try {
+            Block b = blocks[blockIndex(start)];
+            synchronized (b) {
+                int i = Arrays.binarySearch(b.starts, 0, b.size, start);
+                if (i < 0 || b.ends[i] != t.getSchedTimeEnd().getMillis() ||
+                        !pool.get(b.nameIds[i]).equals(t.getName()) ||
+                        !pool.get(b.descriptionIds[i]).equals(t.getDescription()))
+                    return false;
+                b.delete(i, 1);
+                size.decrementAndGet();
+                shrunk = b.size == 0 || b.size == MERGE_SIZE;
+            }
+        } finally {
+            structureLock.readLock().unlock();
+        }
+        if (shrunk) {
+            structureLock.writeLock().lock();
+            try {
+                merge(blockIndex(start));
+            } finally {
+                structureLock.writeLock().unlock();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Drops a block if it is empty, or merges it with a neighbour if both together fill at most half a block,
+     * so blocks left nearly empty by removals do not pile up. The structure write lock must be held
+     * @param k index of the block
+     */
+    private void merge(int k) {
+        if (blockCount == 1)
+            return;
+        Block b = blocks[k];
+        if (b.size == 0) {
+            deleteBlocks(k, 1);
+        } else if (k + 1 < blockCount && b.size + blocks[k + 1].size <= BLOCK_SIZE / 2) {
+            b.append(blocks[k + 1]);
+            deleteBlocks(k + 1, 1);
+        } else if (k > 0 && blocks[k - 1].size + b.size <= BLOCK_SIZE / 2) {
+            blocks[k - 1].append(b);
+            deleteBlocks(k, 1);
+        }
+    }
+
+    /**
+     * Removes every Task that ends at or before the time given, dropping whole blocks and shifting only the
+     * first block that is left
+     * @param millis time in milliseconds
+     * @return Tasks removed in ascending order of scheduled time
+     */
+    @Override
+    public List<Task> removeFinished(long millis) {
+        ArrayList<Task> removed = new ArrayList<>();
+        structureLock.writeLock().lock();
+        try {
+            int k = 0;
+            for (; k < blockCount; k++) {
+                Block b = blocks[k];
+                int count = 0;
+                while (count < b.size && b.ends[count] <= millis)
+                    removed.add(view(b, count++));
+                if (count < b.size) {
+                    b.delete(0, count);
+                    break;
+                }
+            }
+            if (k == blockCount) {
+                blocks[0] = new Block(INITIAL_CAPACITY);
+                blockCount = 1;
+            } else {
+                deleteBlocks(0, k);
+            }
+            size.addAndGet(-removed.size());
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+        return removed;
+    }
+
+    /**
+     * Inserts a block into the block index. The structure write lock must be held
+     * @param k index to insert the block at
+     * @param separator earliest start time the block takes
+     * @param b block to insert
+     */
+    private void insertBlock(int k, long separator, Block b) {
+        if (blockCount == blocks.length) {
+            int capacity = blockCount + (blockCount >> 1);
+            separators = Arrays.copyOf(separators, capacity);
+            blocks = Arrays.copyOf(blocks, capacity);
+        }
+        System.arraycopy(separators, k, separators, k + 1, blockCount - k);
+        System.arraycopy(blocks, k, blocks, k + 1, blockCount - k);
+        separators[k] = separator;
+        blocks[k] = b;
+        blockCount++;
+    }
+
+    /**
+     * Removes blocks from the block index, leaving the block before them to take their start times. The
+     * structure write lock must be held, and at least one block must be left
+     * @param k index of the first block to remove
+     * @param count number of blocks to remove
+     */
+    private void deleteBlocks(int k, int count) {
+        int moved = blockCount - k - count;
+        System.arraycopy(separators, k + count, separators, k, moved);
+        System.arraycopy(blocks, k + count, blocks, k, moved);
+        blockCount -= count;
+        Arrays.fill(blocks, blockCount, blockCount + count, null);
+        separators[0] = Long.MIN_VALUE;
+    }
+
+    /**
+     * Gets the Task scheduled to start at exactly the time given
+     * @param start start time in milliseconds
+     * @return view of the Task starting at that time, or null if there is none
+     */
+    @Override
+    public Task get(long start) {
+        structureLock.readLock().lock();
+        try {
+            Block b = blocks[blockIndex(start)];
+            synchronized (b) {
+                int i = Arrays.binarySearch(b.starts, 0, b.size, start);
+                return i >= 0 ? view(b, i) : null;
+            }
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the last Task starting strictly before the time given
+     * @param millis time in milliseconds
+     * @return view of the neighbouring Task before the time, or null if there is none
+     */
+    @Override
+    public Task before(long millis) {
+        structureLock.readLock().lock();
+        try {
+            return floor(millis, false);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the first Task starting strictly after the time given
+     * @param millis time in milliseconds
+     * @return view of the neighbouring Task after the time, or null if there is none
+     */
+    @Override
+    public Task after(long millis) {
+        structureLock.readLock().lock();
+        try {
+            return ceiling(millis, false);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets all Tasks overlapping a time range, including one that started before the range and is still going
+     * at its start, in O(log n + k) time for k Tasks found
+     * @param from start of the range in milliseconds
+     * @param to end of the range in milliseconds
+     * @return views of the Tasks overlapping the range in ascending order of scheduled time
+     */
+    @Override
+    public List<Task> range(long from, long to) {
+        ArrayList<Task> found = new ArrayList<>();
+        structureLock.readLock().lock();
+        try {
+            Task before = floor(from, false);
+            if (before != null && before.getSchedTimeEnd().getMillis() > from)
+                found.add(before);
+            collect(from, to, Integer.MAX_VALUE, found);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+        return found;
+    }
+
+    /**
+     * Gets one page of the Tasks starting within a time range, in O(log n + k) time for a page of k Tasks. To
+     * get the next page, pass the start of the last Task returned plus one millisecond as from
+     * @param from time in milliseconds the first Task returned starts at or after
+     * @param to time in milliseconds all Tasks returned start before
+     * @param limit maximum number of Tasks to return
+     * @return views of up to limit Tasks in ascending order of scheduled time
+     */
+    @Override
+    public List<Task> page(long from, long to, int limit) {
+        ArrayList<Task> found = new ArrayList<>(Math.min(limit, 1024));
+        structureLock.readLock().lock();
+        try {
+            collect(from, to, limit, found);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+        return found;
+    }
+
+    /**
+     * Adds views of the Tasks starting within a time range to a list, locking one block at a time. The
+     * structure lock must be held
+     * @param from time in milliseconds the first Task added starts at or after
+     * @param to time in milliseconds all Tasks added start before
+     * @param limit size the list may grow to
+     * @param found list to add the Tasks to
+     */
+    private void collect(long from, long to, int limit, List<Task> found) {
+        for (int k = blockIndex(from); k < blockCount && found.size() < limit; k++) {
+            Block b = blocks[k];
+            synchronized (b) {
+                for (int i = b.ceilingIndex(from); i < b.size && found.size() < limit; i++) {
+                    if (b.starts[i] >= to)
+                        return;
+                    found.add(view(b, i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the earliest scheduled Task in the store
+     * @return view of the earliest Task, or null if the store is empty
+     */
+    @Override
+    public Task first() {
+        structureLock.readLock().lock();
+        try {
+            return ceiling(Long.MIN_VALUE, true);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the latest scheduled Task in the store
+     * @return view of the latest Task, or null if the store is empty
+     */
+    @Override
+    public Task last() {
+        structureLock.readLock().lock();
+        try {
+            return floor(Long.MAX_VALUE, true);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of Tasks in the store
+     * @return number of Tasks
+     */
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Checks whether the store has no Tasks
+     * @return true if there are no Tasks, false otherwise
+     */
+    @Override
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    /**
+     * Removes all Tasks from the store, along with the strings pooled for them
+     */
+    @Override
+    public void clear() {
+        structureLock.writeLock().lock();
+        try {
+            Arrays.fill(blocks, 0, blockCount, null);
+            blocks[0] = new Block(INITIAL_CAPACITY);
+            blockCount = 1;
+            size.set(0);
+            pool.clear();
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Iterates over all Tasks in ascending order of scheduled time, building each view as it is reached
+     * @return iterator over the Tasks
+     */
+    @Override
+    public Iterator<Task> iterator() {
+        return new Iterator<Task>() {
+            private int block = 0;
+            private int next = 0;
+
+            /**
+             * Checks whether any Task is left, moving past blocks that have run out
+             * @return true if there is another Task, false otherwise
+             */
+            @Override
+            public boolean hasNext() {
+                structureLock.readLock().lock();
+                try {
+                    while (block < blockCount && next >= blocks[block].size) {
+                        block++;
+                        next = 0;
+                    }
+                    return block < blockCount;
+                } finally {
+                    structureLock.readLock().unlock();
+                }
+            }
+
+            /**
+             * Gets the next Task
+             * @return view of the next Task
+             * @throws NoSuchElementException if there are no Tasks left
+             */
+            @Override
+            public Task next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                structureLock.readLock().lock();
+                try {
+                    Block b = blocks[block];
+                    synchronized (b) {
+                        return view(b, next++);
+                    }
+                } finally {
+                    structureLock.readLock().unlock();
+                }
+            }
+        };
+    }
+
+    /**
+     * Block of up to BLOCK_SIZE Tasks, held as columns sorted by start time. Blocks are locked on themselves
+     */
+    private static class Block {
+        private long[] starts;
+        private long[] ends;
+        private int[] nameIds;
+        private int[] descriptionIds;
+        private int size;
+
+        /**
+         * Creates an empty block
+         * @param capacity number of Tasks the columns have room for before they grow
+         */
+        private Block(int capacity) {
+            starts = new long[capacity];
+            ends = new long[capacity];
+            nameIds = new int[capacity];
+            descriptionIds = new int[capacity];
+        }
+
+        /**
+         * Gets the index of the first Task starting at or after a time
+         * @param millis time in milliseconds
+         * @return index of the first such Task, or size if there is none
+         */
+        private int ceilingIndex(long millis) {
+            int i = Arrays.binarySearch(starts, 0, size, millis);
+            return i >= 0 ? i : -i - 1;
+        }
+
+        /**
+         * Gets the index of the first Task starting strictly after a time
+         * @param millis time in milliseconds
+         * @return index of the first such Task, or size if there is none
+         */
+        private int higherIndex(long millis) {
+            int i = Arrays.binarySearch(starts, 0, size, millis);
+            return i >= 0 ? i + 1 : -i - 1;
+        }
+
+        /**
+         * Grows the columns, by half again up to BLOCK_SIZE, so they have room for the number of Tasks given
+         * @param capacity number of Tasks to make room for
+         */
+        private void ensureCapacity(int capacity) {
+            if (capacity <= starts.length)
+                return;
+            capacity = Math.min(BLOCK_SIZE, Math.max(capacity, starts.length + (starts.length >> 1)));
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            nameIds = Arrays.copyOf(nameIds, capacity);
+            descriptionIds = Arrays.copyOf(descriptionIds, capacity);
+        }
+
+        /**
+         * Inserts a Task at an index, shifting the Tasks after it within this block
+         * @param i index to insert at
+         * @param start start time in milliseconds
+         * @param end end time in milliseconds
+         * @param nameId pooled id of the name
+         * @param descriptionId pooled id of the description
+         */
+        private void insert(int i, long start, long end, int nameId, int descriptionId) {
+            ensureCapacity(size + 1);
+            int moved = size - i;
+            if (moved > 0) {
+                System.arraycopy(starts, i, starts, i + 1, moved);
+                System.arraycopy(ends, i, ends, i + 1, moved);
+                System.arraycopy(nameIds, i, nameIds, i + 1, moved);
+                System.arraycopy(descriptionIds, i, descriptionIds, i + 1, moved);
+            }
+            starts[i] = start;
+            ends[i] = end;
+            nameIds[i] = nameId;
+            descriptionIds[i] = descriptionId;
+            size++;
+        }
+
+        /**
+         * Removes a run of Tasks, shifting the Tasks after them within this block
+         * @param i index of the first Task to remove
+         * @param count number of Tasks to remove
+         */
+        private void delete(int i, int count) {
+            int moved = size - i - count;
+            if (moved > 0) {
+                System.arraycopy(starts, i + count, starts, i, moved);
+                System.arraycopy(ends, i + count, ends, i, moved);
+                System.arraycopy(nameIds, i + count, nameIds, i, moved);
+                System.arraycopy(descriptionIds, i + count, descriptionIds, i, moved);
+            }
+            size -= count;
+        }
+
+        /**
+         * Moves the Tasks from an index on into a new block
+         * @param from index of the first Task to move
+         * @return new block holding the moved Tasks
+         */
+        private Block split(int from) {
+            int moved = size - from;
+            Block b = new Block(Math.max(moved, INITIAL_CAPACITY));
+            System.arraycopy(starts, from, b.starts, 0, moved);
+            System.arraycopy(ends, from, b.ends, 0, moved);
+            System.arraycopy(nameIds, from, b.nameIds, 0, moved);
+            System.arraycopy(descriptionIds, from, b.descriptionIds, 0, moved);
+            b.size = moved;
+            size = from;
+            return b;
+        }
+
+        /**
+         * Appends every Task of a block starting after all Tasks in this one
+         * @param b block to append
+         */
+        private void append(Block b) {
+            ensureCapacity(size + b.size);
+            System.arraycopy(b.starts, 0, starts, size, b.size);
+            System.arraycopy(b.ends, 0, ends, size, b.size);
+            System.arraycopy(b.nameIds, 0, nameIds, size, b.size);
+            System.arraycopy(b.descriptionIds, 0, descriptionIds, size, b.size);
+            size += b.size;
+        }
+    }
+
+    /**
+     * Pool holding each distinct string once, handing out an int id for it. Strings stay pooled until the
+     * store is cleared, which costs little since Task names and descriptions repeat heavily. Looking up a
+     * string already pooled takes no lock
+     */
+    private static class StringPool {
+        private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+        private volatile String[] strings = new String[INITIAL_CAPACITY];
+        private int count;
+
+        /**
+         * Gets the id of a string, adding it to the pool if it is not there yet
+         * @param s string to look up
+         * @return id of the string
+         */
+        private int intern(String s) {
+            Integer id = ids.get(s);
+            if (id != null)
+                return id;
+            synchronized (this) {
+                id = ids.get(s);
+                if (id == null) {
+                    String[] pooled = strings;
+                    if (count == pooled.length)
+                        pooled = Arrays.copyOf(pooled, count + (count >> 1));
+                    pooled[count] = s;
+                    strings = pooled;
+                    id = count++;
+                    ids.put(s, id);
+                }
+                return id;
+            }
+        }
+
+        /**
+         * Gets the string with an id
+         * @param id id of the string
+         * @return pooled string
+         */
+        private String get(int id) {
+            return strings[id];
+        }
+
+        /**
+         * Empties the pool
+         */
+        private synchronized void clear() {
+            ids.clear();
+            strings = new String[INITIAL_CAPACITY];
+            count = 0;
+        }
+    }
+
+}
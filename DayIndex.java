@@ -0,0 +1,224 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+public class DayIndex {
+
+    public static final int MAGIC = 0x53434458;
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private final long[] days;
+    private final long[] offsets;
+    private final long[] lastEnds;
+    private final int count;
+
+    /**
+     * Creates DayIndex from its columns, which Builder fills in
+     * @param days day number (see dayOf()) of each bucket, ascending
+     * @param offsets byte offset in the data file of the first line of each bucket
+     * @param lastEnds end time in milliseconds of the last Task in each bucket
+     * @param count number of buckets
+     */
+    private DayIndex(long[] days, long[] offsets, long[] lastEnds, int count) {
+        this.days = days;
+        this.offsets = offsets;
+        this.lastEnds = lastEnds;
+        this.count = count;
+    }
+
+    /**
+     * Gets the number of the day a time falls on, counting whole days since the epoch in UTC
+     * @param millis time in milliseconds
+     * @return day number
+     */
+    public static long dayOf(long millis) {
+        return Math.floorDiv(millis, DAY_MILLIS);
+    }
+
+    /**
+     * Gets the time a day starts at
+     * @param day day number
+     * @return start of the day in milliseconds
+     */
+    public static long startOfDay(long day) {
+        return day * DAY_MILLIS;
+    }
+
+    /**
+     * Gets the number of day buckets
+     * @return number of buckets
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Gets the day number of a bucket
+     * @param bucket index of the bucket
+     * @return day number of the bucket
+     */
+    public long getDay(int bucket) {
+        return days[bucket];
+    }
+
+    /**
+     * Gets the byte offset in the data file of a bucket's first line
+     * @param bucket index of the bucket
+     * @return byte offset of the bucket
+     */
+    public long getOffset(int bucket) {
+        return offsets[bucket];
+    }
+
+    /**
+     * Finds the first bucket on or after a day
+     * @param day day number
+     * @return index of the bucket, or size() if there is none
+     */
+    public int bucketAtOrAfter(long day) {
+        int i = Arrays.binarySearch(days, 0, count, day);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    /**
+     * Finds the first bucket holding a Task that ends after the time given. Tasks never overlap, so their end
+     * times are in the same order as their start times and every bucket before this one has finished
+     * @param millis time in milliseconds
+     * @return index of the bucket, or size() if every Task has finished
+     */
+    public int firstEndingAfter(long millis) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (lastEnds[mid] > millis)
+                high = mid;
+            else
+                low = mid + 1;
+        }
+        return low;
+    }
+
+    /**
+     * Writes the index to a file through a temporary file, stamped with the length and modification time of
+     * the data file it describes so that an index left over from an older data file is never used
+     * @param indexFile file to write the index to
+     * @param dataFile data file the index describes, already in its final place
+     * @throws IOException if the index could not be written
+     */
+    public void write(File indexFile, File dataFile) throws IOException {
+        File tempIndex = new File(indexFile.getPath() + ".tmp");
+        FileOutputStream fileOut = new FileOutputStream(tempIndex);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+            out.writeInt(MAGIC);
+            out.writeLong(dataFile.length());
+            out.writeLong(dataFile.lastModified());
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                out.writeLong(days[i]);
+                out.writeLong(offsets[i]);
+                out.writeLong(lastEnds[i]);
+            }
+            out.flush();
+            fileOut.getFD().sync();
+        } finally {
+            fileOut.close();
+        }
+        Files.move(tempIndex.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads an index written by write(), checking it still describes the data file
+     * @param indexFile file to read the index from
+     * @param dataFile data file the index should describe
+     * @return the index, or null if there is none, it is damaged, or the data file has changed since
+     */
+    public static DayIndex read(File indexFile, File dataFile) {
+        if (!indexFile.exists())
+            return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readLong() != dataFile.length() ||
+                    in.readLong() != dataFile.lastModified())
+                return null;
+            int count = in.readInt();
+            if (count < 0 || count > indexFile.length() / 24)
+                return null;
+            long[] days = new long[count];
+            long[] offsets = new long[count];
+            long[] lastEnds = new long[count];
+            for (int i = 0; i < count; i++) {
+                days[i] = in.readLong();
+                offsets[i] = in.readLong();
+                lastEnds[i] = in.readLong();
+            }
+            return new DayIndex(days, offsets, lastEnds, count);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Collects the buckets of a data file as it is written, one Task line at a time in ascending order of
+     * scheduled time
+     */
+    public static class Builder {
+        private long[] days = new long[16];
+        private long[] offsets = new long[16];
+        private long[] lastEnds = new long[16];
+        private int count;
+
+        /**
+         * Records a Task line, starting a new bucket if the Task starts on a later day than the one before it
+         * @param start start time of the Task in milliseconds
+         * @param end end time of the Task in milliseconds
+         * @param offset byte offset of the Task's line in the data file
+         */
+        public void add(long start, long end, long offset) {
+            long day = dayOf(start);
+            if (count == 0 || days[count - 1] != day) {
+                if (count == days.length) {
+                    int capacity = count + (count >> 1);
+                    days = Arrays.copyOf(days, capacity);
+                    offsets = Arrays.copyOf(offsets, capacity);
+                    lastEnds = Arrays.copyOf(lastEnds, capacity);
+                }
+                days[count] = day;
+                offsets[count] = offset;
+                count++;
+            }
+            lastEnds[count - 1] = end;
+        }
+
+        /**
+         * Records the buckets of another index from one bucket on, for lines copied over unchanged from the
+         * data file it describes
+         * @param index index of the file the lines were copied from
+         * @param from index of the first bucket copied
+         * @param shift number of bytes the lines moved by in the new file
+         */
+        public void addCopied(DayIndex index, int from, long shift) {
+            for (int i = from; i < index.count; i++) {
+                add(startOfDay(index.days[i]), index.lastEnds[i], index.offsets[i] + shift);
+            }
+        }
+
+        /**
+         * Builds the index of the buckets recorded so far
+         * @return new DayIndex
+         */
+        public DayIndex build() {
+            return new DayIndex(days, offsets, lastEnds, count);
+        }
+    }
+
+}
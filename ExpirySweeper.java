@@ -0,0 +1,80 @@
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class ExpirySweeper {
+
+    private static final long MINUTE_MILLIS = 60 * 1000L;
+
+    private final Iterable<Schedule> schedules;
+    private ScheduledExecutorService executor;
+
+    /**
+     * Creates ExpirySweeper removing finished Tasks from the Schedule given while it runs, so a long running
+     * process does not keep, print and save them until it restarts
+     * @param schedule Schedule to sweep
+     */
+    public ExpirySweeper(Schedule schedule) {
+        this(Collections.singletonList(schedule));
+    }
+
+    /**
+     * Creates ExpirySweeper removing finished Tasks from several Schedules on one thread, such as the calendars
+     * of a CalendarCatalog. The Schedules are iterated afresh on every sweep, so the Iterable may grow
+     * @param schedules Schedules to sweep
+     */
+    public ExpirySweeper(Iterable<Schedule> schedules) {
+        this.schedules = schedules;
+    }
+
+    /**
+     * Starts sweeping on a background thread, with a first sweep straight away. Tasks start and end on whole
+     * minutes, so after that the sweeper wakes just after each minute begins and removes every Task that ended
+     * by then in one batch (see Schedule.expireFinished()). Does nothing if the sweeper is already running
+     */
+    public synchronized void start() {
+        if (executor != null)
+            return;
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "expiry-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(this::sweep);
+        long now = System.currentTimeMillis();
+        long untilNextMinute = MINUTE_MILLIS - Math.floorMod(now, MINUTE_MILLIS);
+        executor.scheduleAtFixedRate(this::sweep, untilNextMinute, MINUTE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Removes the Tasks that have finished by now from each Schedule, reporting failures rather than letting
+     * them stop the sweeper or the Schedules after them
+     */
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        for (Schedule schedule : schedules) {
+            try {
+                schedule.expireFinished(now);
+            } catch (RuntimeException e) {
+                System.out.println("Unable to remove finished tasks!");
+            }
+        }
+    }
+
+    /**
+     * Stops sweeping, waiting for a sweep in progress to finish
+     */
+    public synchronized void close() {
+        if (executor == null)
+            return;
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+    }
+
+}
@@ -0,0 +1,347 @@
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class GapIndex {
+
+    private static final long MINUTE_MILLIS = 60 * 1000L;
+    private static final long OPEN_START = 0;
+
+    private final TreeMap<Long, Long> gaps = new TreeMap<>();
+    private final GapTree gapsByStart = new GapTree();
+
+    /**
+     * Creates GapIndex holding the free time between the Tasks given, plus the gaps before the first Task
+     * (back to 1970) and after the last one (with no end)
+     * @param tasks non-overlapping Tasks in ascending order of scheduled time
+     */
+    public GapIndex(Iterable<Task> tasks) {
+        long gapStart = OPEN_START;
+        for (Task t : tasks) {
+            addGap(gapStart, t.getSchedTime().getMillis());
+            gapStart = t.getSchedTimeEnd().getMillis();
+        }
+        addGap(gapStart, Long.MAX_VALUE);
+    }
+
+    /**
+     * Adds a gap to the index, ignoring empty ones
+     * @param start start of the gap in milliseconds
+     * @param end end of the gap in milliseconds
+     */
+    private void addGap(long start, long end) {
+        if (end <= start)
+            return;
+        gaps.put(start, end);
+        gapsByStart.put(start, end);
+    }
+
+    /**
+     * Removes a gap from the index
+     * @param start start of the gap in milliseconds
+     * @param end end of the gap in milliseconds
+     */
+    private void removeGap(long start, long end) {
+        gaps.remove(start);
+        gapsByStart.remove(start);
+    }
+
+    /**
+     * Marks the time taken by a newly added Task as no longer free, splitting the gap it was placed in
+     * @param t Task that was added
+     */
+    public synchronized void occupy(Task t) {
+        long start = t.getSchedTime().getMillis();
+        long end = t.getSchedTimeEnd().getMillis();
+        Map.Entry<Long, Long> gap = gaps.floorEntry(start);
+        if (gap == null || gap.getValue() < end)
+            return;
+        removeGap(gap.getKey(), gap.getValue());
+        addGap(gap.getKey(), start);
+        addGap(end, gap.getValue());
+    }
+
+    /**
+     * Marks the time taken by a deleted Task as free again, merging it with the gaps on either side
+     * @param t Task that was deleted
+     */
+    public synchronized void release(Task t) {
+        long start = t.getSchedTime().getMillis();
+        long end = t.getSchedTimeEnd().getMillis();
+        Map.Entry<Long, Long> before = gaps.lowerEntry(start);
+        if (before != null && before.getValue() == start) {
+            removeGap(before.getKey(), before.getValue());
+            start = before.getKey();
+        }
+        Long afterEnd = gaps.get(end);
+        if (afterEnd != null) {
+            removeGap(end, afterEnd);
+            end = afterEnd;
+        }
+        addGap(start, end);
+    }
+
+    /**
+     * Finds the earliest free slots of at least the duration given that start at or after a time. Only gaps
+     * long enough for the duration are visited: each is found by descending a tree of gaps ordered by start
+     * that keeps the length of the longest gap under every node, so runs of shorter gaps are skipped a whole
+     * subtree at a time and a query takes O((k + 1) log n) time for k slots. When working hours are given,
+     * slots are cut down to the part of each day between them, so gaps long enough but outside working hours
+     * are visited too, and a duration longer than working hours finds no slot
+     * @param afterMillis earliest start time in milliseconds, rounded up to a whole minute
+     * @param duration minimum length of a slot in minutes
+     * @param count maximum number of slots to find
+     * @param workStart start of working hours each day, or null for no limit
+     * @param workEnd end of working hours each day, or null for no limit
+     * @return up to count free slots in ascending order of start time
+     */
+    public synchronized List<TimeSlot> findFree(long afterMillis, int duration, int count,
+                                                LocalTime workStart, LocalTime workEnd) {
+        long after = Math.floorDiv(afterMillis + MINUTE_MILLIS - 1, MINUTE_MILLIS) * MINUTE_MILLIS;
+        long length = Math.max(1, duration * MINUTE_MILLIS);
+        ArrayList<TimeSlot> slots = new ArrayList<>();
+        if (!fitsWorkingHours(length, workStart, workEnd))
+            return slots;
+
+        Map.Entry<Long, Long> current = gaps.floorEntry(after);
+        if (current != null && current.getValue() > after)
+            addSlots(slots, after, current.getValue(), length, count, workStart, workEnd);
+
+        GapNode gap = gapsByStart.firstFit(after, length);
+        while (slots.size() < count && gap != null) {
+            addSlots(slots, gap.start, gap.end, length, count, workStart, workEnd);
+            gap = gapsByStart.firstFit(gap.start, length);
+        }
+        return slots;
+    }
+
+    /**
+     * Checks whether a slot of the length given can fit within working hours at all
+     * @param length length of the slot in milliseconds
+     * @param workStart start of working hours each day, or null for no limit
+     * @param workEnd end of working hours each day, or null for no limit
+     * @return true if there are no working hours or the slot fits between them, false otherwise
+     */
+    static boolean fitsWorkingHours(long length, LocalTime workStart, LocalTime workEnd) {
+        if (workStart == null || workEnd == null)
+            return true;
+        return workStart.isBefore(workEnd) && length <= Duration.between(workStart, workEnd).toMillis();
+    }
+
+    /**
+     * Adds the parts of a gap that can hold the length given to the list of slots, cutting the gap down to
+     * working hours if they are given. Days are only walked for Schedule.UNBOUNDED_CHECK_MILLIS past the start
+     * of the gap, so the gap after the last Task, which has no end, is not walked forever
+     * @param slots list of slots found so far
+     * @param start start of the gap in milliseconds
+     * @param end end of the gap in milliseconds
+     * @param length minimum length of a slot in milliseconds
+     * @param count maximum number of slots to find
+     * @param workStart start of working hours each day, or null for no limit
+     * @param workEnd end of working hours each day, or null for no limit
+     */
+    static void addSlots(List<TimeSlot> slots, long start, long end, long length, int count,
+                         LocalTime workStart, LocalTime workEnd) {
+        if (workStart == null || workEnd == null) {
+            if (end - start >= length)
+                slots.add(new TimeSlot(start, end));
+            return;
+        }
+        if (!fitsWorkingHours(length, workStart, workEnd))
+            return;
+        long limit = Math.min(end, start + Schedule.UNBOUNDED_CHECK_MILLIS);
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate day = Instant.ofEpochMilli(start).atZone(zone).toLocalDate();
+        while (slots.size() < count) {
+            long dayStart = day.atTime(workStart).atZone(zone).toInstant().toEpochMilli();
+            if (dayStart >= limit)
+                return;
+            long dayEnd = day.atTime(workEnd).atZone(zone).toInstant().toEpochMilli();
+            long slotStart = Math.max(start, dayStart);
+            long slotEnd = Math.min(end, dayEnd);
+            if (slotEnd - slotStart >= length)
+                slots.add(new TimeSlot(slotStart, slotEnd));
+            day = day.plusDays(1);
+        }
+    }
+
+    /**
+     * Gaps ordered by start time in a treap, a binary search tree kept balanced by giving each node a random
+     * priority that must not exceed its parent's. Each node also holds the length of the longest gap in its
+     * subtree, so the first gap after a time that is long enough for a slot can be found in O(log n) time
+     */
+    private static class GapTree {
+        private GapNode root;
+        private long seed = 0x9E3779B97F4A7C15L;
+
+        /**
+         * Adds a gap
+         * @param start start of the gap in milliseconds, not already in the tree
+         * @param end end of the gap in milliseconds
+         */
+        private void put(long start, long end) {
+            seed ^= seed << 13;
+            seed ^= seed >>> 7;
+            seed ^= seed << 17;
+            root = insert(root, new GapNode(start, end, (int) seed));
+        }
+
+        /**
+         * Removes a gap
+         * @param start start of the gap in milliseconds
+         */
+        private void remove(long start) {
+            root = remove(root, start);
+        }
+
+        /**
+         * Finds the first gap starting after a time that is at least the length given
+         * @param after time in milliseconds the gap must start after
+         * @param length minimum length of the gap in milliseconds
+         * @return the gap, or null if there is none
+         */
+        private GapNode firstFit(long after, long length) {
+            return firstFit(root, after, length);
+        }
+
+        /**
+         * Inserts a node into a subtree, rotating it up past parents of lower priority
+         * @param node root of the subtree
+         * @param added node to insert
+         * @return new root of the subtree
+         */
+        private static GapNode insert(GapNode node, GapNode added) {
+            if (node == null)
+                return added;
+            if (added.start < node.start) {
+                node.left = insert(node.left, added);
+                if (node.left.priority > node.priority) {
+                    GapNode left = node.left;
+                    node.left = left.right;
+                    left.right = node;
+                    node.update();
+                    left.update();
+                    return left;
+                }
+            } else {
+                node.right = insert(node.right, added);
+                if (node.right.priority > node.priority) {
+                    GapNode right = node.right;
+                    node.right = right.left;
+                    right.left = node;
+                    node.update();
+                    right.update();
+                    return right;
+                }
+            }
+            node.update();
+            return node;
+        }
+
+        /**
+         * Removes the node with the start given from a subtree, joining its children in its place
+         * @param node root of the subtree
+         * @param start start of the gap to remove in milliseconds
+         * @return new root of the subtree
+         */
+        private static GapNode remove(GapNode node, long start) {
+            if (node == null)
+                return null;
+            if (start < node.start)
+                node.left = remove(node.left, start);
+            else if (start > node.start)
+                node.right = remove(node.right, start);
+            else
+                return join(node.left, node.right);
+            node.update();
+            return node;
+        }
+
+        /**
+         * Joins two subtrees, every gap in the first starting before every gap in the second
+         * @param first earlier subtree
+         * @param second later subtree
+         * @return root of the joined subtree
+         */
+        private static GapNode join(GapNode first, GapNode second) {
+            if (first == null)
+                return second;
+            if (second == null)
+                return first;
+            if (first.priority > second.priority) {
+                first.right = join(first.right, second);
+                first.update();
+                return first;
+            }
+            second.left = join(first, second.left);
+            second.update();
+            return second;
+        }
+
+        /**
+         * Finds the first gap in a subtree starting after a time that is at least the length given. Subtrees
+         * with no gap that long are skipped without being visited, and only the nodes along the path to the
+         * time given are partly after it, so the search takes O(log n) time
+         * @param node root of the subtree
+         * @param after time in milliseconds the gap must start after
+         * @param length minimum length of the gap in milliseconds
+         * @return the gap, or null if there is none
+         */
+        private static GapNode firstFit(GapNode node, long after, long length) {
+            while (node != null && node.longest >= length) {
+                if (node.start > after) {
+                    GapNode found = firstFit(node.left, after, length);
+                    if (found != null)
+                        return found;
+                    if (node.end - node.start >= length)
+                        return node;
+                }
+                node = node.right;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Gap in a GapTree, with the length of the longest gap in its subtree
+     */
+    private static class GapNode {
+        private final long start;
+        private final long end;
+        private final int priority;
+        private long longest;
+        private GapNode left;
+        private GapNode right;
+
+        /**
+         * Creates GapNode based on params
+         * @param start start of the gap in milliseconds
+         * @param end end of the gap in milliseconds
+         * @param priority random priority of the node
+         */
+        private GapNode(long start, long end, int priority) {
+            this.start = start;
+            this.end = end;
+            this.priority = priority;
+            this.longest = end - start;
+        }
+
+        /**
+         * Recomputes the length of the longest gap in the subtree after its children change
+         */
+        private void update() {
+            longest = end - start;
+            if (left != null)
+                longest = Math.max(longest, left.longest);
+            if (right != null)
+                longest = Math.max(longest, right.longest);
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records how long one operation took. Latencies are counted in power of two buckets, bucket b holding
+     * those from 2^(b-1) up to 2^b - 1 nanoseconds (bucket 0 holds 0), so recording is lock free and the
+     * histogram takes constant space
+     * @param nanos latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long latency = Math.max(0, nanos);
+        buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(latency));
+        count.incrementAndGet();
+        totalNanos.addAndGet(latency);
+        maxNanos.accumulateAndGet(latency, Math::max);
+    }
+
+    /**
+     * Gets the number of operations recorded
+     * @return number of operations
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Gets the mean latency of the operations recorded
+     * @return mean latency in nanoseconds, or 0 if none were recorded
+     */
+    public long getMeanNanos() {
+        long n = count.get();
+        return n == 0 ? 0 : totalNanos.get() / n;
+    }
+
+    /**
+     * Gets the longest latency recorded
+     * @return longest latency in nanoseconds
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Gets an upper bound on a percentile of the latencies recorded, accurate to within a factor of two
+     * @param percentile percentile to get, from 0 to 100
+     * @return upper bound of the bucket holding the percentile in nanoseconds, or 0 if none were recorded
+     */
+    public long getPercentileNanos(double percentile) {
+        long n = count.get();
+        if (n == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(n * percentile / 100));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += buckets.get(b);
+            if (seen >= rank)
+                return Math.min(b == 0 ? 0 : (1L << b) - 1, maxNanos.get());
+        }
+        return maxNanos.get();
+    }
+
+}
@@ -0,0 +1,256 @@
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+public class RecurrenceRule {
+
+    /**
+     * How often a rule repeats
+     */
+    public enum Frequency {
+        DAILY, WEEKLY, MONTHLY
+    }
+
+    private static final String[] DAY_CODES = {"MO", "TU", "WE", "TH", "FR", "SA", "SU"};
+
+    private final Frequency frequency;
+    private final int interval;
+    private final Set<DayOfWeek> weekdays;
+    private final int count;
+    private final long untilMillis;
+
+    /**
+     * Creates RecurrenceRule based on params
+     * @param frequency whether the rule repeats every day, week or month
+     * @param interval number of days, weeks or months between repeats, at least 1
+     * @param weekdays days of the week a weekly rule falls on; empty for the weekday of the first occurrence
+     * @param count maximum number of occurrences, or 0 for no limit
+     * @param untilMillis time in milliseconds occurrences must start before, or Long.MAX_VALUE for no limit
+     */
+    public RecurrenceRule(Frequency frequency, int interval, Set<DayOfWeek> weekdays, int count, long untilMillis) {
+        if (interval < 1 || count < 0)
+            throw new TaskFormatException("Recurrence interval must be at least 1 and count must not be negative!");
+        this.frequency = frequency;
+        this.interval = interval;
+        this.weekdays = weekdays.isEmpty() ? EnumSet.noneOf(DayOfWeek.class) : EnumSet.copyOf(weekdays);
+        this.count = count;
+        this.untilMillis = untilMillis;
+    }
+
+    /**
+     * Creates RecurrenceRule based on a String in the format given by getData(), for example
+     * FREQ=WEEKLY;INTERVAL=1;DAYS=MO,WE;COUNT=10 or FREQ=DAILY;INTERVAL=2;UNTIL=12/31/30 11:59 PM
+     * @param data String containing all rule data
+     */
+    public RecurrenceRule(String data) {
+        Frequency freq = null;
+        int interval = 1;
+        EnumSet<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        int count = 0;
+        long until = Long.MAX_VALUE;
+        try {
+            for (String part : data.split(";")) {
+                int eq = part.indexOf('=');
+                String key = part.substring(0, eq);
+                String value = part.substring(eq + 1);
+                switch (key) {
+                    case "FREQ":
+                        freq = Frequency.valueOf(value);
+                        break;
+                    case "INTERVAL":
+                        interval = Integer.parseInt(value);
+                        break;
+                    case "DAYS":
+                        for (String code : value.split(","))
+                            days.add(dayOf(code));
+                        break;
+                    case "COUNT":
+                        count = Integer.parseInt(value);
+                        break;
+                    case "UNTIL":
+                        until = ScheduledTime.getInputMillis(value);
+                        break;
+                    default:
+                        throw new TaskFormatException();
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new TaskFormatException("Invalid recurrence rule: " + data);
+        }
+        if (freq == null || interval < 1 || count < 0)
+            throw new TaskFormatException("Invalid recurrence rule: " + data);
+        this.frequency = freq;
+        this.interval = interval;
+        this.weekdays = days;
+        this.count = count;
+        this.untilMillis = until;
+    }
+
+    /**
+     * Gets the day of the week for a two letter code such as MO
+     * @param code two letter day code
+     * @return day of the week
+     */
+    public static DayOfWeek dayOf(String code) {
+        for (int i = 0; i < DAY_CODES.length; i++) {
+            if (DAY_CODES[i].equalsIgnoreCase(code.trim()))
+                return DayOfWeek.of(i + 1);
+        }
+        throw new TaskFormatException("Unknown day of the week: " + code);
+    }
+
+    /**
+     * Gets the rule's frequency
+     * @return whether the rule repeats every day, week or month
+     */
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * Gets the maximum number of occurrences
+     * @return maximum number of occurrences, or 0 for no limit
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the time occurrences must start before
+     * @return time in milliseconds, or Long.MAX_VALUE for no limit
+     */
+    public long getUntilMillis() {
+        return untilMillis;
+    }
+
+    /**
+     * Checks whether the rule repeats forever
+     * @return true if the rule has neither a count nor an until limit
+     */
+    public boolean isUnbounded() {
+        return count == 0 && untilMillis == Long.MAX_VALUE;
+    }
+
+    /**
+     * Gets the days within each period an occurrence falls on, as offsets from the start of the period.
+     * Weekly periods start on the Monday of the first occurrence's week
+     * @param firstDate date of the first occurrence
+     * @return sorted day offsets within a period
+     */
+    int[] periodOffsets(LocalDate firstDate) {
+        if (frequency != Frequency.WEEKLY)
+            return new int[] {0};
+        Set<DayOfWeek> days = weekdays.isEmpty() ? EnumSet.of(firstDate.getDayOfWeek()) : weekdays;
+        int[] offsets = new int[days.size()];
+        int i = 0;
+        for (DayOfWeek d : days)
+            offsets[i++] = d.getValue() - 1;
+        return offsets;
+    }
+
+    /**
+     * Gets the fewest days between the starts of two consecutive occurrences: the gaps between a weekly rule's
+     * days within a week and across to the next period, and for a monthly rule the shortest span of months over
+     * a four year cycle, since months and February vary in length
+     * @param firstDate date of the first occurrence
+     * @return fewest days between consecutive occurrences
+     */
+    long shortestGapDays(LocalDate firstDate) {
+        int[] offsets = periodOffsets(firstDate);
+        long shortest = Long.MAX_VALUE;
+        for (int i = 1; i < offsets.length; i++)
+            shortest = Math.min(shortest, offsets[i] - offsets[i - 1]);
+        int periods = frequency == Frequency.MONTHLY ? 48 : 1;
+        for (long period = 0; period < periods; period++) {
+            LocalDate lastInPeriod = periodStart(firstDate, period).plusDays(offsets[offsets.length - 1]);
+            LocalDate firstInNext = periodStart(firstDate, period + 1).plusDays(offsets[0]);
+            shortest = Math.min(shortest, ChronoUnit.DAYS.between(lastInPeriod, firstInNext));
+        }
+        return shortest;
+    }
+
+    /**
+     * Gets the first day of a period
+     * @param firstDate date of the first occurrence
+     * @param period number of the period, counting from 0
+     * @return first day of the period
+     */
+    LocalDate periodStart(LocalDate firstDate, long period) {
+        switch (frequency) {
+            case DAILY:
+                return firstDate.plusDays(period * interval);
+            case WEEKLY:
+                return firstDate.minusDays(firstDate.getDayOfWeek().getValue() - 1).plusWeeks(period * interval);
+            default:
+                return firstDate.plusMonths(period * interval);
+        }
+    }
+
+    /**
+     * Gets the number of the latest period starting on or before a date, so iteration can jump straight to it
+     * @param firstDate date of the first occurrence
+     * @param date date to look up
+     * @return number of the period, or 0 if the date is before the first period
+     */
+    long periodAt(LocalDate firstDate, LocalDate date) {
+        long units;
+        switch (frequency) {
+            case DAILY:
+                units = ChronoUnit.DAYS.between(firstDate, date);
+                break;
+            case WEEKLY:
+                units = ChronoUnit.WEEKS.between(periodStart(firstDate, 0), date);
+                break;
+            default:
+                units = ChronoUnit.MONTHS.between(firstDate, date);
+                break;
+        }
+        return Math.max(0, Math.floorDiv(units, interval));
+    }
+
+    /**
+     * Gets all rule data in single String
+     * @return String containing rule data
+     */
+    public String getData() {
+        StringBuilder data = new StringBuilder("FREQ=").append(frequency).append(";INTERVAL=").append(interval);
+        if (!weekdays.isEmpty()) {
+            List<String> codes = new ArrayList<>();
+            for (DayOfWeek d : weekdays)
+                codes.add(DAY_CODES[d.getValue() - 1]);
+            data.append(";DAYS=").append(String.join(",", codes));
+        }
+        if (count > 0)
+            data.append(";COUNT=").append(count);
+        if (untilMillis != Long.MAX_VALUE)
+            data.append(";UNTIL=").append(new ScheduledTime(untilMillis).dateTimeStr());
+        return data.toString();
+    }
+
+    /**
+     * Gets a nicely formatted description of the rule, such as "every 2 weeks on MO,WE, 10 times"
+     * @return description of the rule
+     */
+    @Override
+    public String toString() {
+        String unit = frequency == Frequency.DAILY ? "day" : frequency == Frequency.WEEKLY ? "week" : "month";
+        StringBuilder desc = new StringBuilder("every ");
+        desc.append(interval == 1 ? unit : interval + " " + unit + "s");
+        if (!weekdays.isEmpty()) {
+            List<String> codes = new ArrayList<>();
+            for (DayOfWeek d : weekdays)
+                codes.add(DAY_CODES[d.getValue() - 1]);
+            desc.append(" on ").append(String.join(",", codes));
+        }
+        if (count > 0)
+            desc.append(", ").append(count).append(" times");
+        if (untilMillis != Long.MAX_VALUE)
+            desc.append(", until ").append(new ScheduledTime(untilMillis).dateTimeStr());
+        return desc.toString();
+    }
+
+}
@@ -0,0 +1,476 @@
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+public class RecurringTask {
+
+    private static final long MINUTE_MILLIS = 60 * 1000L;
+
+    private final Task first;
+    private final RecurrenceRule rule;
+    private final ConcurrentSkipListSet<Long> skipped = new ConcurrentSkipListSet<>();
+    private final ConcurrentSkipListMap<Long, Long> moved = new ConcurrentSkipListMap<>();
+
+    /**
+     * Creates RecurringTask repeating a Task by a rule. Occurrences have the Task's name, description, time of
+     * day and duration, and are only worked out when asked for, so a series of any length is stored once
+     * @param first Task for the first occurrence
+     * @param rule rule saying when the Task repeats
+     * @throws TaskFormatException if an occurrence would overlap the next one
+     */
+    public RecurringTask(Task first, RecurrenceRule rule) {
+        this.first = first;
+        this.rule = rule;
+        checkGaps();
+    }
+
+    /**
+     * Creates RecurringTask based on a String containing all its data: the Task data for the first occurrence,
+     * followed by ||rule|| and the rule data, then optionally ||skip|| and the original start times of skipped
+     * occurrences separated by ;, and ||move|| and original>new start time pairs separated by ;
+     * @param data String containing all RecurringTask data
+     * @throws TaskFormatException if the data is not in that format, or an occurrence would overlap the next one
+     */
+    public RecurringTask(String data) {
+        int ruleIndex = data.indexOf("||rule||");
+        if (ruleIndex == -1)
+            throw new TaskFormatException();
+        int skipIndex = data.indexOf("||skip||", ruleIndex);
+        int moveIndex = data.indexOf("||move||", ruleIndex);
+        int ruleEnd = skipIndex != -1 ? skipIndex : moveIndex != -1 ? moveIndex : data.length();
+        this.first = new Task(data.substring(0, ruleIndex));
+        this.rule = new RecurrenceRule(data.substring(ruleIndex + 8, ruleEnd));
+        checkGaps();
+        if (skipIndex != -1) {
+            String skips = data.substring(skipIndex + 8, moveIndex != -1 ? moveIndex : data.length());
+            for (String skip : skips.split(";")) {
+                if (!skip.equals(""))
+                    skipped.add(ScheduledTime.getInputMillis(skip));
+            }
+        }
+        if (moveIndex != -1) {
+            for (String move : data.substring(moveIndex + 8).split(";")) {
+                if (move.equals(""))
+                    continue;
+                int arrow = move.indexOf('>');
+                if (arrow == -1)
+                    throw new TaskFormatException();
+                moved.put(ScheduledTime.getInputMillis(move.substring(0, arrow)),
+                        ScheduledTime.getInputMillis(move.substring(arrow + 1)));
+            }
+        }
+    }
+
+    /**
+     * Checks that no occurrence runs into the next one, which would break the rule that Tasks never overlap
+     * that conflict checks and free time searches rely on. The shortest gap between occurrences is counted
+     * an hour short, as a daylight saving change can shorten a day by that much
+     * @throws TaskFormatException if the duration is longer than the shortest gap between occurrences
+     */
+    private void checkGaps() {
+        if (rule.getCount() == 1)
+            return;
+        LocalDate firstDate = Instant.ofEpochMilli(first.getSchedTime().getMillis()).atZone(ZoneId.systemDefault())
+                .toLocalDate();
+        long gapMinutes = rule.shortestGapDays(firstDate) * 24 * 60 - 60;
+        if (first.getDuration() > gapMinutes)
+            throw new TaskFormatException("Recurring task duration must be at most " + gapMinutes +
+                    " minutes so occurrences do not overlap!");
+    }
+
+    /**
+     * Gets the Task for the first occurrence, which holds the series' name, description and duration
+     * @return Task for the first occurrence
+     */
+    public Task getFirst() {
+        return first;
+    }
+
+    /**
+     * Gets the rule saying when the Task repeats
+     * @return recurrence rule
+     */
+    public RecurrenceRule getRule() {
+        return rule;
+    }
+
+    /**
+     * Gets all RecurringTask data in single String
+     * @return String containing RecurringTask data
+     */
+    public String getData() {
+        StringBuilder data = new StringBuilder(first.getData()).append("||rule||").append(rule.getData());
+        if (!skipped.isEmpty()) {
+            List<String> skips = new ArrayList<>();
+            for (long start : skipped)
+                skips.add(new ScheduledTime(start).dateTimeStr());
+            data.append("||skip||").append(String.join(";", skips));
+        }
+        if (!moved.isEmpty()) {
+            List<String> moves = new ArrayList<>();
+            for (Map.Entry<Long, Long> move : moved.entrySet())
+                moves.add(new ScheduledTime(move.getKey()).dateTimeStr() + ">" + new ScheduledTime(move.getValue()).dateTimeStr());
+            data.append("||move||").append(String.join(";", moves));
+        }
+        return data.toString();
+    }
+
+    /**
+     * Checks whether an occurrence of the rule starts at the time given, ignoring skips and moves
+     * @param startMillis start time in milliseconds
+     * @return true if the rule has an occurrence starting then
+     */
+    public boolean hasOccurrenceAt(long startMillis) {
+        Iterator<Long> it = new StartIterator(startMillis, startMillis + 1);
+        return it.hasNext() && it.next() == startMillis;
+    }
+
+    /**
+     * Skips a single occurrence, so the series leaves that time free
+     * @param startMillis original start time of the occurrence
+     * @return true if there is such an occurrence and it was not already skipped
+     */
+    public boolean skip(long startMillis) {
+        if (!hasOccurrenceAt(startMillis))
+            return false;
+        moved.remove(startMillis);
+        return skipped.add(startMillis);
+    }
+
+    /**
+     * Moves a single occurrence to a new start time, keeping its duration
+     * @param startMillis original start time of the occurrence
+     * @param newStartMillis new start time for the occurrence
+     * @return true if there is such an occurrence and it has not been skipped
+     */
+    public boolean move(long startMillis, long newStartMillis) {
+        if (!hasOccurrenceAt(startMillis) || skipped.contains(startMillis))
+            return false;
+        if (startMillis == newStartMillis)
+            moved.remove(startMillis);
+        else
+            moved.put(startMillis, newStartMillis);
+        return true;
+    }
+
+    /**
+     * Gets the new start time of a moved occurrence
+     * @param startMillis original start time of the occurrence
+     * @return new start time in milliseconds, or null if the occurrence has not been moved
+     */
+    public Long getMove(long startMillis) {
+        return moved.get(startMillis);
+    }
+
+    /**
+     * Checks whether every occurrence has finished by the time given
+     * @param currMillis current time in milliseconds
+     * @return true if no occurrence ends after currMillis
+     */
+    public boolean isFinished(long currMillis) {
+        return !occurrences(currMillis, Long.MAX_VALUE).hasNext();
+    }
+
+    /**
+     * Gets the occurrences overlapping a time range, working each out only when the iterator reaches it.
+     * Skipped occurrences are left out and moved ones appear at their new time
+     * @param from start of the range in milliseconds
+     * @param to end of the range in milliseconds
+     * @return iterator over the occurrences in ascending order of scheduled time
+     */
+    public Iterator<Task> occurrences(long from, long to) {
+        long duration = first.getDuration() * MINUTE_MILLIS;
+        ArrayList<Task> movedInRange = new ArrayList<>();
+        for (Map.Entry<Long, Long> move : moved.entrySet()) {
+            long start = move.getValue();
+            if (start < to && start + duration > from && !skipped.contains(move.getKey()))
+                movedInRange.add(occurrence(start));
+        }
+        movedInRange.sort(null);
+        StartIterator starts = new StartIterator(from - duration, to);
+        return new Iterator<Task>() {
+            private Task nextRegular = advance();
+            private int movedIndex = 0;
+
+            /**
+             * Works out the next regular occurrence that is neither skipped nor moved
+             * @return next regular occurrence, or null if there is none in the range
+             */
+            private Task advance() {
+                while (starts.hasNext()) {
+                    long start = starts.next();
+                    if (start + duration > from && !skipped.contains(start) && !moved.containsKey(start))
+                        return occurrence(start);
+                }
+                return null;
+            }
+
+            /**
+             * Checks whether any occurrence is left, regular or moved
+             * @return true if there is another occurrence, false otherwise
+             */
+            @Override
+            public boolean hasNext() {
+                return nextRegular != null || movedIndex < movedInRange.size();
+            }
+
+            /**
+             * Gets the earlier of the next regular occurrence and the next moved one
+             * @return next occurrence
+             * @throws NoSuchElementException if there are no occurrences left
+             */
+            @Override
+            public Task next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                if (nextRegular != null && (movedIndex == movedInRange.size() ||
+                        nextRegular.compareTo(movedInRange.get(movedIndex)) <= 0)) {
+                    Task t = nextRegular;
+                    nextRegular = advance();
+                    return t;
+                }
+                return movedInRange.get(movedIndex++);
+            }
+        };
+    }
+
+    /**
+     * Gets the first occurrence overlapping a time range
+     * @param from start of the range in milliseconds
+     * @param to end of the range in milliseconds
+     * @return first occurrence overlapping the range, or null if there is none
+     */
+    public Task conflicting(long from, long to) {
+        Iterator<Task> it = occurrences(from, to);
+        while (it.hasNext()) {
+            Task t = it.next();
+            if (t.getSchedTime().getMillis() < to && t.getSchedTimeEnd().getMillis() > from)
+                return t;
+        }
+        return null;
+    }
+
+    /**
+     * Finds the first pair of overlapping occurrences of two series within a time range, stepping through
+     * both series' occurrences together
+     * @param a one series
+     * @param b other series
+     * @param from start of the range in milliseconds
+     * @param to end of the range in milliseconds
+     * @return the overlapping occurrences of a and b, or null if none overlap within the range
+     */
+    public static Task[] overlap(RecurringTask a, RecurringTask b, long from, long to) {
+        Iterator<Task> itA = a.occurrences(from, to);
+        Iterator<Task> itB = b.occurrences(from, to);
+        Task x = itA.hasNext() ? itA.next() : null;
+        Task y = itB.hasNext() ? itB.next() : null;
+        while (x != null && y != null) {
+            if (x.getSchedTime().getMillis() < y.getSchedTimeEnd().getMillis() &&
+                    y.getSchedTime().getMillis() < x.getSchedTimeEnd().getMillis())
+                return new Task[] {x, y};
+            if (x.getSchedTimeEnd().getMillis() <= y.getSchedTimeEnd().getMillis())
+                x = itA.hasNext() ? itA.next() : null;
+            else
+                y = itB.hasNext() ? itB.next() : null;
+        }
+        return null;
+    }
+
+    /**
+     * Gets the occurrences of several series overlapping a time range, merged into one iterator in ascending
+     * order of scheduled time. Each series is only expanded as far as the iterator has reached
+     * @param series series to merge
+     * @param from start of the range in milliseconds
+     * @param to end of the range in milliseconds
+     * @return iterator over the occurrences of every series
+     */
+    public static Iterator<Task> merged(Iterable<RecurringTask> series, long from, long to) {
+        PriorityQueue<OccurrenceCursor> cursors = new PriorityQueue<>();
+        for (RecurringTask r : series) {
+            OccurrenceCursor cursor = new OccurrenceCursor(r.occurrences(from, to));
+            if (cursor.advance())
+                cursors.add(cursor);
+        }
+        return new Iterator<Task>() {
+            /**
+             * Checks whether any series has an occurrence left
+             * @return true if there is another occurrence, false otherwise
+             */
+            @Override
+            public boolean hasNext() {
+                return !cursors.isEmpty();
+            }
+
+            /**
+             * Gets the earliest next occurrence of any series
+             * @return next occurrence
+             * @throws NoSuchElementException if there are no occurrences left
+             */
+            @Override
+            public Task next() {
+                OccurrenceCursor cursor = cursors.poll();
+                if (cursor == null)
+                    throw new NoSuchElementException();
+                Task t = cursor.current;
+                if (cursor.advance())
+                    cursors.add(cursor);
+                return t;
+            }
+        };
+    }
+
+    /**
+     * Creates the Task for an occurrence starting at the time given
+     * @param startMillis start time in milliseconds
+     * @return Task for the occurrence
+     */
+    private Task occurrence(long startMillis) {
+        return new Task(first.getName(), first.getDescription(), new ScheduledTime(startMillis), first.getDuration());
+    }
+
+    /**
+     * Gets a nicely formatted description of the series, such as "Standup (9:00 AM - 9:15 AM) every day from
+     * 2/15/21 9:00 AM"
+     * @return description of the series
+     */
+    @Override
+    public String toString() {
+        return first.getName() + " (" + first.getSchedTime().timeStr() + " - " + first.getSchedTimeEnd().timeStr() +
+                ") " + rule + ", from " + first.getSchedTime().dateTimeStr();
+    }
+
+    /**
+     * Iterates over the start times the rule gives, ignoring skips and moves, from the first one starting
+     * at or after a time up to an end time. Starts by jumping to the period holding the start time rather than
+     * stepping through every period before it, and keeps count of occurrences so COUNT limits hold
+     */
+    private class StartIterator implements Iterator<Long> {
+        private final long to;
+        private final ZoneId zone = ZoneId.systemDefault();
+        private final LocalDate firstDate;
+        private final LocalTime timeOfDay;
+        private final int[] offsets;
+        private final int skippedInFirstPeriod;
+        private long period;
+        private int offsetIndex;
+        private Long next;
+
+        /**
+         * Creates StartIterator over the start times in a range
+         * @param from time in milliseconds the first start time returned is at or after
+         * @param to time in milliseconds all start times returned are before
+         */
+        private StartIterator(long from, long to) {
+            this.to = Math.min(to, rule.getUntilMillis());
+            long firstMillis = first.getSchedTime().getMillis();
+            firstDate = Instant.ofEpochMilli(firstMillis).atZone(zone).toLocalDate();
+            timeOfDay = Instant.ofEpochMilli(firstMillis).atZone(zone).toLocalTime();
+            offsets = rule.periodOffsets(firstDate);
+            int before = 0;
+            LocalDate firstPeriod = rule.periodStart(firstDate, 0);
+            for (int offset : offsets) {
+                if (firstPeriod.plusDays(offset).isBefore(firstDate))
+                    before++;
+            }
+            skippedInFirstPeriod = before;
+            LocalDate fromDate = Instant.ofEpochMilli(Math.max(from, firstMillis)).atZone(zone).toLocalDate();
+            period = Math.max(0, rule.periodAt(firstDate, fromDate) - 1);
+            offsetIndex = 0;
+            next = find(Math.max(from, firstMillis));
+        }
+
+        /**
+         * Steps forward to the first start time at or after the time given
+         * @param from time in milliseconds
+         * @return first start time at or after from, or null if there is none before the end of the range
+         */
+        private Long find(long from) {
+            while (true) {
+                if (offsetIndex == offsets.length) {
+                    period++;
+                    offsetIndex = 0;
+                }
+                long ordinal = period * offsets.length + offsetIndex - skippedInFirstPeriod;
+                LocalDate date = rule.periodStart(firstDate, period).plusDays(offsets[offsetIndex]);
+                offsetIndex++;
+                if (ordinal < 0 || date.isBefore(firstDate))
+                    continue;
+                if (rule.getCount() > 0 && ordinal >= rule.getCount())
+                    return null;
+                long start = date.atTime(timeOfDay).atZone(zone).toInstant().toEpochMilli();
+                if (start >= to)
+                    return null;
+                if (start >= from)
+                    return start;
+            }
+        }
+
+        /**
+         * Checks whether any start time is left in the range
+         * @return true if there is another start time, false otherwise
+         */
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        /**
+         * Gets the next start time and steps forward to the one after it
+         * @return next start time in milliseconds
+         * @throws NoSuchElementException if there are no start times left
+         */
+        @Override
+        public Long next() {
+            if (next == null)
+                throw new NoSuchElementException();
+            long start = next;
+            next = find(start + 1);
+            return start;
+        }
+    }
+
+    /**
+     * Position within one series' occurrences, ordered by the occurrence it is on
+     */
+    private static class OccurrenceCursor implements Comparable<OccurrenceCursor> {
+        private final Iterator<Task> it;
+        private Task current;
+
+        /**
+         * Creates OccurrenceCursor over the occurrences given
+         * @param it iterator over occurrences in ascending order of scheduled time
+         */
+        private OccurrenceCursor(Iterator<Task> it) {
+            this.it = it;
+        }
+
+        /**
+         * Moves to the next occurrence
+         * @return true if there was one, false if the occurrences ran out
+         */
+        private boolean advance() {
+            current = it.hasNext() ? it.next() : null;
+            return current != null;
+        }
+
+        /**
+         * Compares this OccurrenceCursor to other to determine ascending order of the occurrences they are on
+         * @param other other OccurrenceCursor to compare this OccurrenceCursor to
+         * @return negative number, positive number, or 0 depending on order of scheduled times
+         */
+        @Override
+        public int compareTo(OccurrenceCursor other) {
+            return current.compareTo(other.current);
+        }
+    }
+
+}
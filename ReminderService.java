@@ -0,0 +1,481 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ReminderService {
+
+    private static final long MINUTE_MILLIS = 60 * 1000L;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final int ARM_AHEAD_MINUTES = 24 * 60;
+    private static final int PAGE_SIZE = 1000;
+
+    private final Schedule schedule;
+    private final int minutesBefore;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Timer[][] wheel = new Timer[LEVELS][SLOTS];
+    private final HashMap<Long, Timer> armed = new HashMap<>();
+    private long currentTick = Long.MIN_VALUE;
+    private long armedUntil = Long.MIN_VALUE;
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong missed = new AtomicLong();
+    private ScheduledExecutorService executor;
+
+    /**
+     * Receives reminders, for example by printing them, logging them or passing them on to another program
+     */
+    public interface Listener {
+
+        /**
+         * Called on the reminder thread when a Task's reminder is due. Listeners are called one after another,
+         * so one that blocks delays the others
+         * @param t Task starting soon
+         * @param remindMillis time in milliseconds the reminder was due, which is earlier than now if it was
+         *                     delivered late, such as at startup
+         */
+        void remind(Task t, long remindMillis);
+    }
+
+    /**
+     * Creates ReminderService delivering a reminder to its listeners a number of minutes before each Task in
+     * a Schedule starts, once start() is called. Reminders are held in a hierarchical timing wheel of LEVELS
+     * levels of SLOTS slots each, ticking once a minute since Tasks start on whole minutes: level 0 holds the
+     * reminders due within SLOTS minutes, one slot per minute, and each level above holds SLOTS times as long
+     * per slot, its slots moved down a level as the wheel reaches them. Arming or cancelling a reminder is a
+     * constant time insert or unlink, and a tick only visits the reminders due then and the slot moved down.
+     * Only the Tasks starting within a day beyond the reminder time are armed, read a minute at a time from
+     * the Schedule as the day moves on, so memory and startup work depend on how many Tasks start soon rather
+     * than on how many there are
+     * @param schedule Schedule whose Tasks to remind about
+     * @param minutesBefore how many minutes before each Task starts to remind about it, 0 for when it starts
+     */
+    public ReminderService(Schedule schedule, int minutesBefore) {
+        this.schedule = schedule;
+        this.minutesBefore = Math.max(0, minutesBefore);
+    }
+
+    /**
+     * Adds a listener to deliver reminders to
+     * @param listener listener to add
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener so it gets no more reminders
+     * @param listener listener to remove
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Gets the text of a reminder about a Task, shared by the listeners below
+     * @param t Task starting soon
+     * @return reminder text
+     */
+    public static String message(Task t) {
+        return "Reminder: " + t.getName() + " starts at " + t.getSchedTime().dateTimeStr() + " - " +
+                t.getDescription();
+    }
+
+    /**
+     * Gets a listener printing reminders to the console
+     * @return listener
+     */
+    public static Listener console() {
+        return (t, remindMillis) -> System.out.println("\n" + message(t));
+    }
+
+    /**
+     * Gets a listener appending reminders to a log file, one line each, starting with the time they were due
+     * @param fileName name of the log file
+     * @return listener
+     */
+    public static Listener logFile(String fileName) {
+        return new Listener() {
+            /**
+             * Appends a reminder to the log file, one reminder at a time
+             * @param t Task starting soon
+             * @param remindMillis time in milliseconds the reminder was due
+             */
+            @Override
+            public synchronized void remind(Task t, long remindMillis) {
+                try (Writer out = new FileWriter(fileName, true)) {
+                    out.write(new ScheduledTime(remindMillis).dateTimeStr() + " " + message(t) + "\n");
+                } catch (IOException e) {
+                    System.out.println("Unable to write " + fileName + "!");
+                }
+            }
+        };
+    }
+
+    /**
+     * Gets a listener sending each reminder as a line of Task data, in the data file format, to a program
+     * listening on a local port
+     * @param port local port to connect to
+     * @return listener
+     */
+    public static Listener socket(int port) {
+        return (t, remindMillis) -> {
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+                 Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+                out.write("REMIND|" + t.getData() + "\n");
+            } catch (IOException e) {
+                System.out.println("Unable to send reminder to port " + port + "!");
+            }
+        };
+    }
+
+    /**
+     * Starts delivering reminders on a background thread, with a first tick straight away that arms the Tasks
+     * starting soon and delivers late any reminder already due for a Task that has not started yet. After that
+     * the thread wakes just after each minute begins. The Schedule calls taskAdded() and taskRemoved() as it
+     * changes from now on. Does nothing if the service is already running
+     */
+    public synchronized void start() {
+        if (executor != null)
+            return;
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reminder-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        schedule.setReminders(this);
+        executor.execute(this::run);
+    }
+
+    /**
+     * Runs a tick at the current time, then schedules the next one just after the next minute begins. Each
+     * tick schedules the next rather than running at a fixed rate, so a tick never runs just before a minute
+     * begins and misses it
+     */
+    private void run() {
+        try {
+            tick(System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            System.out.println("Unable to deliver reminders!");
+        }
+        synchronized (this) {
+            if (executor == null || executor.isShutdown())
+                return;
+            long untilNextMinute = MINUTE_MILLIS - Math.floorMod(System.currentTimeMillis(), MINUTE_MILLIS);
+            executor.schedule(this::run, untilNextMinute + 1, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Advances the wheel to the time given and delivers every reminder due by then. Normally this is one
+     * minute on from the last tick. After the clock jumps back, or forward by more than SLOTS minutes, such as
+     * when the computer wakes from sleep, the armed reminders are put back into the wheel from the time given
+     * instead of ticking through every minute in between, so catching up costs the same however long the
+     * jump. Reminders that fell due during a jump are delivered late if their Task has not started yet, and
+     * counted as missed otherwise; Tasks that started during a jump without ever being armed are skipped
+     * without being read
+     * @param nowMillis current time in milliseconds
+     * @return number of reminders delivered
+     */
+    public int tick(long nowMillis) {
+        long nowTick = Math.floorDiv(nowMillis, MINUTE_MILLIS);
+        ArrayList<Timer> due = new ArrayList<>();
+        synchronized (this) {
+            if (currentTick == Long.MIN_VALUE)
+                currentTick = nowTick;
+            else if (nowTick < currentTick - 1 || nowTick - currentTick >= SLOTS)
+                rewind(nowTick);
+            arm(nowTick, false);
+            while (currentTick <= nowTick)
+                advance(due);
+        }
+        int count = 0;
+        for (Timer timer : due) {
+            Task curr = schedule.taskAt(timer.startMillis);
+            if (curr == null || !sameTask(curr, timer.task))
+                continue;
+            if (timer.startMillis < nowTick * MINUTE_MILLIS) {
+                missed.incrementAndGet();
+                continue;
+            }
+            for (Listener listener : listeners) {
+                try {
+                    listener.remind(curr, timer.tick * MINUTE_MILLIS);
+                } catch (RuntimeException e) {
+                    System.out.println("Unable to deliver reminder!");
+                }
+            }
+            delivered.incrementAndGet();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Arms the Tasks starting from where the last call stopped, or from the current minute if that is later,
+     * up to a day beyond the reminder time, reading them from the Schedule a page at a time. The Schedule must
+     * not call into this service while holding its own locks, as this reads from it while holding this one
+     * @param nowTick current minute
+     * @param onlyFuture true to skip Tasks whose reminder is already past, false to arm them to be delivered
+     *                   late at the next tick
+     */
+    private void arm(long nowTick, boolean onlyFuture) {
+        long from = Math.max(armedUntil, nowTick * MINUTE_MILLIS);
+        long to = (nowTick + minutesBefore + ARM_AHEAD_MINUTES) * MINUTE_MILLIS;
+        while (from < to) {
+            List<Task> page = schedule.tasksPage(from, to, PAGE_SIZE);
+            for (Task t : page) {
+                if (!onlyFuture || reminderTick(t) >= currentTick)
+                    arm(t);
+            }
+            if (page.size() < PAGE_SIZE)
+                break;
+            from = page.get(page.size() - 1).getSchedTime().getMillis() + 1;
+        }
+        armedUntil = Math.max(armedUntil, to);
+    }
+
+    /**
+     * Gets the minute a Task's reminder is due
+     * @param t Task to remind about
+     * @return minute of the reminder
+     */
+    private long reminderTick(Task t) {
+        return Math.floorDiv(t.getSchedTime().getMillis(), MINUTE_MILLIS) - minutesBefore;
+    }
+
+    /**
+     * Arms a reminder for a Task, replacing one armed for a different Task at the same start time. A reminder
+     * already past is delivered at the next tick
+     * @param t Task to remind about
+     */
+    private void arm(Task t) {
+        long startMillis = t.getSchedTime().getMillis();
+        Timer timer = armed.get(startMillis);
+        if (timer != null) {
+            if (sameTask(timer.task, t))
+                return;
+            unlink(timer);
+        }
+        timer = new Timer(t, startMillis, reminderTick(t));
+        armed.put(startMillis, timer);
+        insert(timer);
+    }
+
+    /**
+     * Checks whether two Tasks starting at the same time are the same Task, without formatting their data
+     * @param a one Task
+     * @param b other Task
+     * @return true if the Tasks have the same name, description and duration
+     */
+    private static boolean sameTask(Task a, Task b) {
+        return a == b || (a.getDuration() == b.getDuration() && a.getName().equals(b.getName()) &&
+                a.getDescription().equals(b.getDescription()));
+    }
+
+    /**
+     * Puts a reminder into the slot of the lowest level whose span reaches the minute it is due, counting
+     * from the current tick, as in the classic hierarchical timing wheel. A reminder already past goes into
+     * the current tick's slot
+     * @param timer reminder to insert
+     */
+    private void insert(Timer timer) {
+        long due = Math.max(timer.tick, currentTick);
+        long ahead = due - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && ahead >= 1L << (SLOT_BITS * (level + 1)))
+            level++;
+        int slot = (int) ((due >> (SLOT_BITS * level)) & SLOT_MASK);
+        timer.level = level;
+        timer.slot = slot;
+        timer.prev = null;
+        timer.next = wheel[level][slot];
+        if (timer.next != null)
+            timer.next.prev = timer;
+        wheel[level][slot] = timer;
+    }
+
+    /**
+     * Takes a reminder out of its slot in constant time
+     * @param timer reminder to remove
+     */
+    private void unlink(Timer timer) {
+        if (timer.prev == null)
+            wheel[timer.level][timer.slot] = timer.next;
+        else
+            timer.prev.next = timer.next;
+        if (timer.next != null)
+            timer.next.prev = timer.prev;
+        timer.prev = null;
+        timer.next = null;
+    }
+
+    /**
+     * Processes the current tick, then moves on to the next. When the current tick begins a new turn of level
+     * 0, the slot of level 1 for the coming turn is first moved down into level 0, and likewise up the levels
+     * @param due list to add the reminders due at the tick to
+     */
+    private void advance(List<Timer> due) {
+        int slot = (int) (currentTick & SLOT_MASK);
+        for (int level = 1; slot == 0 && level < LEVELS; level++) {
+            slot = (int) ((currentTick >> (SLOT_BITS * level)) & SLOT_MASK);
+            Timer timer = wheel[level][slot];
+            wheel[level][slot] = null;
+            while (timer != null) {
+                Timer next = timer.next;
+                insert(timer);
+                timer = next;
+            }
+        }
+        slot = (int) (currentTick & SLOT_MASK);
+        Timer timer = wheel[0][slot];
+        wheel[0][slot] = null;
+        while (timer != null) {
+            Timer next = timer.next;
+            if (timer.tick <= currentTick) {
+                armed.remove(timer.startMillis);
+                due.add(timer);
+            } else {
+                insert(timer);
+            }
+            timer = next;
+        }
+        currentTick++;
+    }
+
+    /**
+     * Puts every armed reminder back into the wheel from a new current tick, for when the clock jumps
+     * @param nowTick new current minute
+     */
+    private void rewind(long nowTick) {
+        currentTick = nowTick;
+        for (Timer[] level : wheel)
+            Arrays.fill(level, null);
+        for (Timer timer : armed.values())
+            insert(timer);
+    }
+
+    /**
+     * Arms a reminder for a Task just added to the Schedule, if it starts within the part of the Schedule
+     * already armed; later Tasks are armed when the wheel reaches them. Called by the Schedule after it
+     * releases its locks
+     * @param t Task added
+     */
+    public synchronized void taskAdded(Task t) {
+        if (t.getSchedTime().getMillis() < armedUntil)
+            arm(t);
+    }
+
+    /**
+     * Cancels the reminder for a Task just removed from the Schedule, such as one deleted or moved to another
+     * time. Called by the Schedule after it releases its locks
+     * @param t Task removed
+     */
+    public synchronized void taskRemoved(Task t) {
+        Timer timer = armed.get(t.getSchedTime().getMillis());
+        if (timer != null && sameTask(timer.task, t)) {
+            armed.remove(timer.startMillis);
+            unlink(timer);
+        }
+    }
+
+    /**
+     * Cancels every reminder and arms them again from the Schedule, for when its Tasks were replaced wholesale
+     * by a load or merge. Reminders already past are not delivered again. Called by the Schedule after it
+     * releases its locks; does nothing before the first tick
+     */
+    public synchronized void reload() {
+        if (currentTick == Long.MIN_VALUE)
+            return;
+        for (Timer[] level : wheel)
+            Arrays.fill(level, null);
+        armed.clear();
+        armedUntil = Long.MIN_VALUE;
+        arm(currentTick - 1, true);
+    }
+
+    /**
+     * Gets the number of reminders armed in the wheel
+     * @return number of reminders armed
+     */
+    public synchronized int getArmed() {
+        return armed.size();
+    }
+
+    /**
+     * Gets the number of reminders delivered so far
+     * @return number of reminders delivered
+     */
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    /**
+     * Gets the number of reminders that fell due while the clock jumped past their Task's start, and so were
+     * never delivered
+     * @return number of reminders missed
+     */
+    public long getMissed() {
+        return missed.get();
+    }
+
+    /**
+     * Stops delivering reminders, waiting for a tick in progress to finish, and stops the Schedule calling in
+     */
+    public void close() {
+        ScheduledExecutorService stopping;
+        synchronized (this) {
+            if (executor == null)
+                return;
+            stopping = executor;
+            executor = null;
+        }
+        schedule.setReminders(null);
+        stopping.shutdown();
+        try {
+            stopping.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reminder for one Task, linked into the list of the wheel slot it sits in
+     */
+    private static class Timer {
+        private final Task task;
+        private final long startMillis;
+        private final long tick;
+        private int level;
+        private int slot;
+        private Timer prev;
+        private Timer next;
+
+        /**
+         * Creates Timer based on params
+         * @param task Task to remind about
+         * @param startMillis start time of the Task in milliseconds
+         * @param tick minute the reminder is due
+         */
+        private Timer(Task task, long startMillis, long tick) {
+            this.task = task;
+            this.startMillis = startMillis;
+            this.tick = tick;
+        }
+    }
+
+}
@@ -1,100 +1,1470 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.management.JMException;
 
 public class Schedule {
 
-    private static ArrayList<Task> tasks = new ArrayList<>();
+    private static final String DATA_FILE = "data.txt";
+    private static final String DEFAULT_CALENDAR = "data";
+    private static final int MIN_COMPACT_RECORDS = 1000;
+    private static final int LOCK_STRIPES = 64;
+    private static final long MINUTE_MILLIS = 60 * 1000L;
+    private static final long DAY_MILLIS = 24 * 60 * MINUTE_MILLIS;
+    private static final LocalTime WORK_START = LocalTime.of(9, 0);
+    private static final LocalTime WORK_END = LocalTime.of(17, 0);
+    private static final int PAGE_SIZE = 50;
+    private static final int DEFAULT_LOAD_WINDOW_DAYS = 14;
+    private static final int UNBOUNDED_CHECK_YEARS = 5;
+    static final long UNBOUNDED_CHECK_MILLIS = UNBOUNDED_CHECK_YEARS * 366 * DAY_MILLIS;
+
+    private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String dataFile;
+    private final TaskJournal journal;
+    private final String journalFile;
+    private final String recurringFile;
+    private final String archiveFile;
+    private final String indexFile;
+    private final String searchFile;
+    private final CopyOnWriteArrayList<RecurringTask> recurring = new CopyOnWriteArrayList<>();
+    private final ScheduleMetrics metrics = new ScheduleMetrics(this);
+    private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+    private final ReentrantLock[] dayLocks = new ReentrantLock[LOCK_STRIPES];
+    private final boolean compact;
+    private volatile TaskStore tasks;
+    private volatile GapIndex gaps;
+    private volatile boolean binaryData = false;
+    private volatile boolean archiving = false;
+    private volatile int loadWindowDays = 0;
+    private volatile DayIndex dayIndex;
+    private volatile SearchIndex search;
+    private volatile ReminderService reminders;
+    private volatile long loadedTo = Long.MAX_VALUE;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private volatile CompletableFuture<Void> compaction;
+
+    /**
+     * Creates an empty Schedule persisted to the data file given, with its journal and recurring Tasks kept
+     * beside it (data.txt is journaled to data.journal, its recurring Tasks are saved to data.recurring,
+     * finished Tasks are archived to data.archive if archiving is on, a text data file's day index is kept in
+     * data.idx, and the keyword index is kept in data.search once searched). Call load() with the same file name
+     * to read it in
+     * @param dataFile name of the file this Schedule's Tasks are saved to
+     */
+    public Schedule(String dataFile) {
+        this(dataFile, false);
+    }
+
+    /**
+     * Creates an empty Schedule in the same way as Schedule(dataFile), choosing how Tasks are held in memory
+     * @param dataFile name of the file this Schedule's Tasks are saved to
+     * @param compact true to hold Tasks in a CompactTaskStore, which suits schedules of millions of Tasks,
+     *                false to hold them in a TaskIndex, which lets changes on different days run in parallel
+     */
+    public Schedule(String dataFile, boolean compact) {
+        this.dataFile = dataFile;
+        this.compact = compact;
+        this.tasks = newStore();
+        this.gaps = new GapIndex(tasks);
+        this.journalFile = siblingFile(dataFile, ".journal");
+        this.journal = new TaskJournal(journalFile);
+        this.recurringFile = siblingFile(dataFile, ".recurring");
+        this.archiveFile = siblingFile(dataFile, ".archive");
+        this.indexFile = siblingFile(dataFile, ".idx");
+        this.searchFile = siblingFile(dataFile, ".search");
+        for (int i = 0; i < LOCK_STRIPES; i++)
+            dayLocks[i] = new ReentrantLock();
+    }
+
+    /**
+     * Gets the name of a file kept beside a data file, by swapping the data file's .txt extension for another
+     * @param dataFile name of the data file
+     * @param extension extension of the other file, including the dot
+     * @return name of the other file
+     */
+    public static String siblingFile(String dataFile, String extension) {
+        String base = dataFile.endsWith(".txt") ? dataFile.substring(0, dataFile.length() - 4) : dataFile;
+        return base + extension;
+    }
+
+    /**
+     * Gets the name of the file this Schedule's Tasks are saved to
+     * @return name of the data file
+     */
+    public String getDataFile() {
+        return dataFile;
+    }
+
+    /**
+     * Sets whether finished Tasks are appended to the archive file beside the data file when they are removed,
+     * rather than discarded. Set it before calling load(), so Tasks that finished while the program was not
+     * running are archived too
+     * @param archiving true to archive finished Tasks, false to discard them
+     */
+    public void setArchiving(boolean archiving) {
+        this.archiving = archiving;
+    }
+
+    /**
+     * Sets how many days ahead load() reads from a text data file, so startup takes the same time however many
+     * Tasks lie further ahead. The rest of the file is paged in from disk, a window at a time, when a query
+     * or change first reaches it, using the day index saved beside the data file with every snapshot (see
+     * DayIndex). Without a valid index the whole file is read. Set it before calling load()
+     * @param days number of days from today to load, or 0 to load the whole data file
+     */
+    public void setLoadWindow(int days) {
+        this.loadWindowDays = Math.max(0, days);
+    }
+
+    /**
+     * Pages in the part of the data file left unread by a windowed load, so that every Task starting before
+     * the time given is in memory. Does nothing once the whole file is loaded, which is checked without
+     * locking. Callers must not hold the snapshot lock
+     * @param millis time in milliseconds every Task starting before must be loaded
+     * @return true if those Tasks are all loaded, false if the data file could not be read
+     */
+    private boolean ensureLoaded(long millis) {
+        if (millis <= loadedTo)
+            return true;
+        snapshotLock.writeLock().lock();
+        try {
+            if (millis <= loadedTo)
+                return true;
+            long fromDay = DayIndex.dayOf(loadedTo);
+            long untilDay = millis == Long.MAX_VALUE ? Long.MAX_VALUE :
+                    Math.max(DayIndex.dayOf(millis - 1) + 1, fromDay + Math.max(1, loadWindowDays));
+            long keepAfter = archiving ? Long.MIN_VALUE : (new Date()).getTime();
+            readDays(dayIndex, dayIndex.bucketAtOrAfter(fromDay), untilDay, keepAfter, tasks, gaps);
+            loadedTo = untilDay > dayIndex.getDay(dayIndex.size() - 1) ? Long.MAX_VALUE : DayIndex.startOfDay(untilDay);
+            return true;
+        } catch (IOException e) {
+            metrics.recordError("io", dataFile, 0, e.toString());
+            System.out.println("Unable to read " + dataFile + "!");
+            return false;
+        } catch (TaskFormatException e) {
+            metrics.recordError("format", dataFile, 0, e.getMessage());
+            System.out.println(e.getMessage());
+            return false;
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reads the Tasks of a run of day buckets from the data file into a store, starting at a bucket's offset
+     * and stopping at the first Task on or after the day given
+     * @param index day index of the data file
+     * @param fromBucket index of the first bucket to read
+     * @param untilDay day number to stop reading at
+     * @param keepAfter time in milliseconds; Tasks that finished by then are left out
+     * @param store store to add the Tasks to
+     * @param gapIndex gap index to record the Tasks in, or null if it will be built from the store afterwards
+     * @return number of lines read
+     * @throws IOException if the data file could not be read
+     * @throws TaskFormatException if a line is not a valid Task
+     */
+    private int readDays(DayIndex index, int fromBucket, long untilDay, long keepAfter, TaskStore store,
+                         GapIndex gapIndex) throws IOException {
+        if (fromBucket >= index.size() || index.getDay(fromBucket) >= untilDay)
+            return 0;
+        int lines = 0;
+        try (FileInputStream in = new FileInputStream(dataFile)) {
+            in.getChannel().position(index.getOffset(fromBucket));
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, Charset.defaultCharset()));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Task t = TaskRecordParser.parse(line, 0, line.length(), dataFile, 0);
+                if (DayIndex.dayOf(t.getSchedTime().getMillis()) >= untilDay)
+                    break;
+                lines++;
+                if (keepAfter < t.getSchedTimeEnd().getMillis() && store.add(t) && gapIndex != null)
+                    gapIndex.occupy(t);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Creates an empty store of the kind this Schedule holds its Tasks in
+     * @return new empty store
+     */
+    private TaskStore newStore() {
+        return compact ? new CompactTaskStore() : new TaskIndex();
+    }
+
+    /**
+     * Gets the metrics recorded for this Schedule, which can be published over JMX with register()
+     * @return metrics for this Schedule
+     */
+    public ScheduleMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets the number of Tasks in this Schedule that are in memory, which leaves out those not yet paged in
+     * after a windowed load (see setLoadWindow())
+     * @return number of Tasks
+     */
+    public int size() {
+        return tasks.size();
+    }
+
+    /**
+     * Gets the Task starting at exactly the time given
+     * @param startMillis start time in milliseconds
+     * @return Task starting at that time, or null if there is none
+     */
+    public Task taskAt(long startMillis) {
+        ensureLoaded(startMillis + 1);
+        return tasks.get(startMillis);
+    }
+
+    /**
+     * Gets all Tasks overlapping a time range
+     * @param from start of the range in milliseconds
+     * @param to end of the range in milliseconds
+     * @return Tasks overlapping the range in ascending order of scheduled time
+     */
+    public List<Task> tasksBetween(long from, long to) {
+        ensureLoaded(to);
+        return tasks.range(from, to);
+    }
+
+    /**
+     * Gets one page of the Tasks starting within a time range, in O(log n + k) time for a page of k Tasks. To
+     * get the next page, pass the start of the last Task returned plus one millisecond as from. Days not yet
+     * paged in are read a window at a time until the page is full
+     * @param from time in milliseconds the first Task returned starts at or after
+     * @param to time in milliseconds all Tasks returned start before
+     * @param limit maximum number of Tasks to return
+     * @return up to limit Tasks in ascending order of scheduled time
+     */
+    public List<Task> tasksPage(long from, long to, int limit) {
+        while (true) {
+            long loaded = loadedTo;
+            List<Task> page = tasks.page(from, to, limit);
+            if (loaded >= to || page.size() == limit || !ensureLoaded(Math.max(loaded, from) + 1))
+                return page;
+        }
+    }
+
+    /**
+     * Finds the Tasks starting within a time range whose name or description contains every word of a query,
+     * ignoring case; a word ending with * matches any word starting with it, so "dent* check" finds "Dentist
+     * checkup". The words are looked up in a SearchIndex rather than by scanning Tasks, so a query takes
+     * milliseconds however many Tasks there are. Recurring Tasks are not searched. To get the next page, pass
+     * the start of the last Task returned plus one millisecond as from
+     * @param query words to search for
+     * @param from time in milliseconds the first Task returned starts at or after
+     * @param to time in milliseconds all Tasks returned start before
+     * @param limit maximum number of Tasks to return, or 0 for no limit
+     * @return matching Tasks in ascending order of scheduled time, or none if the query has no words
+     */
+    public List<Task> search(String query, long from, long to, int limit) {
+        long[] ids = searchIndex().search(query, from, to, limit);
+        ArrayList<Task> found = new ArrayList<>(ids.length);
+        if (ids.length == 0 || !ensureLoaded(ids[ids.length - 1] + 1))
+            return found;
+        for (long id : ids) {
+            Task t = tasks.get(id);
+            if (t != null)
+                found.add(t);
+        }
+        return found;
+    }
+
+    /**
+     * Gets the keyword index, building it on first use if load() found none saved beside the data file that
+     * matches it. Building it needs every Task, so the rest of the data file is paged in first, and a snapshot
+     * is then written so the index saved with it matches the data file and is read back by the next load()
+     * @return keyword index of this Schedule's Tasks
+     */
+    private SearchIndex searchIndex() {
+        SearchIndex words = search;
+        if (words != null)
+            return words;
+        ensureLoaded(Long.MAX_VALUE);
+        snapshotLock.writeLock().lock();
+        try {
+            if (search == null) {
+                search = SearchIndex.build(tasks);
+                writeSnapshot();
+            }
+            return search;
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the earliest time at or after the time given, rounded up to a whole minute, at which a Task of the
+     * duration given would not conflict with any other Task
+     * @param afterMillis earliest allowed start time in milliseconds
+     * @param duration duration of the Task in minutes
+     * @return start time of the earliest free slot in milliseconds, or -1 if none could be found (see
+     *         findFreeSlots())
+     */
+    public long findFreeSlot(long afterMillis, int duration) {
+        List<TimeSlot> slots = findFreeSlots(afterMillis, duration, 1, null, null);
+        return slots.isEmpty() ? -1 : slots.get(0).getStartMillis();
+    }
+
+    /**
+     * Finds the earliest free slots at least as long as the duration given, starting at or after the time
+     * given, using the gap index kept up to date as Tasks are added and deleted (see GapIndex). When there are
+     * recurring Tasks, each gap is split around their occurrences, which are only worked out for the gaps
+     * visited. Searches give up after UNBOUNDED_CHECK_YEARS years, in case recurring Tasks fill every gap. After
+     * a windowed load, days are paged in until every slot found lies within the loaded days, and slots are cut
+     * off at the end of them
+     * @param afterMillis earliest allowed start time in milliseconds
+     * @param duration minimum length of a slot in minutes
+     * @param count maximum number of slots to find
+     * @param workStart start of working hours each day, or null to allow any time of day
+     * @param workEnd end of working hours each day, or null to allow any time of day
+     * @return up to count free slots in ascending order of start time
+     */
+    public List<TimeSlot> findFreeSlots(long afterMillis, int duration, int count, LocalTime workStart, LocalTime workEnd) {
+        long length = Math.max(1, duration * MINUTE_MILLIS);
+        while (true) {
+            long loaded = loadedTo;
+            List<TimeSlot> slots = findLoadedFreeSlots(afterMillis, duration, count, workStart, workEnd);
+            if (loaded == Long.MAX_VALUE)
+                return slots;
+            long needed = slots.isEmpty() ? Long.MAX_VALUE : slots.get(slots.size() - 1).getStartMillis() + length;
+            if (needed <= loaded) {
+                ArrayList<TimeSlot> cut = new ArrayList<>(slots.size());
+                for (TimeSlot slot : slots)
+                    cut.add(new TimeSlot(slot.getStartMillis(), Math.min(slot.getEndMillis(), loaded)));
+                return cut;
+            }
+            if (!ensureLoaded(needed))
+                return slots;
+        }
+    }
+
+    /**
+     * Finds free slots for findFreeSlots() among the Tasks in memory
+     * @param afterMillis earliest allowed start time in milliseconds
+     * @param duration minimum length of a slot in minutes
+     * @param count maximum number of slots to find
+     * @param workStart start of working hours each day, or null to allow any time of day
+     * @param workEnd end of working hours each day, or null to allow any time of day
+     * @return up to count free slots in ascending order of start time
+     */
+    private List<TimeSlot> findLoadedFreeSlots(long afterMillis, int duration, int count, LocalTime workStart,
+                                               LocalTime workEnd) {
+        if (recurring.isEmpty())
+            return gaps.findFree(afterMillis, duration, count, workStart, workEnd);
+        long length = Math.max(1, duration * MINUTE_MILLIS);
+        long limit = afterMillis + UNBOUNDED_CHECK_MILLIS;
+        ArrayList<TimeSlot> slots = new ArrayList<>();
+        long after = afterMillis;
+        while (slots.size() < count && after < limit) {
+            List<TimeSlot> candidates = gaps.findFree(after, duration, count, workStart, workEnd);
+            if (candidates.isEmpty())
+                break;
+            for (TimeSlot gap : candidates) {
+                splitAroundRecurring(slots, gap.getStartMillis(), gap.getEndMillis(), length, count, limit);
+                if (slots.size() == count)
+                    break;
+            }
+            TimeSlot lastCandidate = candidates.get(candidates.size() - 1);
+            if (lastCandidate.getEndMillis() == Long.MAX_VALUE)
+                break;
+            after = lastCandidate.getEndMillis();
+        }
+        return slots;
+    }
+
+    /**
+     * Adds the parts of a gap between Tasks that no occurrence of a recurring Task falls in, and that can
+     * hold the length given, to the list of slots. Occurrences of every series are merged in start order
+     * @param slots list of slots found so far
+     * @param start start of the gap in milliseconds
+     * @param end end of the gap in milliseconds
+     * @param length minimum length of a slot in milliseconds
+     * @param count maximum number of slots to find
+     * @param limit time in milliseconds to stop looking for slots at
+     */
+    private void splitAroundRecurring(List<TimeSlot> slots, long start, long end, long length, int count, long limit) {
+        Iterator<Task> occurrences = RecurringTask.merged(recurring, start, end);
+        long cursor = start;
+        while (slots.size() < count && cursor < limit) {
+            Task t = occurrences.hasNext() ? occurrences.next() : null;
+            long freeEnd = t == null ? end : Math.min(end, t.getSchedTime().getMillis());
+            if (freeEnd - cursor >= length)
+                slots.add(new TimeSlot(cursor, freeEnd));
+            if (t == null)
+                return;
+            cursor = Math.max(cursor, t.getSchedTimeEnd().getMillis());
+            if (cursor >= end)
+                return;
+        }
+    }
+
+    /**
+     * Checks whether a name can be used for a Task: it must not be empty or contain the | character,
+     * which separates fields in the data file
+     * @param name Task name to check
+     * @return true if the name is valid, false otherwise
+     */
+    public static boolean isValidName(String name) {
+        return !name.equals("") && name.indexOf('|') == -1;
+    }
+
+    /**
+     * Checks whether a description can be used for a Task: it may be empty, but must not contain the |
+     * character, which separates fields in the data file
+     * @param description Task description to check
+     * @return true if the description is valid, false otherwise
+     */
+    public static boolean isValidDescription(String description) {
+        return description.indexOf('|') == -1;
+    }
+
+    /**
+     * Checks a Task against the same rules newTask() enforces on what the user enters: a valid name and
+     * description, a start time in the future and a duration of more than 0 minutes. Conflicts with other
+     * Tasks are checked by addTask()
+     * @param t Task to check
+     * @return description of the first rule the Task breaks, or null if it is valid
+     */
+    public static String validate(Task t) {
+        if (!isValidName(t.getName()))
+            return "Task name must not be empty or use the | character";
+        if (!isValidDescription(t.getDescription()))
+            return "Task description must not use the | character";
+        if (t.getSchedTime().getMillis() < (new Date()).getTime())
+            return "Task must be scheduled for a future date and time";
+        if (t.getDuration() <= 0)
+            return "Task duration must be higher than 0 minutes";
+        return null;
+    }
+
+    /**
+     * Adds a Task if it does not conflict with any other Task or any occurrence of a recurring Task, and
+     * journals the change. Adds and deletes lock only the stripes for the days the Task covers, so changes on
+     * different days run in parallel, while any two overlapping Tasks share at least one day and so can never
+     * both be added. Recurring Tasks only change under the snapshot lock, so they hold still during the check
+     * @param t Task to add
+     * @return true if the Task was added, false if it conflicts with another Task
+     */
+    public boolean addTask(Task t) {
+        long startNanos = System.nanoTime();
+        ensureLoaded(t.getSchedTimeEnd().getMillis());
+        int[] stripes = lockDays(t);
+        boolean added;
+        try {
+            added = recurringConflict(t.getSchedTime().getMillis(), t.getSchedTimeEnd().getMillis()) == null &&
+                    tasks.add(t);
+            if (added) {
+                gaps.occupy(t);
+                SearchIndex words = search;
+                if (words != null)
+                    words.add(t);
+                logChange(t, true);
+            }
+        } finally {
+            unlockDays(stripes);
+        }
+        metrics.recordAdd(System.nanoTime() - startNanos, !added);
+        if (added) {
+            ReminderService service = reminders;
+            if (service != null)
+                service.taskAdded(t);
+            compactIfNeeded();
+        }
+        return added;
+    }
+
+    /**
+     * Removes a Task and journals the change
+     * @param t Task to remove
+     * @return true if the Task was removed, false if it was not in this Schedule
+     */
+    public boolean removeTask(Task t) {
+        ensureLoaded(t.getSchedTime().getMillis() + 1);
+        int[] stripes = lockDays(t);
+        boolean removed;
+        try {
+            removed = tasks.remove(t);
+            if (removed) {
+                gaps.release(t);
+                SearchIndex words = search;
+                if (words != null)
+                    words.remove(t);
+                logChange(t, false);
+            }
+        } finally {
+            unlockDays(stripes);
+        }
+        if (removed) {
+            ReminderService service = reminders;
+            if (service != null)
+                service.taskRemoved(t);
+            compactIfNeeded();
+        }
+        return removed;
+    }
+
+    /**
+     * Gets the first occurrence of any recurring Task overlapping a time range
+     * @param from start of the range in milliseconds
+     * @param to end of the range in milliseconds
+     * @return first overlapping occurrence, or null if there is none
+     */
+    private Task recurringConflict(long from, long to) {
+        for (RecurringTask r : recurring) {
+            Task occurrence = r.conflicting(from, to);
+            if (occurrence != null)
+                return occurrence;
+        }
+        return null;
+    }
+
+    /**
+     * Finds the first occurrence of a recurring Task that conflicts with a Task in an index or with an
+     * occurrence of another series, from the current time on. Occurrences are only checked up to the end of
+     * the last Task in the index, and two series that both repeat forever are only compared over the next
+     * UNBOUNDED_CHECK_YEARS years
+     * @param r recurring Task to check
+     * @param index Tasks to check against
+     * @param others other recurring Tasks to check against
+     * @param currMillis current time in milliseconds
+     * @return the conflicting occurrence and the Task or occurrence it overlaps, or null if there is no conflict
+     */
+    private static Task[] findConflict(RecurringTask r, TaskStore index, List<RecurringTask> others, long currMillis) {
+        Task last = index.last();
+        if (last != null) {
+            Iterator<Task> it = r.occurrences(currMillis, last.getSchedTimeEnd().getMillis());
+            while (it.hasNext()) {
+                Task occurrence = it.next();
+                Task other = index.conflicting(occurrence.getSchedTime().getMillis(),
+                        occurrence.getSchedTimeEnd().getMillis());
+                if (other != null)
+                    return new Task[] {other, occurrence};
+            }
+        }
+        for (RecurringTask other : others) {
+            if (other == r)
+                continue;
+            long to = r.getRule().isUnbounded() && other.getRule().isUnbounded() ?
+                    currMillis + UNBOUNDED_CHECK_MILLIS : Long.MAX_VALUE;
+            Task[] pair = RecurringTask.overlap(other, r, currMillis, to);
+            if (pair != null)
+                return pair;
+        }
+        return null;
+    }
+
+    /**
+     * Gets all recurring Tasks
+     * @return list of recurring Tasks in the order they were added
+     */
+    public List<RecurringTask> getRecurringTasks() {
+        return new ArrayList<>(recurring);
+    }
+
+    /**
+     * Gets the occurrences of every recurring Task overlapping a time range, working out only those in the range
+     * @param from start of the range in milliseconds
+     * @param to end of the range in milliseconds
+     * @return occurrences overlapping the range in ascending order of scheduled time
+     */
+    public List<Task> occurrencesBetween(long from, long to) {
+        ArrayList<Task> occurrences = new ArrayList<>();
+        Iterator<Task> it = RecurringTask.merged(recurring, from, to);
+        while (it.hasNext())
+            occurrences.add(it.next());
+        return occurrences;
+    }
+
+    /**
+     * Adds a recurring Task if none of its occurrences conflict with a Task or with an occurrence of another
+     * recurring Task, and saves the recurring Tasks. No Task can be added or deleted while checking
+     * @param r recurring Task to add
+     * @return true if the recurring Task was added, false if it conflicts
+     */
+    public boolean addRecurringTask(RecurringTask r) {
+        ensureLoaded(Long.MAX_VALUE);
+        snapshotLock.writeLock().lock();
+        try {
+            if (findConflict(r, tasks, recurring, (new Date()).getTime()) != null)
+                return false;
+            recurring.add(r);
+            saveRecurring();
+            return true;
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a recurring Task along with all its occurrences, and saves the recurring Tasks
+     * @param r recurring Task to remove
+     * @return true if the recurring Task was removed, false if it was not in this Schedule
+     */
+    public boolean removeRecurringTask(RecurringTask r) {
+        snapshotLock.writeLock().lock();
+        try {
+            if (!recurring.remove(r))
+                return false;
+            saveRecurring();
+            return true;
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Skips one occurrence of a recurring Task, leaving its time free, and saves the recurring Tasks
+     * @param r recurring Task the occurrence belongs to
+     * @param startMillis original start time of the occurrence
+     * @return true if the occurrence was skipped, false if there is no such occurrence
+     */
+    public boolean skipOccurrence(RecurringTask r, long startMillis) {
+        snapshotLock.writeLock().lock();
+        try {
+            if (!recurring.contains(r) || !r.skip(startMillis))
+                return false;
+            saveRecurring();
+            return true;
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves one occurrence of a recurring Task to a new start time if it would not conflict there with a Task,
+     * another recurring Task or another occurrence of the same series, and saves the recurring Tasks
+     * @param r recurring Task the occurrence belongs to
+     * @param startMillis original start time of the occurrence
+     * @param newStartMillis new start time for the occurrence
+     * @return true if the occurrence was moved, false if there is no such occurrence or the new time conflicts
+     */
+    public boolean moveOccurrence(RecurringTask r, long startMillis, long newStartMillis) {
+        ensureLoaded(newStartMillis + r.getFirst().getDuration() * MINUTE_MILLIS);
+        snapshotLock.writeLock().lock();
+        try {
+            if (!recurring.contains(r))
+                return false;
+            Long previous = r.getMove(startMillis);
+            if (!r.move(startMillis, newStartMillis))
+                return false;
+            long newEndMillis = newStartMillis + r.getFirst().getDuration() * MINUTE_MILLIS;
+            boolean conflicts = tasks.conflicts(newStartMillis, newEndMillis);
+            Iterator<Task> own = r.occurrences(newStartMillis, newEndMillis);
+            own.next();
+            conflicts |= own.hasNext();
+            for (RecurringTask other : recurring) {
+                if (other != r && other.conflicting(newStartMillis, newEndMillis) != null)
+                    conflicts = true;
+            }
+            if (conflicts) {
+                r.move(startMillis, previous == null ? startMillis : previous);
+                return false;
+            }
+            saveRecurring();
+            return true;
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes every Task that has finished by the time given, along with recurring Tasks with no occurrences
+     * left. Tasks never overlap, so the order of start times is also the order of end times and the finished
+     * Tasks are always the first ones in the store, removed together by TaskStore.removeFinished(); nothing
+     * is visited when none have finished. The whole batch is archived if archiving is on, then journaled in a single
+     * batch. No Task can be added or deleted while the batch is removed
+     * @param currMillis current time in milliseconds
+     * @return number of Tasks removed
+     */
+    public int expireFinished(long currMillis) {
+        Task first = tasks.first();
+        boolean tasksFinished = first != null && first.getSchedTimeEnd().getMillis() <= currMillis;
+        boolean seriesFinished = false;
+        for (RecurringTask r : recurring)
+            seriesFinished |= r.isFinished(currMillis);
+        if (!tasksFinished && !seriesFinished)
+            return 0;
+        List<Task> expired;
+        snapshotLock.writeLock().lock();
+        try {
+            expired = tasks.removeFinished(currMillis);
+            for (Task t : expired)
+                gaps.release(t);
+            if (search != null && !expired.isEmpty())
+                search.removeBefore(expired.get(expired.size() - 1).getSchedTime().getMillis() + 1);
+            try {
+                if (archiving)
+                    archive(expired);
+                journal.logDeletes(expired);
+            } catch (IOException e) {
+                metrics.recordError("io", archiving ? archiveFile : journalFile, 0, e.toString());
+                System.out.println("Unable to save data!");
+            }
+            if (recurring.removeIf(r -> r.isFinished(currMillis)))
+                saveRecurring();
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+        metrics.recordExpired(expired.size());
+        compactIfNeeded();
+        return expired.size();
+    }
+
+    /**
+     * Appends finished Tasks to the archive file in the data file format and syncs it to disk. This happens
+     * before their deletion is journaled, so a crash in between archives them twice rather than losing them
+     * @param expired Tasks to archive
+     * @throws IOException if the archive could not be written
+     */
+    private void archive(List<Task> expired) throws IOException {
+        if (expired.isEmpty())
+            return;
+        FileOutputStream out = new FileOutputStream(archiveFile, true);
+        try {
+            BufferedWriter fileWriter = new BufferedWriter(new OutputStreamWriter(out));
+            for (Task t : expired) {
+                fileWriter.write(t.getData() + '\n');
+            }
+            fileWriter.flush();
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Gets a consistent copy of all Tasks at one point in time, in ascending order of scheduled time. No Task
+     * can be added or deleted while the copy is made
+     * @return list of all Tasks
+     */
+    public List<Task> snapshot() {
+        ensureLoaded(Long.MAX_VALUE);
+        snapshotLock.writeLock().lock();
+        try {
+            ArrayList<Task> copy = new ArrayList<>(tasks.size());
+            for (Task t : tasks)
+                copy.add(t);
+            return copy;
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets a consistent copy of the Tasks overlapping a time range at one point in time, in ascending order of
+     * scheduled time. Only the Tasks in the range are visited
+     * @param from start of the range in milliseconds
+     * @param to end of the range in milliseconds
+     * @return list of Tasks overlapping the range
+     */
+    public List<Task> snapshot(long from, long to) {
+        ensureLoaded(to);
+        snapshotLock.writeLock().lock();
+        try {
+            return tasks.range(from, to);
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes a journal record for a Task just added or removed, reporting failures to the user
+     * @param t Task that changed
+     * @param added true if the Task was added, false if it was removed
+     */
+    private void logChange(Task t, boolean added) {
+        try {
+            if (added)
+                journal.logAdd(t);
+            else
+                journal.logDelete(t);
+        } catch (IOException e) {
+            metrics.recordError("io", journalFile, 0, e.toString());
+            System.out.println("Unable to save data!");
+        }
+    }
+
+    /**
+     * Locks this Schedule against snapshots, then locks the stripes of every day a Task covers in ascending
+     * order, so that threads locking overlapping sets of stripes cannot deadlock
+     * @param t Task about to be added or removed
+     * @return stripes that were locked, to pass to unlockDays()
+     */
+    private int[] lockDays(Task t) {
+        long firstDay = Math.floorDiv(t.getSchedTime().getMillis(), DAY_MILLIS);
+        long lastDay = Math.floorDiv(Math.max(t.getSchedTime().getMillis(), t.getSchedTimeEnd().getMillis() - 1), DAY_MILLIS);
+        int[] stripes;
+        if (lastDay - firstDay + 1 >= LOCK_STRIPES) {
+            stripes = new int[LOCK_STRIPES];
+            for (int i = 0; i < LOCK_STRIPES; i++)
+                stripes[i] = i;
+        } else {
+            stripes = new int[(int) (lastDay - firstDay + 1)];
+            for (int i = 0; i < stripes.length; i++)
+                stripes[i] = (int) Math.floorMod(firstDay + i, (long) LOCK_STRIPES);
+            Arrays.sort(stripes);
+        }
+        snapshotLock.readLock().lock();
+        for (int stripe : stripes)
+            dayLocks[stripe].lock();
+        return stripes;
+    }
+
+    /**
+     * Unlocks the stripes locked by lockDays() and lets snapshots proceed again
+     * @param stripes stripes returned by lockDays()
+     */
+    private void unlockDays(int[] stripes) {
+        for (int i = stripes.length - 1; i >= 0; i--)
+            dayLocks[stripes[i]].unlock();
+        snapshotLock.readLock().unlock();
+    }
+
+    /**
+     * Prints all Tasks out in a nicely formatted list, with the date heading and then the time
+     * range each Task is scheduled for, followed by the Task name and description. Recurring Tasks
+     * are listed after them, once each rather than once per occurrence
+     * @param toDelete indication of whether to number Tasks for deletion or not
+     */
+    public void printAllTasks(boolean toDelete) {
+        List<Task> taskList = snapshot();
+        if (taskList.isEmpty())
+            System.out.println("You have no tasks!");
+        else
+            printTasks(taskList, 1, toDelete, null);
+        if (!toDelete && !recurring.isEmpty()) {
+            System.out.println();
+            printRecurring(getRecurringTasks(), false);
+        }
+    }
+
+    /**
+     * Asks the user for words to search for and a time range, then prints the Tasks starting within it that
+     * match every word (see search()), or all of them if no words were given, in the same format as
+     * printAllTasks(), one page of PAGE_SIZE Tasks at a time. Each page is read straight from the index, so
+     * the work done depends on how many Tasks are shown rather than on how many there are
+     */
+    public void seeTasks() {
+        Scanner sc = new Scanner(System.in);
+        System.out.print("Search for which words (end a word with * to match its start, leave blank for all tasks)? ");
+        String query = sc.nextLine().trim();
+        long[] range = promptRange(sc);
+        long from = range[0];
+        int shown = 0;
+        String lastDate = null;
+        while (true) {
+            List<Task> page = query.isEmpty() ? tasksPage(from, range[1], PAGE_SIZE) :
+                    search(query, from, range[1], PAGE_SIZE);
+            if (page.isEmpty()) {
+                if (shown == 0)
+                    System.out.println(query.isEmpty() ? "You have no tasks in that time range!" :
+                            "You have no matching tasks in that time range!");
+                break;
+            }
+            lastDate = printTasks(page, shown + 1, false, lastDate);
+            shown += page.size();
+            from = page.get(page.size() - 1).getSchedTime().getMillis() + 1;
+            if (page.size() < PAGE_SIZE || !promptYesNo(sc, "Show the next " + PAGE_SIZE + " tasks? (y/n): "))
+                break;
+        }
+        if (!recurring.isEmpty()) {
+            System.out.println();
+            printRecurring(getRecurringTasks(), false);
+        }
+    }
+
+    /**
+     * Prints the Tasks given in the same format as printAllTasks(), continuing from the date heading printed
+     * last so a page carrying on the same day does not repeat it
+     * @param taskList Tasks to print, in ascending order of scheduled time
+     * @param firstNumber number of the first Task, when numbering Tasks for deletion
+     * @param toDelete indication of whether to number Tasks for deletion or not
+     * @param lastDate date heading printed last, or null if there is none
+     * @return date heading printed last
+     */
+    private static String printTasks(List<Task> taskList, int firstNumber, boolean toDelete, String lastDate) {
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+        try {
+            lastDate = writeTasks(out, taskList, firstNumber, toDelete, lastDate);
+            out.flush();
+        } catch (IOException e) {
+            System.out.println("Unable to print tasks!");
+        }
+        return lastDate;
+    }
+
+    /**
+     * Writes Tasks in a nicely formatted list, with the date heading and then the time range each Task is
+     * scheduled for, followed by the Task name and either its description or its number. This is the one
+     * format shared by printing and exporting
+     * @param out Writer to write the list to
+     * @param taskList Tasks to write, in ascending order of scheduled time
+     * @param firstNumber number of the first Task, when numbering Tasks
+     * @param numbered indication of whether to number Tasks instead of showing their descriptions
+     * @param lastDate date heading written last, or null if there is none
+     * @return date heading written last
+     * @throws IOException if the list could not be written
+     */
+    private static String writeTasks(Writer out, List<Task> taskList, int firstNumber, boolean numbered,
+                                     String lastDate) throws IOException {
+        for (int i = 0; i < taskList.size(); i++) {
+            Task t = taskList.get(i);
+            String currDate = t.getSchedTime().dateStr();
+            if (lastDate == null)
+                out.write(currDate + "\n");
+            else if (!lastDate.equals(currDate))
+                out.write("\n" + currDate + "\n");
+            lastDate = currDate;
+            String taskEntry = t.getSchedTime().timeStr() + " - " + t.getSchedTimeEnd().timeStr() +
+                    ": " + t.getName();
+            if (numbered)
+                taskEntry = "(" + (firstNumber + i) + ") " + taskEntry;
+            else
+                taskEntry += " - " + t.getDescription();
+            out.write(taskEntry + "\n");
+        }
+        return lastDate;
+    }
+
+    /**
+     * Prints recurring Tasks, each with its rule and next occurrence
+     * @param series recurring Tasks to print
+     * @param numbered indication of whether to number the recurring Tasks for picking one or not
+     */
+    private static void printRecurring(List<RecurringTask> series, boolean numbered) {
+        if (series.isEmpty()) {
+            System.out.println("You have no recurring tasks!");
+            return;
+        }
+        System.out.println("Recurring tasks");
+        long currMillis = (new Date()).getTime();
+        for (int i = 0; i < series.size(); i++) {
+            RecurringTask r = series.get(i);
+            String entry = r.toString();
+            if (numbered)
+                entry = "(" + (i + 1) + ") " + entry;
+            else
+                entry += " - " + r.getFirst().getDescription();
+            Iterator<Task> next = r.occurrences(currMillis, Long.MAX_VALUE);
+            if (next.hasNext())
+                entry += " (next: " + next.next().getSchedTime().dateTimeStr() + ")";
+            System.out.println(entry);
+        }
+    }
+
+    /**
+     * Prompts user to enter a new Task's information - its name, description, scheduled date and time,
+     * and duration. This method uses extensive error checking to ensure all information is properly formatted
+     * and correctly entered. It will also ensure that Tasks are scheduled for future times and that no
+     * Task schedules conflict with each other. Finally it adds the Task to the list.
+     */
+    public void newTask() {
+        System.out.println("Adding new task.");
+        Scanner sc = new Scanner(System.in);
+        String taskName = promptName(sc);
+        String taskDescription = promptDescription(sc);
+        long taskStart = promptDateTime(sc, "Schedule for what date and time (ex. 2/15/21 3:30 PM)? ", false);
+        int taskDuration = promptDuration(sc);
+
+        Task t = new Task(taskName, taskDescription, new ScheduledTime(taskStart), taskDuration);
+        if (!addTask(t))
+            System.out.println("The new task's schedule conflicts with a previous task! Task failed to add.");
+        else
+            System.out.println("Task added: " + t.getName());
+    }
+
+    /**
+     * Shows the recurring Tasks menu, asking the user to pick between seeing recurring Tasks, entering a new
+     * one, deleting one, skipping an occurrence and moving an occurrence, until they choose to go back
+     */
+    public void recurringMenu() {
+        Scanner sc = new Scanner(System.in);
+        while (true) {
+            System.out.print("\nSee recurring tasks(1), New recurring task(2), Delete recurring task(3), Skip an occurrence(4), Move an occurrence(5), Back(6): ");
+            String choice = sc.nextLine();
+            System.out.println();
+            switch (choice) {
+                case "1":
+                    printRecurring(getRecurringTasks(), false);
+                    break;
+                case "2":
+                    newRecurringTask(sc);
+                    break;
+                case "3":
+                case "4":
+                case "5":
+                    changeRecurringTask(sc, choice);
+                    break;
+                case "6":
+                    return;
+                default:
+                    System.out.println("Enter the number corresponding to the action you wish to take.");
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Prompts user to enter a new recurring Task's information - its name, description, first date and time,
+     * duration, and how it repeats - then adds it if none of its occurrences conflict with other Tasks
+     * @param sc Scanner reading user input
+     */
+    private void newRecurringTask(Scanner sc) {
+        System.out.println("Adding new recurring task.");
+        String taskName = promptName(sc);
+        String taskDescription = promptDescription(sc);
+        long taskStart = promptDateTime(sc, "First date and time (ex. 2/15/21 3:30 PM)? ", false);
+        int taskDuration = promptDuration(sc);
+        RecurrenceRule rule = promptRule(sc);
+
+        RecurringTask r;
+        try {
+            r = new RecurringTask(new Task(taskName, taskDescription, new ScheduledTime(taskStart), taskDuration),
+                    rule);
+        } catch (TaskFormatException e) {
+            System.out.println(e.getMessage() + " Task failed to add.");
+            return;
+        }
+        if (!addRecurringTask(r))
+            System.out.println("The new recurring task's schedule conflicts with another task! Task failed to add.");
+        else
+            System.out.println("Recurring task added: " + r);
+    }
+
+    /**
+     * Prompts user for how a recurring Task repeats: daily, weekly on some days, or monthly, how many days,
+     * weeks or months apart, and optionally how many times or until when
+     * @param sc Scanner reading user input
+     * @return rule entered
+     */
+    private static RecurrenceRule promptRule(Scanner sc) {
+        RecurrenceRule.Frequency frequency = null;
+        while (frequency == null) {
+            System.out.print("Repeat daily, weekly or monthly? ");
+            try {
+                frequency = RecurrenceRule.Frequency.valueOf(sc.nextLine().trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.out.println("Please enter daily, weekly or monthly.");
+            }
+        }
+        String unit = frequency == RecurrenceRule.Frequency.DAILY ? "days" :
+                frequency == RecurrenceRule.Frequency.WEEKLY ? "weeks" : "months";
+        int interval = 0;
+        while (interval < 1) {
+            System.out.print("Repeat every how many " + unit + "? ");
+            try {
+                interval = Integer.parseInt(sc.nextLine());
+            } catch (NumberFormatException e) {
+                interval = 0;
+            }
+            if (interval < 1)
+                System.out.println("Please enter an integer higher than 0.");
+        }
+        EnumSet<DayOfWeek> weekdays = EnumSet.noneOf(DayOfWeek.class);
+        while (frequency == RecurrenceRule.Frequency.WEEKLY) {
+            System.out.print("On which days (ex. MO,WE,FR, leave blank for the first date's day)? ");
+            String days = sc.nextLine();
+            if (days.trim().equals(""))
+                break;
+            try {
+                for (String code : days.split(","))
+                    weekdays.add(RecurrenceRule.dayOf(code));
+                break;
+            } catch (TaskFormatException e) {
+                System.out.println("Please enter two letter day codes separated by commas.");
+                weekdays.clear();
+            }
+        }
+        int count = -1;
+        while (count < 0) {
+            System.out.print("How many times (leave blank for no limit)? ");
+            String times = sc.nextLine();
+            try {
+                count = times.equals("") ? 0 : Integer.parseInt(times);
+            } catch (NumberFormatException e) {
+                count = -1;
+            }
+            if (count < 0 || times.equals("0")) {
+                System.out.println("Please enter an integer higher than 0.");
+                count = -1;
+            }
+        }
+        long until = Long.MAX_VALUE;
+        if (count == 0) {
+            long untilMillis = promptDateTime(sc, "Until what date and time (leave blank for no end)? ", true);
+            if (untilMillis > (new Date()).getTime() + MINUTE_MILLIS)
+                until = untilMillis;
+        }
+        return new RecurrenceRule(frequency, interval, weekdays, count, until);
+    }
 
     /**
-     * Prints all Tasks out in a nicely formatted list, with the date heading and then the time
-     * range each Task is scheduled for, followed by the Task name and description
-     * @param toDelete indication of whether to number Tasks for deletion or not
+     * Prints all recurring Tasks with their corresponding numbers and prompts the user to pick one, then
+     * deletes it, skips one of its occurrences or moves one of its occurrences. Also allows user to cancel by
+     * entering 0.
+     * @param sc Scanner reading user input
+     * @param choice menu choice: "3" to delete, "4" to skip an occurrence or "5" to move an occurrence
      */
-    public static void printAllTasks(boolean toDelete) {
-        if (tasks.isEmpty()) {
-            System.out.println("You have no tasks!");
+    private void changeRecurringTask(Scanner sc, String choice) {
+        List<RecurringTask> series = getRecurringTasks();
+        printRecurring(series, true);
+        if (series.isEmpty())
             return;
-        }
-        String lastDate = tasks.get(0).getSchedTime().dateStr();
-        System.out.println(lastDate);
-        for (int i = 0; i < tasks.size(); i++) {
-            Task t = tasks.get(i);
-            String currDate = t.getSchedTime().dateStr();
-            if (!lastDate.equals(currDate)) {
-                System.out.println("\n" + currDate);
-                lastDate = currDate;
+        int index;
+        do {
+            System.out.print("\nWhich number recurring task? (0 to cancel): ");
+            try {
+                index = Integer.parseInt(sc.nextLine());
+            } catch (NumberFormatException e) {
+                index = -1;
             }
-            String taskEntry = t.getSchedTime().timeStr() + " - " + t.getSchedTimeEnd().timeStr() +
-                    ": " + t.getName();
-            if (toDelete)
-                taskEntry = "(" + (i + 1) + ") " + taskEntry;
+        } while (index < 0 || index > series.size());
+        if (index == 0)
+            return;
+        RecurringTask r = series.get(index - 1);
+        if (choice.equals("3")) {
+            if (removeRecurringTask(r))
+                System.out.println("Recurring task deleted: " + r.getFirst().getName());
             else
-                taskEntry += " - " + t.getDescription();
-            System.out.println(taskEntry);
+                System.out.println("Recurring task was already deleted: " + r.getFirst().getName());
+            return;
+        }
+        long start = promptDateTime(sc, "Original date and time of the occurrence? ", false);
+        if (choice.equals("4")) {
+            if (skipOccurrence(r, start))
+                System.out.println("Occurrence skipped: " + new ScheduledTime(start).dateTimeStr());
+            else
+                System.out.println("There is no such occurrence to skip!");
+            return;
         }
+        long newStart = promptDateTime(sc, "Move to what date and time? ", false);
+        if (moveOccurrence(r, start, newStart))
+            System.out.println("Occurrence moved to " + new ScheduledTime(newStart).dateTimeStr());
+        else
+            System.out.println("There is no such occurrence, or the new time conflicts with another task! Occurrence failed to move.");
     }
 
     /**
-     * Prompts user to enter a new Task's information - its name, description, scheduled date and time,
-     * and duration. This method uses extensive error checking to ensure all information is properly formatted
-     * and correctly entered. It will also ensure that Tasks are scheduled for future times and that no
-     * Task schedules conflict with each other. Finally it adds the Task to the list.
+     * Prompts user to enter a new Task's name, description and duration, then schedules it in the earliest
+     * free slot that fits, optionally only within working hours (9:00 AM to 5:00 PM).
      */
-    public static void newTask() {
-        System.out.println("Adding new task.");
+    public void scheduleAtNextFreeTime() {
+        System.out.println("Adding new task at the next free time.");
         Scanner sc = new Scanner(System.in);
-        DateFormat inputDateFormat = new SimpleDateFormat("M/d/yy");
-        DateFormat inputDateTimeFormat = new SimpleDateFormat("M/d/yy h:mm a");
-        inputDateFormat.setLenient(false);
-        inputDateTimeFormat.setLenient(false);
+        String taskName = promptName(sc);
+        String taskDescription = promptDescription(sc);
+        int taskDuration = promptDuration(sc);
+        long after = promptDateTime(sc, "Schedule after what date and time (leave blank for now)? ", true);
+        boolean workHours = promptYesNo(sc, "Only schedule within working hours, 9:00 AM - 5:00 PM? (y/n): ");
+        LocalTime workStart = workHours ? WORK_START : null;
+        LocalTime workEnd = workHours ? WORK_END : null;
 
-        String taskName;
-        String taskDescription;
-        String taskDateTime;
-        String hrs;
-        String mins;
+        while (true) {
+            List<TimeSlot> slots = findFreeSlots(after, taskDuration, 1, workStart, workEnd);
+            if (slots.isEmpty()) {
+                System.out.println("No free time could be found for this task! Task failed to add.");
+                return;
+            }
+            Task t = new Task(taskName, taskDescription, slots.get(0).getStart(), taskDuration);
+            if (addTask(t)) {
+                System.out.println("Task added: " + t.getName() + " at " + t.getSchedTime().dateTimeStr());
+                return;
+            }
+            after = slots.get(0).getStartMillis() + MINUTE_MILLIS;
+        }
+    }
+
+    /**
+     * Finds every stretch of free time within a range, between the Tasks and the occurrences of recurring Tasks
+     * overlapping it
+     * @param from start of the range in milliseconds
+     * @param to end of the range in milliseconds
+     * @param workStart start of working hours each day, or null to allow any time of day
+     * @param workEnd end of working hours each day, or null to allow any time of day
+     * @return free time in ascending order of start time
+     */
+    public List<TimeSlot> freeTimeBetween(long from, long to, LocalTime workStart, LocalTime workEnd) {
+        ArrayList<Task> busy = new ArrayList<>(tasksBetween(from, to));
+        busy.addAll(occurrencesBetween(from, to));
+        Collections.sort(busy);
+        ArrayList<TimeSlot> free = new ArrayList<>();
+        long cursor = from;
+        for (Task t : busy) {
+            long start = t.getSchedTime().getMillis();
+            if (start > cursor)
+                GapIndex.addSlots(free, cursor, start, 1, Integer.MAX_VALUE, workStart, workEnd);
+            cursor = Math.max(cursor, t.getSchedTimeEnd().getMillis());
+        }
+        if (to > cursor)
+            GapIndex.addSlots(free, cursor, to, 1, Integer.MAX_VALUE, workStart, workEnd);
+        return free;
+    }
+
+    /**
+     * Works out where to put a batch of Tasks, each with its own earliest start, deadline and priority, so that
+     * none conflicts with the schedule or each other and as few deadlines as possible are missed, using
+     * AutoScheduler on one search thread per processor. The free time searched runs from now, or the earliest
+     * start if later, to well past the latest deadline, so every Task can be placed somewhere unless
+     * recurring Tasks fill that time. Nothing is added until applyPlan() is called
+     * @param requests Tasks to place
+     * @param budgetMillis time the search may take in milliseconds
+     * @param workStart start of working hours each day, or null to allow any time of day
+     * @param workEnd end of working hours each day, or null to allow any time of day
+     * @return placement found
+     */
+    public AutoScheduler.Plan autoSchedule(List<AutoScheduler.Request> requests, long budgetMillis,
+                                           LocalTime workStart, LocalTime workEnd) {
+        long now = (new Date()).getTime();
+        long from = Long.MAX_VALUE;
+        long latest = now;
+        long total = 0;
+        for (AutoScheduler.Request r : requests) {
+            from = Math.min(from, r.getEarliestMillis());
+            latest = Math.max(latest, Math.max(r.getEarliestMillis(), r.getDeadlineMillis()));
+            total += r.getDuration() * MINUTE_MILLIS;
+        }
+        from = Math.max(from, now);
+        long to = latest + total * (workStart != null && workEnd != null ? 3 : 1) + DAY_MILLIS;
+        AutoScheduler scheduler = new AutoScheduler(requests, freeTimeBetween(from, to, workStart, workEnd),
+                Runtime.getRuntime().availableProcessors());
+        return scheduler.solve(budgetMillis);
+    }
+
+    /**
+     * Adds every Task a placement from autoSchedule() placed. A Task that now conflicts, because the schedule
+     * changed after the placement was worked out, is left out
+     * @param plan placement to add
+     * @return number of Tasks added
+     */
+    public int applyPlan(AutoScheduler.Plan plan) {
+        int added = 0;
+        for (Task t : plan.getTasks()) {
+            if (addTask(t))
+                added++;
+        }
+        return added;
+    }
+
+    /**
+     * Explains the format of a batch file of Tasks to place, asks for its name, how long to search and whether
+     * to keep to working hours (9:00 AM to 5:00 PM), then places the Tasks with autoSchedule(), prints the
+     * report and the placement, and adds the Tasks if the user agrees.
+     */
+    public void autoScheduleFromFile() {
+        Scanner sc = new Scanner(System.in);
+        System.out.println("Please prepare a txt file with the following format:");
+        System.out.println("||name||<task-name>||desc||<task-description>||dur||<total-minutes>||after||<date-time>||due||<date-time>||priority||<number>");
+        System.out.println("Replace the text within <> with your task's properties. For example:");
+        System.out.println("||name||Report||desc||Quarterly numbers||dur||90||after||2/15/21 9:00 AM||due||2/17/21 5:00 PM||priority||3");
+        System.out.println("Each task starts after its after time and should finish by its due time. When not every due time can be met, tasks with higher priority numbers are favoured.");
+        System.out.println("Place the txt file in the same directory as this program, then enter its name (leave blank to cancel): ");
+        String fileName = sc.nextLine();
+        if (fileName.equals(""))
+            return;
+        List<AutoScheduler.Request> requests;
+        try {
+            requests = AutoScheduler.readRequests(new File(fileName));
+        } catch (IOException e) {
+            System.out.println("Unable to read " + fileName + "!");
+            return;
+        } catch (TaskFormatException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        if (requests.isEmpty()) {
+            System.out.println("There are no tasks in " + fileName + "!");
+            return;
+        }
+        long seconds = -1;
+        while (seconds < 0) {
+            System.out.print("How many seconds may the scheduler search for (leave blank for 2)? ");
+            String answer = sc.nextLine();
+            try {
+                seconds = answer.equals("") ? 2 : Long.parseLong(answer);
+                if (seconds < 0)
+                    System.out.println("Please enter an integer greater than or equal to 0.");
+            } catch (NumberFormatException e) {
+                System.out.println("Please enter an integer for the number of seconds.");
+            }
+        }
+        boolean workHours = promptYesNo(sc, "Only schedule within working hours, 9:00 AM - 5:00 PM? (y/n): ");
+        AutoScheduler.Plan plan = autoSchedule(requests, seconds * 1000, workHours ? WORK_START : null,
+                workHours ? WORK_END : null);
+        System.out.println(plan.report());
+        List<Task> placed = plan.getTasks();
+        for (Task t : placed)
+            System.out.println("  " + t.getName() + " at " + t.getSchedTime().dateTimeStr());
+        for (AutoScheduler.Request r : plan.getLate())
+            System.out.println("Late: " + r.getName() + " is due " + new ScheduledTime(r.getDeadlineMillis()).dateTimeStr());
+        for (AutoScheduler.Request r : plan.getUnplaced())
+            System.out.println("Not placed: " + r.getName());
+        if (placed.isEmpty() || !promptYesNo(sc, "Add these tasks to the schedule? (y/n): "))
+            return;
+        int added = applyPlan(plan);
+        System.out.println("Added " + added + " tasks.");
+        if (added < placed.size())
+            System.out.println((placed.size() - added) + " tasks now conflict with changes made since and were not added.");
+    }
 
+    /**
+     * Prompts user for a Task name until one is entered that is not empty and does not use the | character
+     * @param sc Scanner reading user input
+     * @return Task name entered
+     */
+    private static String promptName(Scanner sc) {
+        String taskName;
         do {
             System.out.print("Task Name: ");
             taskName = sc.nextLine();
-            if (taskName.indexOf('|') != -1) {
+            if (!taskName.equals("") && !isValidName(taskName)) {
                 System.out.println("Please refrain from using the | character.");
                 taskName = "";
             }
         } while (taskName.equals(""));
+        return taskName;
+    }
 
+    /**
+     * Prompts user for a Task description until one is entered that does not use the | character
+     * @param sc Scanner reading user input
+     * @return Task description entered
+     */
+    private static String promptDescription(Scanner sc) {
+        String taskDescription;
         do {
             System.out.print("Task Description: ");
             taskDescription = sc.nextLine();
-            if (taskDescription.indexOf('|') != -1) {
+            if (!isValidDescription(taskDescription)) {
                 System.out.println("Please refrain from using the | character.");
                 taskDescription = "|";
             }
         } while (taskDescription.equals("|"));
+        return taskDescription;
+    }
 
-        do {
-            System.out.print("Schedule for what date and time (ex. 2/15/21 3:30 PM)? ");
-            taskDateTime = sc.nextLine();
+    /**
+     * Prompts user for a future date and time until one is entered in the format shown
+     * @param sc Scanner reading user input
+     * @param prompt question to ask the user
+     * @param allowBlank whether the user may leave the answer blank to mean the current time
+     * @return date and time entered, in milliseconds
+     */
+    private static long promptDateTime(Scanner sc, String prompt, boolean allowBlank) {
+        while (true) {
+            System.out.print(prompt);
+            String taskDateTime = sc.nextLine();
+            if (allowBlank && taskDateTime.equals(""))
+                return (new Date()).getTime();
             try {
-                Date d = inputDateTimeFormat.parse(taskDateTime);
-                if (d.getTime() < (new Date()).getTime()) {
-                    System.out.println("Please enter a future date and time.");
-                    taskDateTime = "";
-                }
-            } catch (ParseException e) {
+                long millis = ScheduledTime.getInputMillis(taskDateTime);
+                if (millis >= (new Date()).getTime())
+                    return millis;
+                System.out.println("Please enter a future date and time.");
+            } catch (TaskFormatException e) {
+                System.out.println("Please enter a date and time in the format shown.");
+            }
+        }
+    }
+
+    /**
+     * Prompts user for a time range to work on, either end of which may be left blank to leave it open
+     * @param sc Scanner reading user input
+     * @return start and end of the range entered, in milliseconds
+     */
+    private static long[] promptRange(Scanner sc) {
+        long from = promptRangeTime(sc, "From what date and time (leave blank for now)? ", (new Date()).getTime());
+        while (true) {
+            long to = promptRangeTime(sc, "To what date and time (leave blank for no end)? ", Long.MAX_VALUE);
+            if (to > from)
+                return new long[] {from, to};
+            System.out.println("Please enter a date and time after the start of the range.");
+        }
+    }
+
+    /**
+     * Prompts user for one end of a time range until a date and time is entered in the format shown, or the
+     * answer is left blank
+     * @param sc Scanner reading user input
+     * @param prompt question to ask the user
+     * @param blankMillis time in milliseconds a blank answer stands for
+     * @return date and time entered, in milliseconds
+     */
+    private static long promptRangeTime(Scanner sc, String prompt, long blankMillis) {
+        while (true) {
+            System.out.print(prompt);
+            String rangeTime = sc.nextLine();
+            if (rangeTime.equals(""))
+                return blankMillis;
+            try {
+                return ScheduledTime.getInputMillis(rangeTime);
+            } catch (TaskFormatException e) {
                 System.out.println("Please enter a date and time in the format shown.");
-                taskDateTime = "";
             }
-        } while (taskDateTime.equals(""));
+        }
+    }
+
+    /**
+     * Prompts user with a yes or no question until they answer y or n
+     * @param sc Scanner reading user input
+     * @param prompt question to ask the user
+     * @return true if the user answered y, false if they answered n
+     */
+    private static boolean promptYesNo(Scanner sc, String prompt) {
+        String answer;
+        do {
+            System.out.print(prompt);
+            answer = sc.nextLine().toLowerCase();
+        } while (!answer.equals("y") && !answer.equals("n"));
+        return answer.equals("y");
+    }
+
+    /**
+     * Prompts user for the hours and then minutes a Task will take, until a duration higher than 0 is entered
+     * @param sc Scanner reading user input
+     * @return duration entered, in minutes
+     */
+    private static int promptDuration(Scanner sc) {
+        String hrs;
+        String mins;
 
         do {
             System.out.print("How many hours will this task take? ");
@@ -129,84 +1499,95 @@ public class Schedule {
             }
         } while (mins.equals(""));
 
-        ScheduledTime taskSchedTime = new ScheduledTime(ScheduledTime.getInputMillis(taskDateTime));
-        int taskDuration = Integer.parseInt(hrs) * 60 + Integer.parseInt(mins);
-        Task t = new Task(taskName, taskDescription, taskSchedTime, taskDuration);
-        tasks.add(t);
-        Collections.sort(tasks);
-        int index = 0;
-        for (int i = 0; i < tasks.size(); i++) {
-            if (tasks.get(i).equals(t)) {
-                index = i;
-                break;
-            }
-        }
-        if ((index > 0 && tasks.get(index-1).getSchedTimeEnd().getMillis() > t.getSchedTime().getMillis()) ||
-                (index < tasks.size()-1 && tasks.get(index+1).getSchedTime().getMillis() < t.getSchedTimeEnd().getMillis())) {
-            System.out.println("The new task's schedule conflicts with a previous task! Task failed to add.");
-            tasks.remove(t);
-        } else {
-            save();
-            System.out.println("Task added: " + t.getName());
-        }
+        return Integer.parseInt(hrs) * 60 + Integer.parseInt(mins);
     }
 
     /**
-     * Deletes a Task from the Task list by printing all Tasks with their corresponding numbers, and prompting
-     * the user to pick a number Task to delete. Also allows user to cancel deletion by entering 0.
+     * Deletes a Task from the Task list by asking the user for a time range, printing the Tasks starting within
+     * it with their corresponding numbers one page of PAGE_SIZE Tasks at a time, and prompting the user to pick
+     * a number Task on the page to delete or move on to the next page. Also allows user to cancel deletion by
+     * entering 0.
      */
-    public static void deleteTask() {
-        printAllTasks(true);
-        if (tasks.isEmpty())
-            return;
+    public void deleteTask() {
         Scanner sc = new Scanner(System.in);
-        int index;
-        do {
-            System.out.print("\nWhich number task would you like to delete? (0 to cancel): ");
-            try {
-                index = Integer.parseInt(sc.nextLine());
-            } catch (NumberFormatException e) {
-                index = -1;
+        long[] range = promptRange(sc);
+        long from = range[0];
+        int shown = 0;
+        while (true) {
+            List<Task> page = tasksPage(from, range[1], PAGE_SIZE);
+            if (page.isEmpty()) {
+                System.out.println(shown == 0 ? "You have no tasks in that time range!" : "No more tasks.");
+                return;
             }
-        } while (index < 0 || index > tasks.size());
-        if (index != 0) {
-            Task t = tasks.remove(index - 1);
-            save();
-            System.out.println("Task deleted: " + t.getName());
+            printTasks(page, shown + 1, true, null);
+            boolean more = page.size() == PAGE_SIZE;
+            int index;
+            do {
+                System.out.print("\nWhich number task would you like to delete? (0 to cancel" +
+                        (more ? ", blank for the next page" : "") + "): ");
+                String answer = sc.nextLine();
+                if (more && answer.equals("")) {
+                    index = -2;
+                    break;
+                }
+                try {
+                    index = Integer.parseInt(answer);
+                } catch (NumberFormatException e) {
+                    index = -1;
+                }
+            } while (index != 0 && (index <= shown || index > shown + page.size()));
+            if (index == 0)
+                return;
+            if (index > 0) {
+                Task t = page.get(index - shown - 1);
+                if (removeTask(t))
+                    System.out.println("Task deleted: " + t.getName());
+                else
+                    System.out.println("Task was already deleted: " + t.getName());
+                return;
+            }
+            shown += page.size();
+            from = page.get(page.size() - 1).getSchedTime().getMillis() + 1;
         }
     }
 
     /**
-     * Creates Schedule.txt file if it doesn't already exist, and prints list of all Tasks to the file. This
-     * file is formatted the same way as the printAllTasks() method's list; see above for format.
+     * Asks the user for a time range, then creates Schedule.txt file if it doesn't already exist, and prints
+     * list of the Tasks in the range to the file. This file is formatted the same way as the printAllTasks()
+     * method's list; see above for format.
+     */
+    public void exportToFile() {
+        long[] range = promptRange(new Scanner(System.in));
+        exportToFile("Schedule.txt", range[0], range[1]);
+    }
+
+    /**
+     * Creates the file given if it doesn't already exist, and prints list of all Tasks to the file in the
+     * same format as exportToFile()
+     * @param fileName name of file to export to
+     */
+    public void exportToFile(String fileName) {
+        exportToFile(fileName, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates the file given if it doesn't already exist, and prints list of the Tasks overlapping a time range
+     * to the file in the same format as exportToFile(). Only the Tasks in the range are visited
+     * @param fileName name of file to export to
+     * @param from start of the range in milliseconds
+     * @param to end of the range in milliseconds
      */
-    public static void exportToFile() {
-        if (tasks.isEmpty()) {
+    public void exportToFile(String fileName, long from, long to) {
+        List<Task> taskList = snapshot(from, to);
+        if (taskList.isEmpty()) {
             System.out.println("You have no tasks!");
             return;
         }
-        File scheduleFile = new File("Schedule.txt");
-        try {
-            scheduleFile.createNewFile();
-        } catch (IOException e) {
-            System.out.println("Unable to export to file!");
-        }
         try {
-            FileWriter fileWriter = new FileWriter("Schedule.txt");
-            String lastDate = tasks.get(0).getSchedTime().dateStr();
-            fileWriter.write(lastDate + "\n");
-            for (Task t : tasks) {
-                String currDate = t.getSchedTime().dateStr();
-                if (!lastDate.equals(currDate)) {
-                    fileWriter.write("\n" + currDate + "\n");
-                    lastDate = currDate;
-                }
-                String taskEntry = t.getSchedTime().timeStr() + " - " + t.getSchedTimeEnd().timeStr() +
-                        ": " + t.getName() + " - " + t.getDescription();
-                fileWriter.write(taskEntry + "\n");
-            }
+            Writer fileWriter = new BufferedWriter(new FileWriter(fileName));
+            writeTasks(fileWriter, taskList, 1, false, null);
             fileWriter.close();
-            System.out.println("Exported to Schedule.txt!");
+            System.out.println("Exported to " + fileName + "!");
         } catch (IOException e) {
             System.out.println("Unable to export to file!");
         }
@@ -214,92 +1595,558 @@ public class Schedule {
 
     /**
      * Gives a thorough explanation of the format for the text file, then asks the user to input the file name.
-     * Overrides all current Tasks in list with Tasks found in the file using load() method, explained below.
+     * Either overrides all current Tasks in list with Tasks found in the file using load() method, explained
+     * below, or merges them with the Tasks in one or more files using merge(), writing any conflicts found to
+     * Conflicts.txt.
      */
-    public static void importFromFile() {
+    public void importFromFile() {
         Scanner sc = new Scanner(System.in);
-        System.out.println("This will override current tasks with those in file. Please prepare a txt file with the following format:");
+        System.out.print("Override current tasks(1) or merge files with them(2)? (leave blank to cancel): ");
+        String mode = sc.nextLine();
+        while (!mode.equals("") && !mode.equals("1") && !mode.equals("2")) {
+            System.out.print("Enter 1 or 2: ");
+            mode = sc.nextLine();
+        }
+        if (mode.equals(""))
+            return;
+        if (mode.equals("1"))
+            System.out.println("This will override current tasks with those in file.");
+        System.out.println("Please prepare a txt file with the following format:");
         System.out.println("||name||<task-name>||desc||<task-description>||sched||<date-time>||dur||<total-minutes>");
         System.out.println("Replace the text within <> with your task's properties. For example:");
         System.out.println("||name||Task 1||desc||My Description||sched||2/15/21 3:00 PM||dur||220");
         System.out.println("Make a new line for each task and ensure everything is formatted properly.");
         System.out.println("Note that for duration you must enter the total minutes. Also, do not use the | character.");
-        System.out.println("Place the txt file in the same directory as this program, then enter its name (leave blank to cancel): ");
-        String fileName = sc.nextLine();
-        if (fileName.equals(""))
+        if (mode.equals("1")) {
+            System.out.println("Place the txt file in the same directory as this program, then enter its name (leave blank to cancel): ");
+            String fileName = sc.nextLine();
+            if (fileName.equals(""))
+                return;
+            load(fileName);
+            save();
+            return;
+        }
+        System.out.println("Place the txt files in the same directory as this program, then enter their names separated by commas (leave blank to cancel): ");
+        String fileNames = sc.nextLine();
+        if (fileNames.trim().equals(""))
             return;
-        load(fileName);
-        save();
+        ArrayList<String> files = new ArrayList<>();
+        for (String fileName : fileNames.split(",")) {
+            if (!fileName.trim().equals(""))
+                files.add(fileName.trim());
+        }
+        System.out.print("When a task in a file overlaps a current task, skip the file's task(1), replace the current task(2), or cancel the whole merge(3)? ");
+        String choice = sc.nextLine();
+        while (!choice.equals("1") && !choice.equals("2") && !choice.equals("3")) {
+            System.out.print("Enter 1, 2 or 3: ");
+            choice = sc.nextLine();
+        }
+        TaskMerger.ConflictPolicy policy = TaskMerger.ConflictPolicy.values()[Integer.parseInt(choice) - 1];
+        merge(files, policy, "Conflicts.txt");
+    }
+
+    /**
+     * Merges the current Tasks with the Tasks in one or more files, text or binary, in a single k-way merge by
+     * TaskMerger, instead of replacing them as load() does. The files are read and sorted before anything is
+     * locked; the merge itself runs under the snapshot lock, streaming the current Tasks straight into a new
+     * store, which replaces the current one and is saved unless the policy is REJECT_ALL and there were
+     * conflicts. Occurrences of recurring Tasks can never be moved, so incoming Tasks overlapping them are
+     * always dropped. A report of every conflicting pair is written to the report file if there were any
+     * @param fileNames names of the files to merge with the current Tasks
+     * @param policy what to do when an incoming Task overlaps a current one
+     * @param reportFile name of the file to write the conflict report to
+     * @return true if the Tasks were merged, false if the merge was rejected or a file could not be read
+     */
+    public boolean merge(List<String> fileNames, TaskMerger.ConflictPolicy policy, String reportFile) {
+        long currMillis = (new Date()).getTime();
+        long startNanos = System.nanoTime();
+        ensureLoaded(Long.MAX_VALUE);
+        TaskMerger merger = new TaskMerger(policy, this::recurringConflict, "recurring task");
+        String fileName = String.join(", ", fileNames);
+        boolean merged = false;
+        try {
+            for (String name : fileNames) {
+                File file = new File(name);
+                if (!file.exists())
+                    throw new FileNotFoundException(name);
+                TaskImporter importer = merger.addFile(file, currMillis);
+                if (importer != null) {
+                    metrics.recordImport(importer.getLines(), importer.getTasksPerSecond());
+                    metrics.recordRejected("expired", importer.getExpiredLines());
+                }
+            }
+            snapshotLock.writeLock().lock();
+            try {
+                TaskStore mergedTasks = newStore();
+                merger.addCurrent(tasks);
+                merged = merger.merge(mergedTasks);
+                if (merged) {
+                    tasks = mergedTasks;
+                    gaps = new GapIndex(mergedTasks);
+                    search = null;
+                    writeSnapshot();
+                }
+            } finally {
+                snapshotLock.writeLock().unlock();
+            }
+            metrics.recordRejected("overlap", merger.getConflicts());
+            System.out.println(merger.summary() + ".");
+            if (merger.getConflicts() > 0) {
+                try {
+                    Writer reportWriter = new BufferedWriter(new FileWriter(reportFile));
+                    merger.writeReport(reportWriter);
+                    reportWriter.close();
+                    System.out.println("Conflicts written to " + reportFile + "!");
+                } catch (IOException e) {
+                    metrics.recordError("io", reportFile, 0, e.toString());
+                    System.out.println("Unable to write " + reportFile + "!");
+                }
+            }
+        } catch (FileNotFoundException e) {
+            metrics.recordError("io", e.getMessage(), 0, "File not found");
+            System.out.println("File " + e.getMessage() + " not found!");
+        } catch (TaskFormatException e) {
+            metrics.recordRejected("format", 1);
+            metrics.recordError("format", e.getFileName() == null ? fileName : e.getFileName(), e.getLine(),
+                    e.getMessage());
+            System.out.println(e.getMessage());
+        } catch (IOException e) {
+            metrics.recordError("io", fileName, 0, e.toString());
+            System.out.println("Unable to read " + fileName + "!");
+        }
+        metrics.recordLoad(System.nanoTime() - startNanos, merged);
+        ReminderService service = reminders;
+        if (merged && service != null)
+            service.reload();
+        return merged;
+    }
+
+    /**
+     * Writes all Tasks to a fresh snapshot of the data file, then empties the journal since its records are now
+     * part of the snapshot. The snapshot is written to a temporary file and renamed over the data file, so a crash
+     * part way through leaves the previous snapshot and journal intact. The snapshot keeps the format the data file
+     * was loaded in, either text or binary (see BinaryTaskFile). No Task can be added or deleted while saving.
+     */
+    public void save() {
+        snapshotLock.writeLock().lock();
+        try {
+            writeSnapshot();
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
     }
 
     /**
-     * Creates data.txt file if it doesn't already exist, and writes all Tasks to it in a particular format.
+     * Writes the snapshot for save(), which must hold the snapshot lock
      */
-    public static void save() {
-        File taskData = new File("data.txt");
+    private void writeSnapshot() {
+        long startNanos = System.nanoTime();
+        boolean saved = false;
+        File tempData = new File(dataFile + ".tmp");
         try {
-            taskData.createNewFile();
+            FileOutputStream out = new FileOutputStream(tempData);
+            DayIndex index = null;
+            if (binaryData) {
+                BinaryTaskFile.write(out, tasks, tasks.size());
+            } else {
+                index = writeText(out);
+            }
+            out.getFD().sync();
+            out.close();
+            Files.move(tempData.toPath(), new File(dataFile).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            journal.reset();
+            saved = true;
+            dayIndex = index;
+            if (index != null) {
+                try {
+                    index.write(new File(indexFile), new File(dataFile));
+                } catch (IOException e) {
+                    metrics.recordError("io", indexFile, 0, e.toString());
+                }
+            }
+            if (search != null) {
+                try {
+                    search.write(new File(searchFile), new File(dataFile));
+                } catch (IOException e) {
+                    metrics.recordError("io", searchFile, 0, e.toString());
+                }
+            }
         } catch (IOException e) {
+            metrics.recordError("io", dataFile, 0, e.toString());
             System.out.println("Unable to save data!");
-            return;
         }
+        metrics.recordSave(System.nanoTime() - startNanos, saved);
+    }
+
+    /**
+     * Writes the text snapshot for writeSnapshot(), one line per Task, noting where each day's Tasks start for
+     * the day index. After a windowed load, the days never paged in are copied over from the old data file as
+     * they are, so saving does not read them either
+     * @param out stream to write the snapshot to
+     * @return day index of the snapshot
+     * @throws IOException if the snapshot could not be written or the old data file could not be read
+     */
+    private DayIndex writeText(FileOutputStream out) throws IOException {
+        DayIndex.Builder index = new DayIndex.Builder();
+        BufferedOutputStream fileWriter = new BufferedOutputStream(out);
+        Charset charset = Charset.defaultCharset();
+        long offset = 0;
+        for (Task t : tasks) {
+            byte[] line = (t.getData() + '\n').getBytes(charset);
+            index.add(t.getSchedTime().getMillis(), t.getSchedTimeEnd().getMillis(), offset);
+            fileWriter.write(line);
+            offset += line.length;
+        }
+        fileWriter.flush();
+        if (loadedTo != Long.MAX_VALUE) {
+            int firstUnread = dayIndex.bucketAtOrAfter(DayIndex.dayOf(loadedTo));
+            if (firstUnread < dayIndex.size()) {
+                long unreadOffset = dayIndex.getOffset(firstUnread);
+                try (FileChannel old = FileChannel.open(new File(dataFile).toPath())) {
+                    long position = unreadOffset;
+                    long length = old.size();
+                    while (position < length)
+                        position += old.transferTo(position, length - position, out.getChannel());
+                }
+                index.addCopied(dayIndex, firstUnread, offset - unreadOffset);
+            }
+        }
+        return index.build();
+    }
+
+    /**
+     * Writes all recurring Tasks to the recurring Tasks file beside the data file, one per line, through a
+     * temporary file in the same way as save(). Must be called holding the snapshot lock
+     */
+    private void saveRecurring() {
+        File tempRecurring = new File(recurringFile + ".tmp");
         try {
-            FileWriter fileWriter = new FileWriter("data.txt");
-            for (Task t : tasks) {
-                fileWriter.write(t.getData() + '\n');
+            FileOutputStream out = new FileOutputStream(tempRecurring);
+            BufferedWriter fileWriter = new BufferedWriter(new OutputStreamWriter(out));
+            for (RecurringTask r : recurring) {
+                fileWriter.write(r.getData() + '\n');
             }
-            fileWriter.close();
+            fileWriter.flush();
+            out.getFD().sync();
+            out.close();
+            Files.move(tempRecurring.toPath(), new File(recurringFile).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            metrics.recordError("io", recurringFile, 0, e.toString());
+            System.out.println("Unable to save data!");
+        }
+    }
+
+    /**
+     * Reads the recurring Tasks file beside the data file, leaving out series whose occurrences have all finished
+     * @param currMillis current time in milliseconds
+     * @return recurring Tasks read, or an empty list if there is no such file
+     */
+    private List<RecurringTask> readRecurring(long currMillis) throws IOException {
+        ArrayList<RecurringTask> series = new ArrayList<>();
+        File file = new File(recurringFile);
+        if (!file.exists())
+            return series;
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(file.toPath())) {
+            lineNumber++;
+            if (line.equals(""))
+                continue;
+            RecurringTask r;
+            try {
+                r = new RecurringTask(line);
+            } catch (RuntimeException e) {
+                throw new TaskFormatException("Formatting error in " + recurringFile + " at line " + lineNumber + "!",
+                        recurringFile, lineNumber);
+            }
+            if (!r.isFinished(currMillis))
+                series.add(r);
+        }
+        return series;
+    }
+
+    /**
+     * Folds the journal into a new snapshot once it holds more records than there are Tasks, so each change
+     * costs O(1) writes on average while replaying the journal at startup stays cheap. The snapshot is written
+     * on a background thread shared by all Schedules, so the change that crosses the limit does not wait for
+     * it, and only one snapshot per Schedule is ever pending.
+     */
+    private void compactIfNeeded() {
+        if (journal.size() <= Math.max(MIN_COMPACT_RECORDS, tasks.size()) || !compacting.compareAndSet(false, true))
+            return;
+        compaction = CompletableFuture.runAsync(() -> {
+            snapshotLock.writeLock().lock();
+            try {
+                if (journal.size() > Math.max(MIN_COMPACT_RECORDS, tasks.size()))
+                    writeSnapshot();
+            } finally {
+                snapshotLock.writeLock().unlock();
+                compacting.set(false);
+            }
+        }, COMPACTOR);
+    }
+
+    /**
+     * Sets the ReminderService to tell about each Task added or removed from now on, so it can arm or cancel
+     * the Task's reminder, and to re-arm after a load or merge replaces the Tasks. The service is told after
+     * this Schedule's locks are released, since it reads Tasks back while holding its own lock
+     * @param reminders service to tell, or null to stop telling one
+     */
+    public void setReminders(ReminderService reminders) {
+        this.reminders = reminders;
+    }
+
+    /**
+     * Sets how long a change may wait before its journal record is written to disk. Changes made within that
+     * time of each other are written and synced together by a background thread (see TaskJournal)
+     * @param millis maximum delay in milliseconds
+     */
+    public void setFlushDelay(long millis) {
+        journal.setMaxDelay(millis);
+    }
+
+    /**
+     * Writes every change made so far to disk before returning, for callers that need a change to be durable
+     * before they carry on, such as before replying to a client
+     * @return true if the changes were written, false if the journal could not be written
+     */
+    public boolean flush() {
+        try {
+            journal.flush();
+            return true;
         } catch (IOException e) {
+            metrics.recordError("io", journalFile, 0, e.toString());
             System.out.println("Unable to save data!");
+            return false;
         }
     }
 
     /**
      * Converts all lines of given file to Tasks and loads them to Task list. If an error in the formatting
-     * of the file is found, the Tasks will not be loaded into the list.
+     * of the file is found, the Tasks will not be loaded into the list. Text files are parsed in parallel
+     * by TaskImporter, which names the first bad line, and imports report how many Tasks were loaded per
+     * second. Files starting with the binary magic number are read with BinaryTaskFile instead. When loading
+     * this Schedule's data file, the changes recorded in the journal since the snapshot was written are
+     * replayed on top of it, and its recurring Tasks are read too. Occurrences of recurring Tasks are checked
+     * against the Tasks loaded without expanding whole series; imports keep the current recurring Tasks.
+     * Finished Tasks are left out, except that with archiving on the data file's finished Tasks are loaded
+     * and then archived by expireFinished(). With a load window set (see setLoadWindow()) and a valid day index
+     * beside the data file, only the days from the first unfinished Task to the end of the window, and any
+     * days the journal touches, are read.
      * @param fileName name of file to load Task data from
      */
-    public static void load(String fileName) {
+    public void load(String fileName) {
         long currMillis = (new Date()).getTime();
+        boolean isData = fileName.equals(dataFile);
+        long keepAfter = isData && archiving ? Long.MIN_VALUE : currMillis;
+        long startNanos = System.nanoTime();
+        boolean loaded = false;
         try {
             File taskData = new File(fileName);
-            Scanner fileSc = new Scanner(taskData);
-            ArrayList<Task> tempTasks = new ArrayList<>();
-            while (fileSc.hasNextLine()) {
-                Task t = new Task(fileSc.nextLine());
-                if (currMillis < t.getSchedTimeEnd().getMillis())
-                    tempTasks.add(t);
-            }
-            Collections.sort(tempTasks);
-            for (int i = 0; i < tempTasks.size() - 1; i++) {
-                if (tempTasks.get(i).getSchedTimeEnd().getMillis() > tempTasks.get(i+1).getSchedTime().getMillis()) {
-                    System.out.println(fileName + " contains overlapping tasks!");
-                    return;
+            if (!isData && !taskData.exists())
+                throw new FileNotFoundException(fileName);
+            boolean binary = BinaryTaskFile.isBinary(taskData);
+            TaskStore tempTasks = newStore();
+            DayIndex index = isData && !binary && loadWindowDays > 0 ? DayIndex.read(new File(indexFile), taskData) : null;
+            long tempLoadedTo = Long.MAX_VALUE;
+            if (index != null) {
+                long windowStartNanos = System.nanoTime();
+                long untilDay = DayIndex.dayOf(currMillis) + loadWindowDays;
+                long journalEnd = journal.latestEnd();
+                if (journalEnd != Long.MIN_VALUE)
+                    untilDay = Math.max(untilDay, DayIndex.dayOf(journalEnd - 1) + 1);
+                int lines = readDays(index, index.firstEndingAfter(keepAfter), untilDay, keepAfter, tempTasks, null);
+                if (index.size() > 0 && untilDay <= index.getDay(index.size() - 1))
+                    tempLoadedTo = DayIndex.startOfDay(untilDay);
+                long elapsedNanos = System.nanoTime() - windowStartNanos;
+                metrics.recordImport(lines, elapsedNanos > 0 ? tempTasks.size() / (elapsedNanos / 1e9) : 0.0);
+            } else if (binary) {
+                int expiredRecords = 0;
+                for (Task t : BinaryTaskFile.read(taskData)) {
+                    if (keepAfter >= t.getSchedTimeEnd().getMillis())
+                        expiredRecords++;
+                    else if (!tempTasks.add(t))
+                        throw new TaskConflictException(tempTasks.conflicting(t.getSchedTime().getMillis(),
+                                t.getSchedTimeEnd().getMillis()), t);
+                }
+                metrics.recordRejected("expired", expiredRecords);
+            } else if (!isData || taskData.exists()) {
+                TaskImporter importer = new TaskImporter(taskData, keepAfter);
+                importer.load(tempTasks);
+                metrics.recordImport(importer.getLines(), importer.getTasksPerSecond());
+                metrics.recordRejected("expired", importer.getExpiredLines());
+                if (!isData)
+                    System.out.println(importer.summary());
+            }
+            List<RecurringTask> tempRecurring = isData ? readRecurring(currMillis) : recurring;
+            SearchIndex tempSearch = isData ? SearchIndex.read(new File(searchFile), taskData) : null;
+            snapshotLock.writeLock().lock();
+            try {
+                boolean journalIntact = !isData || journal.replay(tempTasks, keepAfter, tempSearch);
+                if (tempSearch != null) {
+                    Task first = tempTasks.first();
+                    tempSearch.removeBefore(first != null ? first.getSchedTime().getMillis() : tempLoadedTo);
+                }
+                for (RecurringTask r : tempRecurring) {
+                    Task[] conflict = findConflict(r, tempTasks, tempRecurring, currMillis);
+                    if (conflict != null)
+                        throw new TaskConflictException(conflict[0], conflict[1]);
+                }
+                if (isData) {
+                    recurring.clear();
+                    recurring.addAll(tempRecurring);
+                }
+                tasks = tempTasks;
+                gaps = new GapIndex(tempTasks);
+                dayIndex = index;
+                loadedTo = tempLoadedTo;
+                search = tempSearch;
+                if (isData)
+                    binaryData = binary;
+                if (!journalIntact) {
+                    metrics.recordRejected("journal", 1);
+                    metrics.recordError("journal", journalFile, 0, "Damaged record; the rest of the journal was dropped");
+                    writeSnapshot();
                 }
+            } finally {
+                snapshotLock.writeLock().unlock();
             }
-            tasks.clear();
-            tasks.addAll(tempTasks);
+            loaded = true;
+            if (keepAfter != currMillis)
+                expireFinished(currMillis);
+            ReminderService service = reminders;
+            if (service != null)
+                service.reload();
         } catch (FileNotFoundException e) {
-            if (!fileName.equals("data.txt"))
-                System.out.println("File " + fileName + " not found!");
+            metrics.recordError("io", fileName, 0, "File not found");
+            System.out.println("File " + fileName + " not found!");
+        } catch (TaskConflictException e) {
+            metrics.recordRejected("overlap", 1);
+            metrics.recordError("overlap", fileName, 0, e.getMessage());
+            System.out.println(fileName + " contains overlapping tasks! " + e.getMessage() + ".");
+        } catch (TaskFormatException e) {
+            metrics.recordRejected("format", 1);
+            metrics.recordError("format", e.getFileName() == null ? fileName : e.getFileName(), e.getLine(),
+                    e.getMessage());
+            System.out.println(e.getMessage());
+        } catch (IOException e) {
+            metrics.recordError("io", fileName, 0, e.toString());
+            System.out.println("Unable to read " + fileName + "!");
         } catch (Exception e) {
+            metrics.recordError("format", fileName, 0, e.toString());
             System.out.println("Formatting error in " + fileName + "!");
         }
+        metrics.recordLoad(System.nanoTime() - startNanos, loaded);
+    }
+
+    /**
+     * Waits for any snapshot being written in the background, syncs the journal to disk and closes it, and stops
+     * publishing metrics
+     */
+    public void close() {
+        metrics.unregister();
+        CompletableFuture<Void> pending = compaction;
+        if (pending != null)
+            pending.join();
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.out.println("Unable to save data!");
+        }
     }
 
     /**
-     * Loads Task data from data.txt, then asks the user to pick between 6 options: See all tasks, enter a new task,
-     * delete an old task, export the current schedule to a file, import a schedule from a file, and exit.
-     * Calls methods accordingly, continues asking until user chooses Exit.
+     * Loads Task data from data.txt, then asks the user to pick between 9 options: See all tasks, enter a new task,
+     * delete an old task, export the current schedule to a file, import a schedule from a file, schedule a new
+     * task at the next free time, manage recurring tasks, auto-schedule a batch of tasks from a file, and exit.
+     * Calls methods accordingly, continues asking until user chooses Exit. Run with --serve [port] to serve
+     * requests over a local socket with ScheduleServer instead of showing the menu. Finished Tasks are removed
+     * in the background by ExpirySweeper; run with --archive to keep them in data.archive. Metrics are
+     * published over JMX by ScheduleMetrics. Run with --compact to hold Tasks in a CompactTaskStore. Run with
+     * --calendars dir to keep many named calendars in a directory with CalendarCatalog, all loaded in parallel at
+     * startup, with the menu and unnamed server requests using the calendar called data. Startup reads only the
+     * next 14 days of Tasks, paging in later days as they are reached; run with --window days to change that,
+     * or --window 0 to read everything. Changes are journaled in the background within 10 milliseconds; run with
+     * --flush-delay millis to change that. Run with --remind minutes to be reminded that many minutes before each
+     * Task of the data calendar starts, on the console and also in a log file with --remind-log file or sent to a
+     * local port with --remind-port port (see ReminderService). Choosing Exit, or stopping the program any other
+     * way, runs a shutdown hook that writes every pending change before the process ends.
      */
     public static void main(String[] args) {
-        load("data.txt");
+        List<String> options = Arrays.asList(args);
+        int window = options.indexOf("--window");
+        int windowDays = window != -1 && window + 1 < args.length ? Integer.parseInt(args[window + 1]) :
+                DEFAULT_LOAD_WINDOW_DAYS;
+        int flush = options.indexOf("--flush-delay");
+        long flushDelay = flush != -1 && flush + 1 < args.length ? Long.parseLong(args[flush + 1]) : -1;
+        int calendars = options.indexOf("--calendars");
+        CalendarCatalog catalog = null;
+        Schedule schedule;
+        ExpirySweeper sweeper;
+        if (calendars != -1 && calendars + 1 < args.length) {
+            catalog = new CalendarCatalog(args[calendars + 1], options.contains("--compact"),
+                    options.contains("--archive"));
+            catalog.setLoadWindow(windowDays);
+            if (flushDelay >= 0)
+                catalog.setFlushDelay(flushDelay);
+            catalog.loadAll();
+            schedule = catalog.create(DEFAULT_CALENDAR);
+            sweeper = new ExpirySweeper(catalog.loadedCalendars());
+        } else {
+            schedule = new Schedule(DATA_FILE, options.contains("--compact"));
+            schedule.setArchiving(options.contains("--archive"));
+            schedule.setLoadWindow(windowDays);
+            if (flushDelay >= 0)
+                schedule.setFlushDelay(flushDelay);
+            schedule.load(DATA_FILE);
+            try {
+                schedule.getMetrics().register();
+            } catch (JMException e) {
+                System.out.println("Unable to publish metrics!");
+            }
+            sweeper = new ExpirySweeper(schedule);
+        }
+        sweeper.start();
+        int remind = options.indexOf("--remind");
+        ReminderService reminders = remind != -1 && remind + 1 < args.length ?
+                new ReminderService(schedule, Integer.parseInt(args[remind + 1])) : null;
+        if (reminders != null) {
+            reminders.addListener(ReminderService.console());
+            int remindLog = options.indexOf("--remind-log");
+            if (remindLog != -1 && remindLog + 1 < args.length)
+                reminders.addListener(ReminderService.logFile(args[remindLog + 1]));
+            int remindPort = options.indexOf("--remind-port");
+            if (remindPort != -1 && remindPort + 1 < args.length)
+                reminders.addListener(ReminderService.socket(Integer.parseInt(args[remindPort + 1])));
+            reminders.start();
+        }
+        Runnable shutdown = catalog == null ? schedule::close : catalog::close;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (reminders != null)
+                reminders.close();
+            sweeper.close();
+            shutdown.run();
+        }, "schedule-shutdown"));
+        int serve = options.indexOf("--serve");
+        if (serve != -1) {
+            int port = serve + 1 < args.length && !args[serve + 1].startsWith("--") ?
+                    Integer.parseInt(args[serve + 1]) : ScheduleServer.DEFAULT_PORT;
+            try {
+                ScheduleServer server = catalog == null ? new ScheduleServer(schedule, port) :
+                        new ScheduleServer(catalog, DEFAULT_CALENDAR, port);
+                server.serve();
+            } catch (IOException e) {
+                System.out.println("Unable to serve on port " + port + "!");
+            }
+            return;
+        }
         Scanner sc = new Scanner(System.in);
 
         while (true) {
             System.out.println("\n--------------------------------------------------------------");
             System.out.println("What would you like to do? Enter the corresponding number.");
-            System.out.print("See tasks(1), New task(2), Delete task(3), Export schedule to file(4), Import schedule from file(5), Exit(6): ");
+            System.out.print("See tasks(1), New task(2), Delete task(3), Export schedule to file(4), Import schedule from file(5), Schedule at next free time(6), Recurring tasks(7), Auto-schedule tasks from file(8), Exit(9): ");
             String choice = "";
 
             while (choice.equals("")) {
@@ -307,23 +2154,31 @@ public class Schedule {
                 System.out.println();
                 switch (choice) {
                     case "1":
-                        printAllTasks(false);
+                        schedule.seeTasks();
                         break;
                     case "2":
-                        newTask();
+                        schedule.newTask();
                         break;
                     case "3":
-                        deleteTask();
+                        schedule.deleteTask();
                         break;
                     case "4":
-                        exportToFile();
+                        schedule.exportToFile();
                         break;
                     case "5":
-                        importFromFile();
+                        schedule.importFromFile();
                         break;
                     case "6":
-                        System.exit(0);
+                        schedule.scheduleAtNextFreeTime();
+                        break;
+                    case "7":
+                        schedule.recurringMenu();
+                        break;
+                    case "8":
+                        schedule.autoScheduleFromFile();
                         break;
+                    case "9":
+                        return;
                     default:
                         System.out.print("Enter the number corresponding to the action you wish to take: ");
                         choice = "";
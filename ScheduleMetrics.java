@@ -0,0 +1,402 @@
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class ScheduleMetrics implements ScheduleMetricsMXBean {
+
+    private static final int MAX_ERRORS = 100;
+
+    private final Schedule schedule;
+    private final LatencyHistogram saves = new LatencyHistogram();
+    private final LatencyHistogram loads = new LatencyHistogram();
+    private final LatencyHistogram adds = new LatencyHistogram();
+    private final AtomicLong saveFailures = new AtomicLong();
+    private final AtomicLong loadFailures = new AtomicLong();
+    private final AtomicLong addConflicts = new AtomicLong();
+    private final AtomicLong linesRead = new AtomicLong();
+    private final AtomicLong expiredTasks = new AtomicLong();
+    private final ConcurrentHashMap<String, AtomicLong> rejectedLines = new ConcurrentHashMap<>();
+    private final ArrayDeque<String> recentErrors = new ArrayDeque<>();
+    private volatile double lastImportTasksPerSecond;
+    private ObjectName name;
+
+    /**
+     * Creates ScheduleMetrics counting operations on the Schedule given. The Schedule records each operation
+     * as it happens; call register() to publish the metrics over JMX
+     * @param schedule Schedule being measured
+     */
+    public ScheduleMetrics(Schedule schedule) {
+        this.schedule = schedule;
+    }
+
+    /**
+     * Publishes the metrics on the platform MBean server, under the name
+     * Schedule:type=ScheduleMetrics,file="data file name", so JConsole or any JMX client can read them
+     * @throws JMException if the metrics could not be registered
+     */
+    public synchronized void register() throws JMException {
+        if (name != null)
+            return;
+        ObjectName objectName = new ObjectName("Schedule:type=ScheduleMetrics,file=" +
+                ObjectName.quote(schedule.getDataFile()));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        name = objectName;
+    }
+
+    /**
+     * Removes the metrics from the platform MBean server, if they were registered
+     */
+    public synchronized void unregister() {
+        if (name == null)
+            return;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(name);
+        } catch (JMException e) {
+            // already unregistered
+        }
+        name = null;
+    }
+
+    /**
+     * Records a snapshot being saved
+     * @param nanos time taken in nanoseconds
+     * @param succeeded whether the snapshot was saved
+     */
+    public void recordSave(long nanos, boolean succeeded) {
+        saves.record(nanos);
+        if (!succeeded)
+            saveFailures.incrementAndGet();
+    }
+
+    /**
+     * Records a file being loaded or imported
+     * @param nanos time taken in nanoseconds
+     * @param succeeded whether the file was loaded
+     */
+    public void recordLoad(long nanos, boolean succeeded) {
+        loads.record(nanos);
+        if (!succeeded)
+            loadFailures.incrementAndGet();
+    }
+
+    /**
+     * Records a Task being offered to addTask()
+     * @param nanos time taken in nanoseconds, including the conflict check
+     * @param conflicted whether the Task was turned down for conflicting with another Task
+     */
+    public void recordAdd(long nanos, boolean conflicted) {
+        adds.record(nanos);
+        if (conflicted)
+            addConflicts.incrementAndGet();
+    }
+
+    /**
+     * Records a text Task file being parsed
+     * @param lines number of lines read
+     * @param tasksPerSecond Tasks loaded per second
+     */
+    public void recordImport(int lines, double tasksPerSecond) {
+        linesRead.addAndGet(lines);
+        lastImportTasksPerSecond = tasksPerSecond;
+    }
+
+    /**
+     * Records lines or records being left out of a load
+     * @param reason why they were left out: expired, format, overlap or journal
+     * @param count number of lines left out
+     */
+    public void recordRejected(String reason, long count) {
+        if (count > 0)
+            rejectedLines.computeIfAbsent(reason, r -> new AtomicLong()).addAndGet(count);
+    }
+
+    /**
+     * Records finished Tasks being removed while running
+     * @param count number of Tasks removed
+     */
+    public void recordExpired(int count) {
+        expiredTasks.addAndGet(count);
+    }
+
+    /**
+     * Records an error event, keeping the most recent MAX_ERRORS of them
+     * @param kind short name for the kind of error, such as format, overlap or io
+     * @param fileName name of the file the error concerns, or null if none
+     * @param line number of the line or record the error was found on, or 0 if unknown
+     * @param message description of the error
+     */
+    public void recordError(String kind, String fileName, int line, String message) {
+        String event = Instant.now() + " " + kind + " " + (fileName == null ? "-" : fileName) +
+                (line > 0 ? ":" + line : "") + " " + message;
+        synchronized (recentErrors) {
+            if (recentErrors.size() == MAX_ERRORS)
+                recentErrors.removeFirst();
+            recentErrors.addLast(event);
+        }
+    }
+
+    /**
+     * Gets the number of Tasks in the Schedule
+     * @return number of Tasks
+     */
+    @Override
+    public long getTaskCount() {
+        return schedule.size();
+    }
+
+    /**
+     * Gets the number of recurring Tasks in the Schedule
+     * @return number of recurring Tasks
+     */
+    @Override
+    public int getRecurringTaskCount() {
+        return schedule.getRecurringTasks().size();
+    }
+
+    /**
+     * Gets the heap in use divided by the number of Tasks, a rough guide to memory use per Task
+     * @return heap bytes in use per Task, or 0 if there are no Tasks
+     */
+    @Override
+    public long getHeapBytesPerTask() {
+        long count = schedule.size();
+        Runtime runtime = Runtime.getRuntime();
+        return count == 0 ? 0 : (runtime.totalMemory() - runtime.freeMemory()) / count;
+    }
+
+    /**
+     * Gets the number of snapshots saved
+     * @return number of saves
+     */
+    @Override
+    public long getSaveCount() {
+        return saves.getCount();
+    }
+
+    /**
+     * Gets the number of saves that failed
+     * @return number of failed saves
+     */
+    @Override
+    public long getSaveFailures() {
+        return saveFailures.get();
+    }
+
+    /**
+     * Gets the median save latency
+     * @return median save latency in microseconds, to within a factor of two
+     */
+    @Override
+    public long getSaveP50Micros() {
+        return saves.getPercentileNanos(50) / 1000;
+    }
+
+    /**
+     * Gets the 99th percentile save latency
+     * @return 99th percentile save latency in microseconds, to within a factor of two
+     */
+    @Override
+    public long getSaveP99Micros() {
+        return saves.getPercentileNanos(99) / 1000;
+    }
+
+    /**
+     * Gets the longest save latency
+     * @return longest save latency in microseconds
+     */
+    @Override
+    public long getSaveMaxMicros() {
+        return saves.getMaxNanos() / 1000;
+    }
+
+    /**
+     * Gets the number of loads and imports
+     * @return number of loads
+     */
+    @Override
+    public long getLoadCount() {
+        return loads.getCount();
+    }
+
+    /**
+     * Gets the number of loads and imports that failed
+     * @return number of failed loads
+     */
+    @Override
+    public long getLoadFailures() {
+        return loadFailures.get();
+    }
+
+    /**
+     * Gets the median load latency
+     * @return median load latency in microseconds, to within a factor of two
+     */
+    @Override
+    public long getLoadP50Micros() {
+        return loads.getPercentileNanos(50) / 1000;
+    }
+
+    /**
+     * Gets the 99th percentile load latency
+     * @return 99th percentile load latency in microseconds, to within a factor of two
+     */
+    @Override
+    public long getLoadP99Micros() {
+        return loads.getPercentileNanos(99) / 1000;
+    }
+
+    /**
+     * Gets the longest load latency
+     * @return longest load latency in microseconds
+     */
+    @Override
+    public long getLoadMaxMicros() {
+        return loads.getMaxNanos() / 1000;
+    }
+
+    /**
+     * Gets the number of Tasks offered to addTask(), whether or not they were added
+     * @return number of add attempts
+     */
+    @Override
+    public long getAddCount() {
+        return adds.getCount();
+    }
+
+    /**
+     * Gets the number of Tasks addTask() turned down because they conflicted with another Task
+     * @return number of conflicts
+     */
+    @Override
+    public long getAddConflicts() {
+        return addConflicts.get();
+    }
+
+    /**
+     * Gets the median latency of addTask(), including its conflict check
+     * @return median add latency in microseconds, to within a factor of two
+     */
+    @Override
+    public long getAddP50Micros() {
+        return adds.getPercentileNanos(50) / 1000;
+    }
+
+    /**
+     * Gets the 99th percentile latency of addTask(), including its conflict check
+     * @return 99th percentile add latency in microseconds, to within a factor of two
+     */
+    @Override
+    public long getAddP99Micros() {
+        return adds.getPercentileNanos(99) / 1000;
+    }
+
+    /**
+     * Gets the longest latency of addTask()
+     * @return longest add latency in microseconds
+     */
+    @Override
+    public long getAddMaxMicros() {
+        return adds.getMaxNanos() / 1000;
+    }
+
+    /**
+     * Gets the number of lines read from text Task files
+     * @return number of lines read
+     */
+    @Override
+    public long getLinesRead() {
+        return linesRead.get();
+    }
+
+    /**
+     * Gets the parse rate of the last text Task file loaded
+     * @return Tasks loaded per second
+     */
+    @Override
+    public double getLastImportTasksPerSecond() {
+        return lastImportTasksPerSecond;
+    }
+
+    /**
+     * Gets the number of lines or records left out of loads, by reason: expired, format, overlap or journal
+     * @return number of lines left out for each reason
+     */
+    @Override
+    public Map<String, Long> getRejectedLines() {
+        TreeMap<String, Long> counts = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong> e : rejectedLines.entrySet())
+            counts.put(e.getKey(), e.getValue().get());
+        return counts;
+    }
+
+    /**
+     * Gets the number of finished Tasks removed while running
+     * @return number of Tasks expired
+     */
+    @Override
+    public long getExpiredTasks() {
+        return expiredTasks.get();
+    }
+
+    /**
+     * Gets the most recent error events, newest last, each naming the kind of error, the file and line it
+     * was found at, and its message
+     * @return recent error events
+     */
+    @Override
+    public String[] getRecentErrors() {
+        synchronized (recentErrors) {
+            return recentErrors.toArray(new String[0]);
+        }
+    }
+
+    /**
+     * Gets every metric as a line of text, in the form name value, for scraping without a JMX client (see the
+     * METRICS request of ScheduleServer). Error events are left out
+     * @return one line per metric
+     */
+    public List<String> scrape() {
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add("schedule_tasks " + getTaskCount());
+        lines.add("schedule_recurring_tasks " + getRecurringTaskCount());
+        lines.add("schedule_heap_bytes_per_task " + getHeapBytesPerTask());
+        addHistogram(lines, "schedule_save", saves, saveFailures.get(), "failures");
+        addHistogram(lines, "schedule_load", loads, loadFailures.get(), "failures");
+        addHistogram(lines, "schedule_add", adds, addConflicts.get(), "conflicts");
+        lines.add("schedule_lines_read " + getLinesRead());
+        lines.add("schedule_last_import_tasks_per_second " + Math.round(getLastImportTasksPerSecond()));
+        for (Map.Entry<String, Long> e : getRejectedLines().entrySet())
+            lines.add("schedule_rejected_lines{reason=\"" + e.getKey() + "\"} " + e.getValue());
+        lines.add("schedule_expired_tasks " + getExpiredTasks());
+        return lines;
+    }
+
+    /**
+     * Adds the lines for one latency histogram to a scrape
+     * @param lines lines scraped so far
+     * @param prefix name the histogram's metrics start with
+     * @param histogram histogram to add
+     * @param failures number of operations that failed or were turned down
+     * @param failureName name of the failure count
+     */
+    private static void addHistogram(List<String> lines, String prefix, LatencyHistogram histogram, long failures,
+                                     String failureName) {
+        lines.add(prefix + "_count " + histogram.getCount());
+        lines.add(prefix + "_" + failureName + " " + failures);
+        lines.add(prefix + "_micros{quantile=\"0.5\"} " + histogram.getPercentileNanos(50) / 1000);
+        lines.add(prefix + "_micros{quantile=\"0.99\"} " + histogram.getPercentileNanos(99) / 1000);
+        lines.add(prefix + "_micros_max " + histogram.getMaxNanos() / 1000);
+        lines.add(prefix + "_micros_mean " + histogram.getMeanNanos() / 1000);
+    }
+
+}
@@ -0,0 +1,144 @@
+import java.util.Map;
+
+public interface ScheduleMetricsMXBean {
+
+    /**
+     * Gets the number of Tasks in the Schedule
+     * @return number of Tasks
+     */
+    long getTaskCount();
+
+    /**
+     * Gets the number of recurring Tasks in the Schedule
+     * @return number of recurring Tasks
+     */
+    int getRecurringTaskCount();
+
+    /**
+     * Gets the heap in use divided by the number of Tasks, a rough guide to memory use per Task
+     * @return heap bytes in use per Task, or 0 if there are no Tasks
+     */
+    long getHeapBytesPerTask();
+
+    /**
+     * Gets the number of snapshots saved
+     * @return number of saves
+     */
+    long getSaveCount();
+
+    /**
+     * Gets the number of saves that failed
+     * @return number of failed saves
+     */
+    long getSaveFailures();
+
+    /**
+     * Gets the median save latency
+     * @return median save latency in microseconds, to within a factor of two
+     */
+    long getSaveP50Micros();
+
+    /**
+     * Gets the 99th percentile save latency
+     * @return 99th percentile save latency in microseconds, to within a factor of two
+     */
+    long getSaveP99Micros();
+
+    /**
+     * Gets the longest save latency
+     * @return longest save latency in microseconds
+     */
+    long getSaveMaxMicros();
+
+    /**
+     * Gets the number of loads and imports
+     * @return number of loads
+     */
+    long getLoadCount();
+
+    /**
+     * Gets the number of loads and imports that failed
+     * @return number of failed loads
+     */
+    long getLoadFailures();
+
+    /**
+     * Gets the median load latency
+     * @return median load latency in microseconds, to within a factor of two
+     */
+    long getLoadP50Micros();
+
+    /**
+     * Gets the 99th percentile load latency
+     * @return 99th percentile load latency in microseconds, to within a factor of two
+     */
+    long getLoadP99Micros();
+
+    /**
+     * Gets the longest load latency
+     * @return longest load latency in microseconds
+     */
+    long getLoadMaxMicros();
+
+    /**
+     * Gets the number of Tasks offered to addTask(), whether or not they were added
+     * @return number of add attempts
+     */
+    long getAddCount();
+
+    /**
+     * Gets the number of Tasks addTask() turned down because they conflicted with another Task
+     * @return number of conflicts
+     */
+    long getAddConflicts();
+
+    /**
+     * Gets the median latency of addTask(), including its conflict check
+     * @return median add latency in microseconds, to within a factor of two
+     */
+    long getAddP50Micros();
+
+    /**
+     * Gets the 99th percentile latency of addTask(), including its conflict check
+     * @return 99th percentile add latency in microseconds, to within a factor of two
+     */
+    long getAddP99Micros();
+
+    /**
+     * Gets the longest latency of addTask()
+     * @return longest add latency in microseconds
+     */
+    long getAddMaxMicros();
+
+    /**
+     * Gets the number of lines read from text Task files
+     * @return number of lines read
+     */
+    long getLinesRead();
+
+    /**
+     * Gets the parse rate of the last text Task file loaded
+     * @return Tasks loaded per second
+     */
+    double getLastImportTasksPerSecond();
+
+    /**
+     * Gets the number of lines or records left out of loads, by reason: expired, format, overlap or journal
+     * @return number of lines left out for each reason
+     */
+    Map<String, Long> getRejectedLines();
+
+    /**
+     * Gets the number of finished Tasks removed while running
+     * @return number of Tasks expired
+     */
+    long getExpiredTasks();
+
+    /**
+     * Gets the most recent error events, newest last, each naming the kind of error, the file and line it
+     * was found at, and its message
+     * @return recent error events
+     */
+    String[] getRecentErrors();
+
+}
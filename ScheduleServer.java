@@ -0,0 +1,252 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class ScheduleServer {
+
+    public static final int DEFAULT_PORT = 7070;
+
+    private final Schedule schedule;
+    private final CalendarCatalog catalog;
+    private final int port;
+
+    /**
+     * Creates ScheduleServer answering requests against the Schedule given. Requests are single lines with
+     * fields separated by the | character, which Task names and descriptions may not contain:
+     * ADD|name|description|date-time|minutes, DELETE|date-time, LIST|from-date-time|to-date-time[|limit],
+     * SEARCH|words[|from-date-time|to-date-time][|limit], FREE|after-date-time|minutes, FLUSH, METRICS and QUIT. Dates
+     * and times use the same format as newTask(), for example 2/15/21 3:30 PM. Each reply starts with OK or ERR; a LIST
+     * reply gives the number of Tasks found and is followed by one line per Task in the data file format. A LIST with a
+     * limit returns at most that many Tasks starting within the range; ask for the next page from a minute after the
+     * last Task returned. A SEARCH reply is given in the same way, listing the Tasks from now on, or within the range
+     * given, whose name or description contains every word (see Schedule.search()). A METRICS reply gives the number of
+     * metrics and is followed by one name value line per metric. Changes are written to disk in the background shortly
+     * after they are made; a FLUSH reply comes once every change before it is on disk
+     * @param schedule Schedule to serve
+     * @param port local port to listen on
+     */
+    public ScheduleServer(Schedule schedule, int port) {
+        this.schedule = schedule;
+        this.catalog = null;
+        this.port = port;
+    }
+
+    /**
+     * Creates ScheduleServer answering requests against the calendars of a CalendarCatalog. Requests on their
+     * own go to the default calendar, which is created if it does not exist yet, and CALENDAR|name|request sends
+     * any other request to the calendar named. Only calendars that already exist are served; clients cannot create
+     * new ones. CALENDARS lists the calendars' names, one per line after the count, and
+     * COMMONFREE|after-date-time|minutes|name,name,... gives the earliest time every calendar named is free for
+     * that long
+     * @param catalog catalog of calendars to serve
+     * @param defaultCalendar name of the calendar requests go to when none is named
+     * @param port local port to listen on
+     */
+    public ScheduleServer(CalendarCatalog catalog, String defaultCalendar, int port) {
+        this.schedule = catalog.create(defaultCalendar);
+        this.catalog = catalog;
+        this.port = port;
+    }
+
+    /**
+     * Listens on the loopback address, handling each connection on its own thread until the process exits.
+     * Connections get a virtual thread each when the Java runtime supports them, or a pooled platform thread
+     * otherwise
+     * @throws IOException if the port could not be listened on
+     */
+    public void serve() throws IOException {
+        ExecutorService executor = newConnectionExecutor();
+        try (ServerSocket serverSocket = new ServerSocket(port, 512, InetAddress.getLoopbackAddress())) {
+            System.out.println("Serving schedule on port " + serverSocket.getLocalPort() + ".");
+            while (true) {
+                Socket socket = serverSocket.accept();
+                executor.execute(() -> handle(socket));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Creates an executor running each task on a new virtual thread, looked up reflectively since virtual
+     * threads only exist from Java 21 on. Falls back to a cached pool of platform threads
+     * @return executor for connections
+     */
+    private static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Reads requests from a connection line by line and writes a reply to each, until the client sends QUIT
+     * or closes the connection
+     * @param socket connection to a client
+     */
+    private void handle(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(s.getOutputStream(), false, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null && !line.equals("QUIT")) {
+                out.print(handleRequest(line));
+                out.flush();
+            }
+        } catch (IOException e) {
+            // the client went away; nothing to clean up beyond closing the socket
+        }
+    }
+
+    /**
+     * Carries out a single request against the Schedule, or the calendar it names, applying the same validation
+     * as newTask()
+     * @param request request line
+     * @return reply to send, ending with a newline
+     */
+    public String handleRequest(String request) {
+        return handleRequest(schedule, request);
+    }
+
+    /**
+     * Carries out a single request against a Schedule
+     * @param schedule Schedule to carry the request out against
+     * @param request request line
+     * @return reply to send, ending with a newline
+     */
+    private String handleRequest(Schedule schedule, String request) {
+        String[] fields = request.split("\\|", -1);
+        try {
+            switch (fields[0]) {
+                case "CALENDAR": {
+                    if (catalog == null)
+                        return "ERR This server has no calendars\n";
+                    String[] parts = request.split("\\|", 3);
+                    if (parts.length != 3)
+                        return "ERR Usage: CALENDAR|name|request\n";
+                    Schedule calendar = catalog.get(parts[1]);
+                    if (calendar == null && !CalendarCatalog.isValidName(parts[1]))
+                        return "ERR Calendar names may only contain letters, digits, - and _\n";
+                    if (calendar == null)
+                        return "ERR Unknown calendar: " + parts[1] + "\n";
+                    return handleRequest(calendar, parts[2]);
+                }
+                case "CALENDARS": {
+                    if (catalog == null)
+                        return "ERR This server has no calendars\n";
+                    List<String> names = catalog.names();
+                    StringBuilder reply = new StringBuilder("OK ").append(names.size()).append('\n');
+                    for (String name : names)
+                        reply.append(name).append('\n');
+                    return reply.toString();
+                }
+                case "COMMONFREE": {
+                    if (catalog == null)
+                        return "ERR This server has no calendars\n";
+                    if (fields.length != 4)
+                        return "ERR Usage: COMMONFREE|after-date-time|minutes|name,name,...\n";
+                    int duration = Integer.parseInt(fields[2]);
+                    if (duration <= 0)
+                        return "ERR Task duration must be higher than 0 minutes\n";
+                    long after = Math.max(ScheduledTime.getInputMillis(fields[1]), System.currentTimeMillis());
+                    TimeSlot slot = catalog.findCommonFreeSlot(Arrays.asList(fields[3].split(",")), after, duration,
+                            null, null);
+                    if (slot == null)
+                        return "ERR No time found when all calendars are free\n";
+                    return "OK " + slot.getStart().dateTimeStr() + "\n";
+                }
+                case "ADD": {
+                    if (fields.length != 5)
+                        return "ERR Usage: ADD|name|description|date-time|minutes\n";
+                    Task t = new Task(fields[1], fields[2],
+                            new ScheduledTime(ScheduledTime.getInputMillis(fields[3])), Integer.parseInt(fields[4]));
+                    String invalid = Schedule.validate(t);
+                    if (invalid != null)
+                        return "ERR " + invalid + "\n";
+                    if (!schedule.addTask(t))
+                        return "ERR The new task's schedule conflicts with a previous task\n";
+                    return "OK " + t.getData() + "\n";
+                }
+                case "DELETE": {
+                    if (fields.length != 2)
+                        return "ERR Usage: DELETE|date-time\n";
+                    Task t = schedule.taskAt(ScheduledTime.getInputMillis(fields[1]));
+                    if (t == null || !schedule.removeTask(t))
+                        return "ERR No task starts at " + fields[1] + "\n";
+                    return "OK " + t.getData() + "\n";
+                }
+                case "LIST": {
+                    if (fields.length != 3 && fields.length != 4)
+                        return "ERR Usage: LIST|from-date-time|to-date-time[|limit]\n";
+                    long from = ScheduledTime.getInputMillis(fields[1]);
+                    long to = ScheduledTime.getInputMillis(fields[2]);
+                    int limit = fields.length == 4 ? Integer.parseInt(fields[3]) : 0;
+                    if (fields.length == 4 && limit <= 0)
+                        return "ERR Limit must be higher than 0\n";
+                    List<Task> found = limit > 0 ? schedule.tasksPage(from, to, limit) : schedule.tasksBetween(from, to);
+                    StringBuilder reply = new StringBuilder("OK ").append(found.size()).append('\n');
+                    for (Task t : found)
+                        reply.append(t.getData()).append('\n');
+                    return reply.toString();
+                }
+                case "SEARCH": {
+                    if (fields.length < 2 || fields.length > 5 || fields[1].trim().isEmpty())
+                        return "ERR Usage: SEARCH|words[|from-date-time|to-date-time][|limit]\n";
+                    long from = fields.length >= 4 ? ScheduledTime.getInputMillis(fields[2]) : System.currentTimeMillis();
+                    long to = fields.length >= 4 ? ScheduledTime.getInputMillis(fields[3]) : Long.MAX_VALUE;
+                    int limit = fields.length % 2 == 1 ? Integer.parseInt(fields[fields.length - 1]) : 0;
+                    if (fields.length % 2 == 1 && limit <= 0)
+                        return "ERR Limit must be higher than 0\n";
+                    List<Task> found = schedule.search(fields[1], from, to, limit);
+                    StringBuilder reply = new StringBuilder("OK ").append(found.size()).append('\n');
+                    for (Task t : found)
+                        reply.append(t.getData()).append('\n');
+                    return reply.toString();
+                }
+                case "FREE": {
+                    if (fields.length != 3)
+                        return "ERR Usage: FREE|after-date-time|minutes\n";
+                    int duration = Integer.parseInt(fields[2]);
+                    if (duration <= 0)
+                        return "ERR Task duration must be higher than 0 minutes\n";
+                    long after = Math.max(ScheduledTime.getInputMillis(fields[1]), System.currentTimeMillis());
+                    long free = schedule.findFreeSlot(after, duration);
+                    if (free == -1)
+                        return "ERR No free time found\n";
+                    return "OK " + new ScheduledTime(free).dateTimeStr() + "\n";
+                }
+                case "FLUSH": {
+                    if (!schedule.flush())
+                        return "ERR Unable to save data\n";
+                    return "OK\n";
+                }
+                case "METRICS": {
+                    List<String> metrics = schedule.getMetrics().scrape();
+                    StringBuilder reply = new StringBuilder("OK ").append(metrics.size()).append('\n');
+                    for (String metric : metrics)
+                        reply.append(metric).append('\n');
+                    return reply.toString();
+                }
+                default:
+                    return "ERR Unknown request: " + fields[0] + "\n";
+            }
+        } catch (TaskFormatException e) {
+            return "ERR Please enter dates and times in the format 2/15/21 3:30 PM\n";
+        } catch (NumberFormatException e) {
+            return "ERR Please enter an integer for the number of minutes or the limit\n";
+        } catch (IllegalArgumentException e) {
+            return "ERR " + e.getMessage() + "\n";
+        }
+    }
+
+}
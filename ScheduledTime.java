@@ -1,23 +1,36 @@
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.ResolverStyle;
+import java.time.temporal.ChronoField;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 public class ScheduledTime {
 
-    private static final DateFormat dispDateFormat = new SimpleDateFormat("EEEE, M/d/yy");
-    private static final DateFormat dispTimeFormat = new SimpleDateFormat("h:mm a");
-    private static final DateFormat inputDateTimeFormat = new SimpleDateFormat("M/d/yy h:mm a");
+    private static final ZoneId zone = ZoneId.systemDefault();
+    private static final DateTimeFormatter dispDateFormat = DateTimeFormatter.ofPattern("EEEE, M/d/yy");
+    private static final DateTimeFormatter dispTimeFormat = DateTimeFormatter.ofPattern("h:mm a");
+    private static final DateTimeFormatter inputDateTimeFormat = new DateTimeFormatterBuilder()
+            .parseCaseInsensitive()
+            .appendPattern("M/d/")
+            .appendValueReduced(ChronoField.YEAR, 2, 4, LocalDate.now(zone).minusYears(80))
+            .appendPattern(" h:mm a")
+            .toFormatter()
+            .withResolverStyle(ResolverStyle.STRICT);
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final int DATE_CACHE_SIZE = 64;
+    private static final AtomicReferenceArray<DateEntry> dateCache = new AtomicReferenceArray<>(DATE_CACHE_SIZE);
 
-    private Calendar calendar;
+    private final long millis;
 
     /**
      * Creates ScheduledTime object based on milliseconds given
      * @param millis milliseconds since the start of 1970, determining time
      */
     public ScheduledTime(long millis) {
-        calendar = Calendar.getInstance();
-        calendar.setTimeInMillis(millis);
+        this.millis = millis;
     }
 
     /**
@@ -25,49 +38,95 @@ public class ScheduledTime {
      * @return time in milliseconds
      */
     public long getMillis() {
-        return calendar.getTimeInMillis();
+        return millis;
     }
 
     /**
-     * Gets time in milliseconds of date and time in param based on SimpleDateFormat above,
-     * throwing a TaskFormatException if format does not match
+     * Gets time in milliseconds of date and time in param, in the format of "inputDateTimeFormat" above,
+     * throwing a TaskFormatException if format does not match. Parsed by TaskRecordParser, which reads the
+     * fields directly rather than through a DateTimeFormatter. Two digit years are placed within 80 years
+     * before and 20 years after today, as SimpleDateFormat did
      * @param dateTimeTxt a date and time in the particular format of "inputDateTimeFormat"
      * @return millisecond representation of the date and time in param
      */
     public static long getInputMillis(String dateTimeTxt) {
-        inputDateTimeFormat.setLenient(false);
-        try {
-            return inputDateTimeFormat.parse(dateTimeTxt).getTime();
-        } catch (ParseException e) {
-            throw new TaskFormatException();
-        }
+        return TaskRecordParser.parseDateTime(dateTimeTxt);
     }
 
     /**
      * Gets a nicely formatted String of this ScheduledTime's date based on the
-     * "dispDateFormat" SimpleDateFormat above
+     * "dispDateFormat" DateTimeFormatter above. Recently formatted days are cached, since
+     * listings format the same date heading for every Task on that day
      * @return nicely formatted date String
      */
     public String dateStr() {
-        return dispDateFormat.format(calendar.getTime());
+        int slot = (int) Math.floorMod(Math.floorDiv(millis, DAY_MILLIS), (long) DATE_CACHE_SIZE);
+        DateEntry entry = dateCache.get(slot);
+        if (entry == null || millis < entry.dayStart || millis >= entry.dayEnd) {
+            LocalDate date = Instant.ofEpochMilli(millis).atZone(zone).toLocalDate();
+            entry = new DateEntry(date.atStartOfDay(zone).toInstant().toEpochMilli(),
+                    date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli(), dispDateFormat.format(date));
+            dateCache.set(slot, entry);
+        }
+        return entry.text;
     }
 
     /**
      * Gets a nicely formatted String of this ScheduledTime's time based on the
-     * "dispTimeFormat" SimpleDateFormat above
+     * "dispTimeFormat" DateTimeFormatter above
      * @return nicely formatted time String
      */
     public String timeStr() {
-        return dispTimeFormat.format(calendar.getTime());
+        return dispTimeFormat.format(Instant.ofEpochMilli(millis).atZone(zone));
     }
 
     /**
      * Gets a nicely formatted String of this ScheduledTime's date and time based on the
-     * "dispDateFormat" SimpleDateFormat above
+     * "inputDateTimeFormat" DateTimeFormatter above
      * @return nicely formatted date and time String
      */
     public String dateTimeStr() {
-        return inputDateTimeFormat.format(calendar.getTime());
+        return inputDateTimeFormat.format(Instant.ofEpochMilli(millis).atZone(zone));
+    }
+
+    /**
+     * Checks whether other is a ScheduledTime for the same instant as this one
+     * @param o object to compare to
+     * @return true if o is a ScheduledTime with the same time in milliseconds
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ScheduledTime && ((ScheduledTime) o).millis == millis;
+    }
+
+    /**
+     * Gets hash code based on time in milliseconds
+     * @return hash code
+     */
+    @Override
+    public int hashCode() {
+        return Long.hashCode(millis);
+    }
+
+    /**
+     * Formatted date heading for one local day, cached by dateStr()
+     */
+    private static class DateEntry {
+        private final long dayStart;
+        private final long dayEnd;
+        private final String text;
+
+        /**
+         * Creates DateEntry for the local day given
+         * @param dayStart start of the day in milliseconds
+         * @param dayEnd start of the next day in milliseconds
+         * @param text formatted date heading for the day
+         */
+        private DateEntry(long dayStart, long dayEnd, String text) {
+            this.dayStart = dayStart;
+            this.dayEnd = dayEnd;
+            this.text = text;
+        }
     }
 
 }
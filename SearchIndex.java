@@ -0,0 +1,423 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class SearchIndex {
+
+    public static final int MAGIC = 0x53435349;
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    private final TreeMap<String, Postings> postings = new TreeMap<>();
+
+    /**
+     * Creates an empty SearchIndex. Every word of each Task's name and description is a token, and each token
+     * maps to the start times of the Tasks using it in ascending order, which serve as the Tasks' ids since no
+     * two Tasks start at the same time. Tasks are added and removed one at a time as the schedule changes
+     */
+    public SearchIndex() {
+    }
+
+    /**
+     * Builds an index of Tasks. Visiting them in ascending order of scheduled time only ever appends to each
+     * token's ids
+     * @param tasks Tasks to index in ascending order of scheduled time
+     * @return new SearchIndex
+     */
+    public static SearchIndex build(Iterable<Task> tasks) {
+        SearchIndex index = new SearchIndex();
+        for (Task t : tasks)
+            index.add(t);
+        return index;
+    }
+
+    /**
+     * Splits text into tokens: runs of letters and digits, lower-cased, and cut down to MAX_TOKEN_LENGTH
+     * characters
+     * @param text text to split
+     * @return tokens in the order they appear, possibly repeated
+     */
+    public static List<String> tokens(String text) {
+        ArrayList<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            int cp = text.codePointAt(i);
+            if (!Character.isLetterOrDigit(cp)) {
+                i += Character.charCount(cp);
+                continue;
+            }
+            int start = i;
+            while (i < text.length() && Character.isLetterOrDigit(text.codePointAt(i)))
+                i += Character.charCount(text.codePointAt(i));
+            String token = text.substring(start, i).toLowerCase(Locale.ROOT);
+            if (token.length() > MAX_TOKEN_LENGTH)
+                token = token.substring(0, MAX_TOKEN_LENGTH);
+            tokens.add(token);
+        }
+        return tokens;
+    }
+
+    /**
+     * Gets every token of a Task's name and description
+     * @param t Task to split
+     * @return tokens, possibly repeated
+     */
+    private static List<String> tokens(Task t) {
+        List<String> tokens = tokens(t.getName());
+        tokens.addAll(tokens(t.getDescription()));
+        return tokens;
+    }
+
+    /**
+     * Adds a Task under each of its tokens. Adding a Task already indexed changes nothing
+     * @param t Task to add
+     */
+    public synchronized void add(Task t) {
+        long id = t.getSchedTime().getMillis();
+        for (String token : tokens(t))
+            postings.computeIfAbsent(token, k -> new Postings()).add(id);
+    }
+
+    /**
+     * Removes a Task from under each of its tokens, dropping tokens no Task uses any more
+     * @param t Task to remove
+     */
+    public synchronized void remove(Task t) {
+        long id = t.getSchedTime().getMillis();
+        for (String token : tokens(t)) {
+            Postings ids = postings.get(token);
+            if (ids != null && ids.remove(id) && ids.size == 0)
+                postings.remove(token);
+        }
+    }
+
+    /**
+     * Removes every Task starting before a time, such as the finished Tasks a load leaves out of a schedule
+     * @param millis time in milliseconds
+     */
+    public synchronized void removeBefore(long millis) {
+        Iterator<Postings> it = postings.values().iterator();
+        while (it.hasNext()) {
+            Postings ids = it.next();
+            ids.removeBefore(millis);
+            if (ids.size == 0)
+                it.remove();
+        }
+    }
+
+    /**
+     * Gets the number of distinct tokens indexed
+     * @return number of tokens
+     */
+    public synchronized int size() {
+        return postings.size();
+    }
+
+    /**
+     * Finds the Tasks starting within a time range that match every word of a query, in ascending order of
+     * scheduled time. Each word is split into tokens as Task text is; a word ending with * matches any token
+     * starting with it. Each word's ids are narrowed to the range by binary search first, then the shortest
+     * list is walked and every id checked against the others by binary search from where the last check
+     * stopped, so a query takes time in proportion to the shortest list, not the size of the schedule
+     * @param query words to search for
+     * @param from time in milliseconds the Tasks found start at or after
+     * @param to time in milliseconds the Tasks found start before
+     * @param limit maximum number of ids to return, or 0 for no limit
+     * @return start times of the Tasks found, or none if the query has no words
+     */
+    public synchronized long[] search(String query, long from, long to, int limit) {
+        ArrayList<Slice> slices = new ArrayList<>();
+        for (String word : query.trim().split("\\s+")) {
+            boolean prefix = word.endsWith("*");
+            List<String> tokens = tokens(word);
+            for (int i = 0; i < tokens.size(); i++) {
+                Slice slice = prefix && i == tokens.size() - 1 ? prefixSlice(tokens.get(i), from, to) :
+                        exactSlice(tokens.get(i), from, to);
+                if (slice.size() == 0)
+                    return new long[0];
+                slices.add(slice);
+            }
+        }
+        if (slices.isEmpty())
+            return new long[0];
+        slices.sort(Comparator.comparingInt(Slice::size));
+        Slice shortest = slices.get(0);
+        long[] found = new long[limit > 0 ? Math.min(limit, shortest.size()) : shortest.size()];
+        int count = 0;
+        int[] cursors = new int[slices.size()];
+        for (int s = 1; s < slices.size(); s++)
+            cursors[s] = slices.get(s).lo;
+        for (int i = shortest.lo; i < shortest.hi && count < found.length; i++) {
+            long id = shortest.ids[i];
+            boolean all = true;
+            for (int s = 1; s < slices.size() && all; s++) {
+                Slice other = slices.get(s);
+                int at = lowerBound(other.ids, cursors[s], other.hi, id);
+                cursors[s] = at;
+                all = at < other.hi && other.ids[at] == id;
+            }
+            if (all)
+                found[count++] = id;
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Gets the ids of one token within a time range
+     * @param token token to look up
+     * @param from start of the range in milliseconds
+     * @param to end of the range in milliseconds
+     * @return ids of Tasks starting within the range, which may be empty
+     */
+    private Slice exactSlice(String token, long from, long to) {
+        Postings ids = postings.get(token);
+        if (ids == null)
+            return new Slice(new long[0], 0, 0);
+        return new Slice(ids.ids, lowerBound(ids.ids, 0, ids.size, from), lowerBound(ids.ids, 0, ids.size, to));
+    }
+
+    /**
+     * Gets the ids of every token starting with a prefix within a time range, merged into one sorted list
+     * @param prefix start of the tokens to look up
+     * @param from start of the range in milliseconds
+     * @param to end of the range in milliseconds
+     * @return ids of Tasks starting within the range, which may be empty
+     */
+    private Slice prefixSlice(String prefix, long from, long to) {
+        Map<String, Postings> matching = postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        if (matching.size() == 1)
+            return exactSlice(matching.keySet().iterator().next(), from, to);
+        long[] merged = new long[16];
+        int count = 0;
+        for (Postings ids : matching.values()) {
+            int lo = lowerBound(ids.ids, 0, ids.size, from);
+            int hi = lowerBound(ids.ids, 0, ids.size, to);
+            if (count + hi - lo > merged.length)
+                merged = Arrays.copyOf(merged, Math.max(merged.length * 2, count + hi - lo));
+            System.arraycopy(ids.ids, lo, merged, count, hi - lo);
+            count += hi - lo;
+        }
+        Arrays.sort(merged, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || merged[distinct - 1] != merged[i])
+                merged[distinct++] = merged[i];
+        }
+        return new Slice(merged, 0, distinct);
+    }
+
+    /**
+     * Finds the first index within part of a sorted array holding a value at or above the one given
+     * @param ids sorted array
+     * @param lo first index to look at
+     * @param hi index just past the last one to look at
+     * @param value value to look for
+     * @return index of the first such value, or hi if there is none
+     */
+    private static int lowerBound(long[] ids, int lo, int hi, long value) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ids[mid] < value)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Writes the index to a file through a temporary file, stamped with the length and modification time of
+     * the data file it was written with (see DayIndex.write()). Ids are written as gaps from the id before,
+     * seven bits to a byte, so the file is a fraction of the size of the index in memory
+     * @param indexFile file to write the index to
+     * @param dataFile data file the index goes with, already in its final place
+     * @throws IOException if the index could not be written
+     */
+    public synchronized void write(File indexFile, File dataFile) throws IOException {
+        File tempIndex = new File(indexFile.getPath() + ".tmp");
+        FileOutputStream fileOut = new FileOutputStream(tempIndex);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+            out.writeInt(MAGIC);
+            out.writeLong(dataFile.length());
+            out.writeLong(dataFile.lastModified());
+            out.writeInt(postings.size());
+            for (Map.Entry<String, Postings> entry : postings.entrySet()) {
+                Postings ids = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeInt(ids.size);
+                out.writeLong(ids.ids[0]);
+                for (int i = 1; i < ids.size; i++) {
+                    long gap = ids.ids[i] - ids.ids[i - 1];
+                    while (gap >= 0x80) {
+                        out.writeByte((int) (gap & 0x7f) | 0x80);
+                        gap >>>= 7;
+                    }
+                    out.writeByte((int) gap);
+                }
+            }
+            out.flush();
+            fileOut.getFD().sync();
+        } finally {
+            fileOut.close();
+        }
+        Files.move(tempIndex.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads an index written by write(), checking it still goes with the data file
+     * @param indexFile file to read the index from
+     * @param dataFile data file the index should go with
+     * @return the index, or null if there is none, it is damaged, or the data file has changed since
+     */
+    public static SearchIndex read(File indexFile, File dataFile) {
+        if (!indexFile.exists())
+            return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readLong() != dataFile.length() ||
+                    in.readLong() != dataFile.lastModified())
+                return null;
+            int tokens = in.readInt();
+            long length = indexFile.length();
+            if (tokens < 0 || tokens > length)
+                return null;
+            SearchIndex index = new SearchIndex();
+            for (int t = 0; t < tokens; t++) {
+                String token = in.readUTF();
+                int size = in.readInt();
+                if (size < 1 || size > length)
+                    return null;
+                Postings ids = new Postings(size);
+                long id = in.readLong();
+                ids.ids[0] = id;
+                for (int i = 1; i < size; i++) {
+                    long gap = 0;
+                    int shift = 0;
+                    int b;
+                    do {
+                        b = in.readUnsignedByte();
+                        gap |= (long) (b & 0x7f) << shift;
+                        shift += 7;
+                    } while ((b & 0x80) != 0 && shift < 64);
+                    id += gap;
+                    ids.ids[i] = id;
+                }
+                ids.size = size;
+                index.postings.put(token, ids);
+            }
+            return index;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Sorted ids of the Tasks using one token, in a growable array. Adds at the end, the usual case as new
+     * Tasks tend to be the latest, take constant time; others shift the ids after them along
+     */
+    private static class Postings {
+        private long[] ids;
+        private int size;
+
+        /**
+         * Creates empty Postings
+         */
+        private Postings() {
+            this(4);
+        }
+
+        /**
+         * Creates empty Postings with room for the number of ids given
+         * @param capacity number of ids to make room for
+         */
+        private Postings(int capacity) {
+            ids = new long[capacity];
+        }
+
+        /**
+         * Adds an id in its place
+         * @param id id to add
+         */
+        private void add(long id) {
+            int at = size > 0 && ids[size - 1] < id ? size : lowerBound(ids, 0, size, id);
+            if (at < size && ids[at] == id)
+                return;
+            if (size == ids.length)
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        /**
+         * Removes an id
+         * @param id id to remove
+         * @return true if the id was there
+         */
+        private boolean remove(long id) {
+            int at = lowerBound(ids, 0, size, id);
+            if (at == size || ids[at] != id)
+                return false;
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        /**
+         * Removes every id below a value
+         * @param id lowest id to keep
+         */
+        private void removeBefore(long id) {
+            int at = lowerBound(ids, 0, size, id);
+            if (at == 0)
+                return;
+            System.arraycopy(ids, at, ids, 0, size - at);
+            size -= at;
+        }
+    }
+
+    /**
+     * Part of a sorted array of ids
+     */
+    private static class Slice {
+        private final long[] ids;
+        private final int lo;
+        private final int hi;
+
+        /**
+         * Creates Slice based on params
+         * @param ids sorted array of ids
+         * @param lo index of the first id in the slice
+         * @param hi index just past the last id in the slice
+         */
+        private Slice(long[] ids, int lo, int hi) {
+            this.ids = ids;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        /**
+         * Gets the number of ids in the slice
+         * @return number of ids
+         */
+        private int size() {
+            return hi - lo;
+        }
+    }
+
+}
@@ -1,5 +1,7 @@
 public class Task implements Comparable<Task> {
 
+    private static final long MINUTE_MILLIS = 60 * 1000L;
+
     private String name;
     private String description;
     private ScheduledTime schedTime;
@@ -18,26 +20,29 @@ public class Task implements Comparable<Task> {
         this.description = description;
         this.schedTime = schedTime;
         this.duration = duration;
-        this.schedTimeEnd = new ScheduledTime(schedTime.getMillis() + duration * 60 * 1000);
+        this.schedTimeEnd = new ScheduledTime(schedTime.getMillis() + duration * MINUTE_MILLIS);
     }
 
     /**
-     * Creates Task object based on a String containing all Task data
+     * Creates Task object based on a String containing all Task data, parsed by TaskRecordParser
      * @param data String containing all Task data
+     * @throws TaskFormatException if the String is not in the ||name||...||dur||... format, giving the column
+     *                             and field the error was found at
      */
     public Task(String data) {
-        if (!data.contains("||name||") || !data.contains("||desc||") || !data.contains("||sched||") || !data.contains("||dur||"))
-            throw new TaskFormatException();
-        String name = data.substring(data.indexOf("||name||") + 8, data.indexOf("||desc||"));
-        String desc = data.substring(data.indexOf("||desc||") + 8, data.indexOf("||sched||"));
-        String sched = data.substring(data.indexOf("||sched||") + 9, data.indexOf("||dur||"));
-        int dur = Integer.parseInt(data.substring(data.indexOf("||dur||") + 7));
-        ScheduledTime st = new ScheduledTime(ScheduledTime.getInputMillis(sched));
-        this.name = name;
-        this.description = desc;
-        this.schedTime = st;
-        this.duration = dur;
-        this.schedTimeEnd = new ScheduledTime(schedTime.getMillis() + duration * 60 * 1000);
+        this(TaskRecordParser.parse(data));
+    }
+
+    /**
+     * Creates Task object with the same data as another
+     * @param t Task to copy
+     */
+    private Task(Task t) {
+        this.name = t.name;
+        this.description = t.description;
+        this.schedTime = t.schedTime;
+        this.duration = t.duration;
+        this.schedTimeEnd = t.schedTimeEnd;
     }
 
     /**
@@ -111,7 +116,7 @@ public class Task implements Comparable<Task> {
      */
     public void setSchedTime(ScheduledTime schedTime) {
         this.schedTime = schedTime;
-        this.schedTimeEnd = new ScheduledTime(this.schedTime.getMillis() + this.duration * 60 * 1000);
+        this.schedTimeEnd = new ScheduledTime(this.schedTime.getMillis() + this.duration * MINUTE_MILLIS);
     }
 
     /**
@@ -120,7 +125,7 @@ public class Task implements Comparable<Task> {
      */
     public void setDuration(int duration) {
         this.duration = duration;
-        this.schedTimeEnd = new ScheduledTime(this.schedTime.getMillis() + this.duration * 60 * 1000);
+        this.schedTimeEnd = new ScheduledTime(this.schedTime.getMillis() + this.duration * MINUTE_MILLIS);
     }
 
     /**
@@ -130,7 +135,7 @@ public class Task implements Comparable<Task> {
      */
     @Override
     public int compareTo(Task task) {
-        return (int) (this.schedTime.getMillis() - task.schedTime.getMillis());
+        return Long.compare(this.schedTime.getMillis(), task.schedTime.getMillis());
     }
 
 }
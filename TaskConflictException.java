@@ -0,0 +1,13 @@
+public class TaskConflictException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Runtime Exception for when two Tasks being loaded from a file are scheduled at overlapping times
+     * @param first Task scheduled earlier
+     * @param second Task scheduled later, starting before the first one ends
+     */
+    public TaskConflictException(Task first, Task second) {
+        super("\"" + first.getName() + "\" at " + first.getSchedTime().dateTimeStr() + " overlaps \"" +
+                second.getName() + "\" at " + second.getSchedTime().dateTimeStr());
+    }
+}
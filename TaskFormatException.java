@@ -1,8 +1,84 @@
 public class TaskFormatException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    private final String fileName;
+    private final int line;
+    private final int column;
+    private final String field;
+
     /**
      * Runtime Exception for when a Task's format is incorrect when loading from a file
      */
     public TaskFormatException() {
-        super("Task Formatting Error!");
+        this("Task Formatting Error!");
+    }
+
+    /**
+     * Runtime Exception for when a Task's format is incorrect when loading from a file, with details
+     * of where the error was found
+     * @param message description of the error and where it was found
+     */
+    public TaskFormatException(String message) {
+        this(message, null, 0);
+    }
+
+    /**
+     * Runtime Exception for when a Task's format is incorrect when loading from a file, naming the file and
+     * the line (or record) the error was found on so it can be reported as a structured error event
+     * @param message description of the error and where it was found
+     * @param fileName name of the file the error was found in
+     * @param line number of the line or record the error was found on, counting from 1, or 0 if unknown
+     */
+    public TaskFormatException(String message, String fileName, int line) {
+        this(message, fileName, line, 0, null);
+    }
+
+    /**
+     * Runtime Exception for when a Task's format is incorrect, naming the file, line, column and field the
+     * error was found at, as reported by TaskRecordParser
+     * @param message description of the error and where it was found
+     * @param fileName name of the file the error was found in, or null if unknown
+     * @param line number of the line the error was found on, counting from 1, or 0 if unknown
+     * @param column number of the character within the line the error was found at, counting from 1, or 0 if
+     *               unknown
+     * @param field name of the field the error was found in, or null if unknown
+     */
+    public TaskFormatException(String message, String fileName, int line, int column, String field) {
+        super(message);
+        this.fileName = fileName;
+        this.line = line;
+        this.column = column;
+        this.field = field;
+    }
+
+    /**
+     * Gets the name of the file the error was found in
+     * @return name of the file, or null if unknown
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Gets the number of the line or record the error was found on
+     * @return number of the line or record counting from 1, or 0 if unknown
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Gets the number of the character within the line the error was found at
+     * @return number of the character counting from 1, or 0 if unknown
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * Gets the name of the field the error was found in, such as sched for the scheduled date and time
+     * @return name of the field, or null if unknown
+     */
+    public String getField() {
+        return field;
     }
 }
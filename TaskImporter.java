@@ -0,0 +1,234 @@
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TaskImporter {
+
+    private static final int CHUNK_CHARS = 1 << 20;
+
+    private final File file;
+    private final long currMillis;
+    private int lines;
+    private int tasksLoaded;
+    private final AtomicInteger expiredLines = new AtomicInteger();
+    private long elapsedNanos;
+
+    /**
+     * Creates TaskImporter for a text Task file with one ||name||...||dur|| line per Task
+     * @param file file to import Tasks from
+     * @param currMillis current time in milliseconds; Tasks that finished before it are dropped
+     */
+    public TaskImporter(File file, long currMillis) {
+        this.file = file;
+        this.currMillis = currMillis;
+    }
+
+    /**
+     * Imports every Task in the file. The file is read in large chunks split on line boundaries, each chunk
+     * is parsed and sorted on the common fork-join pool while the next one is read, and the sorted chunks are
+     * then merged, checking each Task against the one before it for overlaps in a single pass. Nothing is
+     * returned unless the whole file is valid.
+     * @return index holding all unfinished Tasks in the file
+     * @throws IOException if the file could not be read
+     * @throws TaskFormatException if a line is not a valid Task, naming the first such line
+     * @throws TaskConflictException if two Tasks in the file overlap
+     */
+    public TaskIndex load() throws IOException {
+        TaskIndex index = new TaskIndex();
+        load(index);
+        return index;
+    }
+
+    /**
+     * Imports every Task in the file into the empty store given, in the same way as load(). Tasks are added in
+     * ascending order of scheduled time, so stores kept in sorted arrays only ever append
+     * @param store empty store to add the Tasks to
+     * @throws IOException if the file could not be read
+     * @throws TaskFormatException if a line is not a valid Task, naming the first such line
+     * @throws TaskConflictException if two Tasks in the file overlap
+     */
+    public void load(TaskStore store) throws IOException {
+        long startNanos = System.nanoTime();
+        merge(loadChunks(), store);
+        tasksLoaded = store.size();
+        elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Reads and parses the whole file without checking Tasks against each other, for callers that merge the
+     * file with other sources themselves (see TaskMerger). Chunks are parsed and sorted in parallel as in load()
+     * @return chunks of the file's unfinished Tasks, each in ascending order of scheduled time
+     * @throws IOException if the file could not be read
+     * @throws TaskFormatException if a line is not a valid Task, naming the first such line
+     */
+    public List<List<Task>> loadChunks() throws IOException {
+        long startNanos = System.nanoTime();
+        ArrayList<CompletableFuture<List<Task>>> chunks = new ArrayList<>();
+        try (Reader reader = new FileReader(file)) {
+            char[] buf = new char[CHUNK_CHARS];
+            int filled = 0;
+            int read;
+            lines = 0;
+            while ((read = reader.read(buf, filled, buf.length - filled)) != -1) {
+                filled += read;
+                if (filled < buf.length)
+                    continue;
+                int end = filled;
+                while (end > 0 && buf[end - 1] != '\n')
+                    end--;
+                if (end == 0) {
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                    continue;
+                }
+                chunks.add(submitChunk(buf, end));
+                System.arraycopy(buf, end, buf, 0, filled - end);
+                filled -= end;
+            }
+            if (filled > 0)
+                chunks.add(submitChunk(buf, filled));
+        } catch (IOException | RuntimeException e) {
+            for (CompletableFuture<List<Task>> chunk : chunks)
+                chunk.cancel(true);
+            throw e;
+        }
+
+        ArrayList<List<Task>> sortedChunks = new ArrayList<>(chunks.size());
+        try {
+            for (CompletableFuture<List<Task>> chunk : chunks)
+                sortedChunks.add(chunk.join());
+        } catch (CompletionException e) {
+            for (CompletableFuture<List<Task>> chunk : chunks)
+                chunk.cancel(true);
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+        tasksLoaded = 0;
+        for (List<Task> chunk : sortedChunks)
+            tasksLoaded += chunk.size();
+        elapsedNanos = System.nanoTime() - startNanos;
+        return sortedChunks;
+    }
+
+    /**
+     * Copies a chunk of whole lines out of the read buffer and starts parsing it on the common fork-join pool
+     * @param buf read buffer
+     * @param length number of characters at the start of the buffer making up the chunk
+     * @return task that will parse the chunk
+     */
+    private CompletableFuture<List<Task>> submitChunk(char[] buf, int length) {
+        String chunk = new String(buf, 0, length);
+        int firstLine = lines + 1;
+        for (int i = 0; i < length; i++) {
+            if (buf[i] == '\n')
+                lines++;
+        }
+        if (buf[length - 1] != '\n')
+            lines++;
+        return CompletableFuture.supplyAsync(() -> parseChunk(chunk, firstLine), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Parses every line of a chunk of the file into Tasks, dropping those already finished, and sorts them
+     * @param chunk text of whole lines from the file
+     * @param firstLine line number of the first line in the chunk
+     * @return unfinished Tasks in the chunk in ascending order of scheduled time
+     * @throws TaskFormatException if a line is not a valid Task
+     */
+    private List<Task> parseChunk(String chunk, int firstLine) {
+        ArrayList<Task> tasks = new ArrayList<>();
+        int expired = 0;
+        int lineNum = firstLine;
+        int start = 0;
+        while (start < chunk.length()) {
+            int end = chunk.indexOf('\n', start);
+            if (end == -1)
+                end = chunk.length();
+            int lineEnd = end > start && chunk.charAt(end - 1) == '\r' ? end - 1 : end;
+            Task t = TaskRecordParser.parse(chunk, start, lineEnd, file.getName(), lineNum);
+            if (currMillis < t.getSchedTimeEnd().getMillis())
+                tasks.add(t);
+            else
+                expired++;
+            start = end + 1;
+            lineNum++;
+        }
+        expiredLines.addAndGet(expired);
+        Collections.sort(tasks);
+        return tasks;
+    }
+
+    /**
+     * Merges sorted chunks of Tasks into one store with a k-way merge, checking each Task against the one
+     * merged before it for overlaps
+     * @param sortedChunks chunks of Tasks, each in ascending order of scheduled time
+     * @param store store to add all Tasks from the chunks to
+     * @throws TaskConflictException if two Tasks overlap
+     */
+    private static void merge(List<List<Task>> sortedChunks, TaskStore store) {
+        PriorityQueue<int[]> heads = new PriorityQueue<>((a, b) ->
+                sortedChunks.get(a[0]).get(a[1]).compareTo(sortedChunks.get(b[0]).get(b[1])));
+        for (int i = 0; i < sortedChunks.size(); i++) {
+            if (!sortedChunks.get(i).isEmpty())
+                heads.add(new int[] {i, 0});
+        }
+        Task last = null;
+        while (!heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<Task> chunk = sortedChunks.get(head[0]);
+            Task t = chunk.get(head[1]);
+            if (last != null && (last.getSchedTimeEnd().getMillis() > t.getSchedTime().getMillis() ||
+                    last.getSchedTime().getMillis() == t.getSchedTime().getMillis()))
+                throw new TaskConflictException(last, t);
+            store.add(t);
+            last = t;
+            if (++head[1] < chunk.size())
+                heads.add(head);
+        }
+    }
+
+    /**
+     * Gets the number of lines read by the last import
+     * @return number of lines read
+     */
+    public int getLines() {
+        return lines;
+    }
+
+    /**
+     * Gets the number of lines the last import dropped because their Tasks had already finished
+     * @return number of finished Tasks dropped
+     */
+    public int getExpiredLines() {
+        return expiredLines.get();
+    }
+
+    /**
+     * Gets the throughput of the last import
+     * @return Tasks loaded per second
+     */
+    public double getTasksPerSecond() {
+        return elapsedNanos > 0 ? tasksLoaded / (elapsedNanos / 1e9) : 0.0;
+    }
+
+    /**
+     * Gets a summary of the last import's size and throughput
+     * @return String giving the number of lines read, Tasks loaded, time taken and Tasks loaded per second
+     */
+    public String summary() {
+        double seconds = elapsedNanos / 1e9;
+        return String.format("Read %d lines and loaded %d tasks in %.3f s (%.0f tasks/sec)", lines, tasksLoaded,
+                seconds, seconds > 0 ? tasksLoaded / seconds : 0.0);
+    }
+
+}
@@ -0,0 +1,215 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TaskIndex implements TaskStore {
+
+    private final ConcurrentSkipListMap<Long, Task> byStart = new ConcurrentSkipListMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Checks whether the time range given overlaps any Task already in the index
+     * @param start start of the time range in milliseconds
+     * @param end end of the time range in milliseconds
+     * @return true if the range overlaps a Task in the index, false otherwise
+     */
+    @Override
+    public boolean conflicts(long start, long end) {
+        return conflicting(start, end) != null;
+    }
+
+    /**
+     * Finds a Task in the index overlapping the time range given. Since Tasks in the index never overlap,
+     * only the Task starting at or before the range and the first Task starting after it need to be looked
+     * at, so this takes O(log n) time
+     * @param start start of the time range in milliseconds
+     * @param end end of the time range in milliseconds
+     * @return a Task overlapping the range, or null if there is none
+     */
+    @Override
+    public Task conflicting(long start, long end) {
+        Map.Entry<Long, Task> before = byStart.floorEntry(start);
+        if (before != null && (before.getKey() == start || before.getValue().getSchedTimeEnd().getMillis() > start))
+            return before.getValue();
+        Map.Entry<Long, Task> after = byStart.higherEntry(start);
+        return after != null && after.getKey() < end ? after.getValue() : null;
+    }
+
+    /**
+     * Adds a Task to the index if it does not conflict with any Task already in it. The index is safe to read
+     * and change from many threads, but callers adding Tasks that might overlap each other at the same time
+     * must lock around the check and insert themselves (see Schedule.addTask)
+     * @param t Task to add
+     * @return true if the Task was added, false if it conflicts with another Task
+     */
+    @Override
+    public boolean add(Task t) {
+        if (conflicts(t.getSchedTime().getMillis(), t.getSchedTimeEnd().getMillis()))
+            return false;
+        if (byStart.putIfAbsent(t.getSchedTime().getMillis(), t) != null)
+            return false;
+        size.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Removes a Task from the index. The Task's scheduled time must not have been changed since it was added
+     * @param t Task to remove
+     * @return true if the Task was in the index and has been removed, false otherwise
+     */
+    @Override
+    public boolean remove(Task t) {
+        if (!byStart.remove(t.getSchedTime().getMillis(), t))
+            return false;
+        size.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * Removes every Task that ends at or before the time given, in O(log n) time for each Task removed. Tasks
+     * never overlap, so these are always the first Tasks in the index
+     * @param millis time in milliseconds
+     * @return Tasks removed in ascending order of scheduled time
+     */
+    @Override
+    public List<Task> removeFinished(long millis) {
+        ArrayList<Task> removed = new ArrayList<>();
+        Map.Entry<Long, Task> e;
+        while ((e = byStart.firstEntry()) != null && e.getValue().getSchedTimeEnd().getMillis() <= millis) {
+            if (remove(e.getValue()))
+                removed.add(e.getValue());
+        }
+        return removed;
+    }
+
+    /**
+     * Gets the Task scheduled to start at exactly the time given
+     * @param start start time in milliseconds
+     * @return Task starting at that time, or null if there is none
+     */
+    @Override
+    public Task get(long start) {
+        return byStart.get(start);
+    }
+
+    /**
+     * Gets the last Task starting strictly before the time given
+     * @param millis time in milliseconds
+     * @return neighbouring Task before the time, or null if there is none
+     */
+    @Override
+    public Task before(long millis) {
+        Map.Entry<Long, Task> e = byStart.lowerEntry(millis);
+        return e == null ? null : e.getValue();
+    }
+
+    /**
+     * Gets the first Task starting strictly after the time given
+     * @param millis time in milliseconds
+     * @return neighbouring Task after the time, or null if there is none
+     */
+    @Override
+    public Task after(long millis) {
+        Map.Entry<Long, Task> e = byStart.higherEntry(millis);
+        return e == null ? null : e.getValue();
+    }
+
+    /**
+     * Gets all Tasks overlapping a time range, including one that started before the range and is still going
+     * at its start, in O(log n + k) time for k Tasks found
+     * @param from start of the range in milliseconds
+     * @param to end of the range in milliseconds
+     * @return Tasks overlapping the range in ascending order of scheduled time
+     */
+    @Override
+    public List<Task> range(long from, long to) {
+        ArrayList<Task> found = new ArrayList<>();
+        Map.Entry<Long, Task> before = byStart.lowerEntry(from);
+        if (before != null && before.getValue().getSchedTimeEnd().getMillis() > from)
+            found.add(before.getValue());
+        if (from < to)
+            found.addAll(byStart.subMap(from, true, to, false).values());
+        return found;
+    }
+
+    /**
+     * Gets one page of the Tasks starting within a time range, in O(log n + k) time for a page of k Tasks. To
+     * get the next page, pass the start of the last Task returned plus one millisecond as from
+     * @param from time in milliseconds the first Task returned starts at or after
+     * @param to time in milliseconds all Tasks returned start before
+     * @param limit maximum number of Tasks to return
+     * @return up to limit Tasks in ascending order of scheduled time
+     */
+    @Override
+    public List<Task> page(long from, long to, int limit) {
+        ArrayList<Task> found = new ArrayList<>(Math.min(limit, 1024));
+        if (from >= to)
+            return found;
+        for (Task t : byStart.subMap(from, true, to, false).values()) {
+            if (found.size() == limit)
+                break;
+            found.add(t);
+        }
+        return found;
+    }
+
+    /**
+     * Gets the earliest scheduled Task in the index
+     * @return earliest Task, or null if the index is empty
+     */
+    @Override
+    public Task first() {
+        Map.Entry<Long, Task> e = byStart.firstEntry();
+        return e == null ? null : e.getValue();
+    }
+
+    /**
+     * Gets the latest scheduled Task in the index
+     * @return latest Task, or null if the index is empty
+     */
+    @Override
+    public Task last() {
+        Map.Entry<Long, Task> e = byStart.lastEntry();
+        return e == null ? null : e.getValue();
+    }
+
+    /**
+     * Gets the number of Tasks in the index
+     * @return number of Tasks
+     */
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Checks whether the index has no Tasks
+     * @return true if there are no Tasks, false otherwise
+     */
+    @Override
+    public boolean isEmpty() {
+        return byStart.isEmpty();
+    }
+
+    /**
+     * Removes all Tasks from the index
+     */
+    @Override
+    public void clear() {
+        byStart.clear();
+        size.set(0);
+    }
+
+    /**
+     * Iterates over all Tasks in ascending order of scheduled time
+     * @return iterator over the Tasks
+     */
+    @Override
+    public Iterator<Task> iterator() {
+        return byStart.values().iterator();
+    }
+
+}
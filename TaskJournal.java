@@ -0,0 +1,331 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class TaskJournal {
+
+    private static final char ADD = '+';
+    private static final char DELETE = '-';
+    private static final long DEFAULT_MAX_DELAY_MILLIS = 10;
+    private static final ScheduledExecutorService WRITER = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "journal-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path path;
+    private final Object io = new Object();
+    private FileChannel channel;
+    private final StringBuilder pending = new StringBuilder();
+    private boolean flushScheduled;
+    private IOException failure;
+    private volatile long maxDelayMillis = DEFAULT_MAX_DELAY_MILLIS;
+    private int records;
+
+    /**
+     * Creates TaskJournal appending to the file given. Records are written behind the callers' backs: the first
+     * record of a burst schedules a flush on a writer thread shared by all journals, and every record appended
+     * before that flush runs goes to disk with it in one write and one sync. A record is therefore durable at
+     * most the maximum delay after it is appended, or as soon as flush() returns. The file is only opened once
+     * the first record is written
+     * @param fileName name of the journal file
+     */
+    public TaskJournal(String fileName) {
+        this.path = Paths.get(fileName);
+    }
+
+    /**
+     * Sets how long a record may wait before it is written, which bounds how much a crash can lose. Longer
+     * delays let bigger bursts of changes share one write and sync
+     * @param millis maximum delay in milliseconds, or 0 to write each burst as soon as the writer thread runs
+     */
+    public void setMaxDelay(long millis) {
+        this.maxDelayMillis = Math.max(0, millis);
+    }
+
+    /**
+     * Appends a record of a Task being added to the journal
+     * @param t Task that was added
+     * @throws IOException if an earlier record could not be written in the background
+     */
+    public void logAdd(Task t) throws IOException {
+        append(ADD, t);
+    }
+
+    /**
+     * Appends a record of a Task being deleted to the journal
+     * @param t Task that was deleted
+     * @throws IOException if an earlier record could not be written in the background
+     */
+    public void logDelete(Task t) throws IOException {
+        append(DELETE, t);
+    }
+
+    /**
+     * Appends records of several Tasks being deleted to the journal, to be written together
+     * @param deleted Tasks that were deleted
+     * @throws IOException if an earlier record could not be written in the background
+     */
+    public synchronized void logDeletes(List<Task> deleted) throws IOException {
+        for (Task t : deleted)
+            append(DELETE, t);
+    }
+
+    /**
+     * Queues a single record line for the writer thread, scheduling a flush if none is waiting. A background
+     * write that failed is reported here once, and its records stay queued to be tried again
+     * @param op character marking the record as an add or a delete
+     * @param t Task the record is about
+     * @throws IOException if an earlier record could not be written in the background
+     */
+    private synchronized void append(char op, Task t) throws IOException {
+        pending.append(op).append(t.getData()).append('\n');
+        records++;
+        if (!flushScheduled) {
+            flushScheduled = true;
+            WRITER.schedule(this::writeBehind, maxDelayMillis, TimeUnit.MILLISECONDS);
+        }
+        if (failure != null) {
+            IOException e = failure;
+            failure = null;
+            throw e;
+        }
+    }
+
+    /**
+     * Runs on the writer thread to write the records queued so far, keeping any failure for the next caller
+     */
+    private void writeBehind() {
+        try {
+            writePending();
+        } catch (IOException e) {
+            synchronized (this) {
+                failure = e;
+            }
+        }
+    }
+
+    /**
+     * Writes every queued record to the end of the journal in a single write and forces it to disk. Holding
+     * the io lock throughout keeps batches in order and keeps reset() from truncating under a write
+     * @throws IOException if the records could not be written, in which case they stay queued
+     */
+    private void writePending() throws IOException {
+        synchronized (io) {
+            String batch;
+            synchronized (this) {
+                flushScheduled = false;
+                if (pending.length() == 0)
+                    return;
+                batch = pending.toString();
+                pending.setLength(0);
+            }
+            try {
+                if (channel == null)
+                    channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                ByteBuffer buf = ByteBuffer.wrap(batch.getBytes(StandardCharsets.UTF_8));
+                while (buf.hasRemaining())
+                    channel.write(buf);
+                channel.force(false);
+            } catch (IOException e) {
+                synchronized (this) {
+                    pending.insert(0, batch);
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Writes every record appended so far and forces it to disk before returning, for callers that need a
+     * change to be durable before they carry on
+     * @throws IOException if the records could not be written
+     */
+    public void flush() throws IOException {
+        writePending();
+        synchronized (this) {
+            failure = null;
+        }
+    }
+
+    /**
+     * Gets the number of records in the journal since it was last reset
+     * @return number of records
+     */
+    public synchronized int size() {
+        return records;
+    }
+
+    /**
+     * Empties the journal, done after its records have been folded into a new snapshot of the data file.
+     * Records still queued are dropped too, since the snapshot already holds their changes
+     * @throws IOException if the journal could not be truncated
+     */
+    public void reset() throws IOException {
+        synchronized (io) {
+            synchronized (this) {
+                pending.setLength(0);
+                records = 0;
+                failure = null;
+            }
+            if (channel == null)
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            channel.truncate(0);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Applies every record in the journal, in order, to the index given. Added Tasks that conflict with the
+     * index (for example ones already folded into the snapshot) and Tasks that finished before currMillis are
+     * skipped, and a record left half-written by a crash ends the replay. Queued records are written first.
+     * Records are parsed straight from the bytes of the journal by TaskRecordParser
+     * @param index index holding the Tasks of the last snapshot
+     * @param currMillis current time in milliseconds
+     * @return true if every record was applied, false if the replay stopped at a damaged record
+     * @throws IOException if the journal could not be read
+     */
+    public boolean replay(TaskStore index, long currMillis) throws IOException {
+        return replay(index, currMillis, null);
+    }
+
+    /**
+     * Applies every record in the journal to the index given as replay(TaskStore, long) does, keeping a
+     * SearchIndex in step: each Task actually added to or removed from the index is added to or removed from
+     * the SearchIndex too, so records already folded into a SearchIndex saved with the snapshot change nothing
+     * @param index index holding the Tasks of the last snapshot
+     * @param currMillis current time in milliseconds
+     * @param search SearchIndex saved with the snapshot, or null if there is none
+     * @return true if every record was applied, false if the replay stopped at a damaged record
+     * @throws IOException if the journal could not be read
+     */
+    public boolean replay(TaskStore index, long currMillis, SearchIndex search) throws IOException {
+        flush();
+        synchronized (io) {
+            ByteBuffer data = readAll();
+            int replayed = 0;
+            boolean intact = true;
+            int start = 0;
+            while (start < data.limit()) {
+                int end = lineEnd(data, start);
+                Task t = record(data, start, end, replayed + 1);
+                if (t == null) {
+                    intact = false;
+                    break;
+                }
+                if (data.get(start) == ADD) {
+                    if (currMillis < t.getSchedTimeEnd().getMillis() && index.add(t) && search != null)
+                        search.add(t);
+                } else {
+                    Task curr = index.get(t.getSchedTime().getMillis());
+                    if (curr != null && curr.getData().equals(t.getData())) {
+                        index.remove(curr);
+                        if (search != null)
+                            search.remove(curr);
+                    }
+                }
+                replayed++;
+                start = end + 1;
+            }
+            synchronized (this) {
+                records = replayed;
+            }
+            return intact;
+        }
+    }
+
+    /**
+     * Finds the latest end time of any Task the journal records adding or deleting, so a Schedule loading only
+     * part of its data file can load far enough for replay() to find every Task it deletes. Queued records are
+     * written first
+     * @return latest end time in milliseconds, or Long.MIN_VALUE if the journal is empty
+     * @throws IOException if the journal could not be read
+     */
+    public long latestEnd() throws IOException {
+        flush();
+        long latest = Long.MIN_VALUE;
+        synchronized (io) {
+            ByteBuffer data = readAll();
+            int start = 0;
+            int number = 1;
+            while (start < data.limit()) {
+                int end = lineEnd(data, start);
+                Task t = record(data, start, end, number++);
+                if (t == null)
+                    break;
+                latest = Math.max(latest, t.getSchedTimeEnd().getMillis());
+                start = end + 1;
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Reads the whole journal into memory; it never grows past the records between two snapshots
+     * @return bytes of the journal, empty if nothing has been journaled yet
+     * @throws IOException if the journal could not be read
+     */
+    private ByteBuffer readAll() throws IOException {
+        try {
+            return ByteBuffer.wrap(Files.readAllBytes(path));
+        } catch (NoSuchFileException e) {
+            return ByteBuffer.allocate(0);
+        }
+    }
+
+    /**
+     * Finds the end of the record line starting at an index
+     * @param data bytes of the journal
+     * @param start index of the line's first byte
+     * @return index of the line's newline, or the end of the journal if it has none
+     */
+    private static int lineEnd(ByteBuffer data, int start) {
+        int end = start;
+        while (end < data.limit() && data.get(end) != '\n')
+            end++;
+        return end;
+    }
+
+    /**
+     * Parses one record line, made up of the character marking it as an add or a delete followed by the Task
+     * @param data bytes of the journal
+     * @param start index of the line's first byte
+     * @param end index of the line's newline
+     * @param number number of the record counting from 1
+     * @return the Task, or null if the record is damaged
+     */
+    private Task record(ByteBuffer data, int start, int end, int number) {
+        if (end == start || (data.get(start) != ADD && data.get(start) != DELETE))
+            return null;
+        try {
+            return TaskRecordParser.parse(data, start + 1, end, path.toString(), number);
+        } catch (TaskFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes and syncs every queued record, then closes the journal file
+     * @throws IOException if the journal could not be written or closed
+     */
+    public void close() throws IOException {
+        flush();
+        synchronized (io) {
+            if (channel == null)
+                return;
+            channel.close();
+            channel = null;
+        }
+    }
+
+}
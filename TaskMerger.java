@@ -0,0 +1,313 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.BiFunction;
+
+public class TaskMerger {
+
+    /**
+     * What to do when an incoming Task overlaps a current Task. Two incoming Tasks that overlap each other
+     * always keep the earlier one, and incoming Tasks overlapping fixed Tasks are always dropped
+     */
+    public enum ConflictPolicy {
+        SKIP_INCOMING, KEEP_INCOMING, REJECT_ALL
+    }
+
+    private static final String CURRENT_SOURCE = "current schedule";
+
+    private final ConflictPolicy policy;
+    private final BiFunction<Long, Long, Task> fixed;
+    private final String fixedSource;
+    private final ArrayList<String> sources = new ArrayList<>();
+    private final ArrayList<Cursor> cursors = new ArrayList<>();
+    private final ArrayList<Conflict> conflicts = new ArrayList<>();
+    private int kept;
+    private int duplicates;
+
+    /**
+     * Creates TaskMerger that merges the current Tasks and any number of Task files in one pass
+     * @param policy what to do when an incoming Task overlaps a current one
+     * @param fixed lookup giving a Task that can never be moved (such as an occurrence of a recurring Task)
+     *              overlapping a start and end time in milliseconds, or null if there is none
+     * @param fixedSource name of where the fixed Tasks come from, for the conflict report
+     */
+    public TaskMerger(ConflictPolicy policy, BiFunction<Long, Long, Task> fixed, String fixedSource) {
+        this.policy = policy;
+        this.fixed = fixed;
+        this.fixedSource = fixedSource;
+        sources.add(CURRENT_SOURCE);
+    }
+
+    /**
+     * Adds the Tasks currently scheduled. They are read lazily during merge(), so they must not change until
+     * it returns
+     * @param current current Tasks in ascending order of scheduled time, none overlapping
+     */
+    public void addCurrent(Iterable<Task> current) {
+        cursors.add(new Cursor(current.iterator(), 0));
+    }
+
+    /**
+     * Reads and sorts the Tasks in a file, text or binary, without checking them against each other. Text files
+     * are parsed in parallel by TaskImporter
+     * @param file file to read incoming Tasks from
+     * @param currMillis current time in milliseconds; Tasks that finished before it are dropped
+     * @return TaskImporter that read a text file, to report on the import, or null for a binary file
+     * @throws IOException if the file could not be read
+     * @throws TaskFormatException if a line is not a valid Task, naming the first such line
+     */
+    public TaskImporter addFile(File file, long currMillis) throws IOException {
+        int source = sources.size();
+        if (BinaryTaskFile.isBinary(file)) {
+            ArrayList<Task> unfinished = new ArrayList<>();
+            for (Task t : BinaryTaskFile.read(file)) {
+                if (currMillis < t.getSchedTimeEnd().getMillis())
+                    unfinished.add(t);
+            }
+            Collections.sort(unfinished);
+            cursors.add(new Cursor(unfinished.iterator(), source));
+            sources.add(file.getName());
+            return null;
+        }
+        TaskImporter importer = new TaskImporter(file, currMillis);
+        for (List<Task> chunk : importer.loadChunks())
+            cursors.add(new Cursor(chunk.iterator(), source));
+        sources.add(file.getName());
+        return importer;
+    }
+
+    /**
+     * Merges every run added into an empty store with a k-way merge, so after each file has been sorted the
+     * merge takes O(n log k) time for n Tasks in k runs and never holds more than one Task per run. Each Task
+     * is only checked against the last Task kept, since the Tasks kept never overlap. Unless the policy is
+     * KEEP_INCOMING, current Tasks always stay, so an incoming Task is first checked against the current Tasks
+     * on either side of it and only then against the incoming Task kept before it. That way no incoming Task is
+     * dropped for overlapping another that a current Task later pushes out, and every Task recorded as kept in
+     * a conflict stays kept. Identical copies of a Task are kept once without being counted as conflicts, so
+     * merging a calendar that was already imported changes nothing. Every other overlap is recorded for
+     * writeReport(). With REJECT_ALL the store is left partly filled and should be thrown away if this returns
+     * false
+     * @param store empty store to add the merged Tasks to
+     * @return true if the merge is complete, false if REJECT_ALL found a conflict
+     */
+    public boolean merge(TaskStore store) {
+        PriorityQueue<Cursor> heads = new PriorityQueue<>();
+        for (Cursor c : cursors) {
+            if (c.advance())
+                heads.add(c);
+        }
+        Task last = null;
+        int lastSource = -1;
+        Task lastCurrent = null;
+        kept = 0;
+        duplicates = 0;
+        conflicts.clear();
+        while (!heads.isEmpty()) {
+            Cursor c = heads.poll();
+            Task t = c.current;
+            int source = c.source;
+            if (c.advance())
+                heads.add(c);
+            long start = t.getSchedTime().getMillis();
+            long end = t.getSchedTimeEnd().getMillis();
+            if (source == 0)
+                lastCurrent = t;
+            if (source != 0 && fixed != null) {
+                Task blocker = fixed.apply(start, end);
+                if (blocker != null) {
+                    conflicts.add(new Conflict(blocker, fixedSource, t, sources.get(source)));
+                    continue;
+                }
+            }
+            if (source != 0 && policy != ConflictPolicy.KEEP_INCOMING) {
+                Task current = currentOverlapping(lastCurrent, start, end);
+                if (current != null) {
+                    if (current.getData().equals(t.getData()))
+                        duplicates++;
+                    else
+                        conflicts.add(new Conflict(current, CURRENT_SOURCE, t, sources.get(source)));
+                    continue;
+                }
+            }
+            if (last != null && (last.getSchedTimeEnd().getMillis() > start || last.getSchedTime().getMillis() == start)) {
+                if (last.getData().equals(t.getData())) {
+                    duplicates++;
+                    continue;
+                }
+                if (!replaces(source, lastSource)) {
+                    conflicts.add(new Conflict(last, sources.get(lastSource), t, sources.get(source)));
+                    continue;
+                }
+                conflicts.add(new Conflict(t, sources.get(source), last, sources.get(lastSource)));
+                store.remove(last);
+                kept--;
+            }
+            store.add(t);
+            kept++;
+            last = t;
+            lastSource = source;
+        }
+        return policy != ConflictPolicy.REJECT_ALL || conflicts.isEmpty();
+    }
+
+    /**
+     * Finds the current Task overlapping a time range, looking at the current Task merged last and the next one
+     * each current run has yet to merge. Current Tasks never overlap each other, so no other can
+     * @param lastCurrent current Task merged last, or null if there is none
+     * @param start start of the time range in milliseconds
+     * @param end end of the time range in milliseconds
+     * @return current Task overlapping the range, or null if there is none
+     */
+    private Task currentOverlapping(Task lastCurrent, long start, long end) {
+        if (lastCurrent != null && (lastCurrent.getSchedTimeEnd().getMillis() > start ||
+                lastCurrent.getSchedTime().getMillis() == start))
+            return lastCurrent;
+        for (Cursor c : cursors) {
+            if (c.source == 0 && c.current != null && c.current.getSchedTime().getMillis() < end)
+                return c.current;
+        }
+        return null;
+    }
+
+    /**
+     * Decides whether a Task should replace the overlapping Task kept before it. The earlier Task always stays
+     * unless exactly one of the two is current and the policy favours that one, which only happens with
+     * KEEP_INCOMING since merge() settles incoming Tasks against current ones first otherwise. Removing the
+     * Task kept last never uncovers another overlap, since every Task kept before it ended by the time it
+     * started, and a current Task it replaces has blocked nothing, as incoming Tasks win over it
+     * @param source source of the later Task
+     * @param lastSource source of the Task kept last
+     * @return true if the later Task should be kept instead
+     */
+    private boolean replaces(int source, int lastSource) {
+        if ((source == 0) == (lastSource == 0))
+            return false;
+        return (source == 0) == (policy != ConflictPolicy.KEEP_INCOMING);
+    }
+
+    /**
+     * Gets the number of Tasks the last merge kept
+     * @return number of Tasks kept
+     */
+    public int getKept() {
+        return kept;
+    }
+
+    /**
+     * Gets the number of overlapping pairs the last merge found
+     * @return number of conflicts
+     */
+    public int getConflicts() {
+        return conflicts.size();
+    }
+
+    /**
+     * Gets the number of identical copies of a Task the last merge dropped
+     * @return number of duplicates
+     */
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Gets a summary of the last merge
+     * @return String giving the files merged, Tasks kept, conflicts found and what was done about them
+     */
+    public String summary() {
+        String merged = String.join(", ", sources);
+        if (policy == ConflictPolicy.REJECT_ALL && !conflicts.isEmpty())
+            return "Merge of " + merged + " rejected: found " + conflicts.size() + " conflicts, nothing was changed";
+        return "Merged " + merged + ": kept " + kept + " tasks, dropped " + conflicts.size() + " conflicting and " +
+                duplicates + " duplicate tasks";
+    }
+
+    /**
+     * Writes the summary followed by every overlapping pair the last merge found, one Task per line in the
+     * ||name||...||dur|| format with the source it came from. Unless the merge was rejected, the first Task of
+     * each pair is the one kept and the second the one dropped
+     * @param out Writer to write the report to
+     * @throws IOException if the report could not be written
+     */
+    public void writeReport(Writer out) throws IOException {
+        boolean rejected = policy == ConflictPolicy.REJECT_ALL && !conflicts.isEmpty();
+        out.write(summary() + "\n");
+        int number = 1;
+        for (Conflict c : conflicts) {
+            out.write("\nConflict " + number++ + ": \"" + c.kept.getName() + "\" at " +
+                    c.kept.getSchedTime().dateTimeStr() + " overlaps \"" + c.dropped.getName() + "\" at " +
+                    c.dropped.getSchedTime().dateTimeStr() + "\n");
+            out.write((rejected ? "  " : "  kept    ") + c.keptSource + ": " + c.kept.getData() + "\n");
+            out.write((rejected ? "  " : "  dropped ") + c.droppedSource + ": " + c.dropped.getData() + "\n");
+        }
+    }
+
+    /**
+     * Position within one sorted run, ordered by the Task it is on and then by source, so a current Task comes
+     * before an incoming Task starting at the same time
+     */
+    private static class Cursor implements Comparable<Cursor> {
+        private final Iterator<Task> it;
+        private final int source;
+        private Task current;
+
+        /**
+         * Creates Cursor over a run of Tasks
+         * @param it iterator over the run in ascending order of scheduled time
+         * @param source index of the run's source
+         */
+        private Cursor(Iterator<Task> it, int source) {
+            this.it = it;
+            this.source = source;
+        }
+
+        /**
+         * Moves to the next Task in the run
+         * @return true if there was one, false if the run ran out
+         */
+        private boolean advance() {
+            current = it.hasNext() ? it.next() : null;
+            return current != null;
+        }
+
+        /**
+         * Compares this Cursor to other to determine the order the Tasks they are on are merged in
+         * @param other other Cursor to compare this Cursor to
+         * @return negative number, positive number, or 0 depending on order of scheduled times and sources
+         */
+        @Override
+        public int compareTo(Cursor other) {
+            int c = current.compareTo(other.current);
+            return c != 0 ? c : Integer.compare(source, other.source);
+        }
+    }
+
+    /**
+     * Pair of overlapping Tasks found by a merge, with the sources they came from
+     */
+    private static class Conflict {
+        private final Task kept;
+        private final String keptSource;
+        private final Task dropped;
+        private final String droppedSource;
+
+        /**
+         * Creates Conflict based on params
+         * @param kept Task kept
+         * @param keptSource source of the Task kept
+         * @param dropped Task dropped
+         * @param droppedSource source of the Task dropped
+         */
+        private Conflict(Task kept, String keptSource, Task dropped, String droppedSource) {
+            this.kept = kept;
+            this.keptSource = keptSource;
+            this.dropped = dropped;
+            this.droppedSource = droppedSource;
+        }
+    }
+
+}
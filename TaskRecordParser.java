@@ -0,0 +1,395 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+public class TaskRecordParser {
+
+    private static final ZoneId zone = ZoneId.systemDefault();
+    private static final int BASE_YEAR = LocalDate.now(zone).minusYears(80).getYear();
+    private static final long DAY_SECONDS = 24 * 60 * 60L;
+    private static final long DAYS_0000_TO_1970 = 719528L;
+    private static volatile OffsetPeriod lastPeriod;
+
+    private final CharSequence chars;
+    private final String string;
+    private final ByteBuffer bytes;
+    private final int start;
+    private final int end;
+    private final String fileName;
+    private final int line;
+    private int pos;
+
+    /**
+     * Creates TaskRecordParser over part of a record, held either as characters or as UTF-8 bytes
+     * @param chars characters of the record, or null if it is held as bytes
+     * @param bytes UTF-8 bytes of the record, or null if it is held as characters
+     * @param start index of the record's first character or byte
+     * @param end index just past the record's last character or byte
+     * @param fileName name of the file the record is from, for errors, or null if unknown
+     * @param line number of the line the record is on, for errors, or 0 if unknown
+     */
+    private TaskRecordParser(CharSequence chars, ByteBuffer bytes, int start, int end, String fileName, int line) {
+        this.chars = chars;
+        this.string = chars instanceof String ? (String) chars : null;
+        this.bytes = bytes;
+        this.start = start;
+        this.end = end;
+        this.fileName = fileName;
+        this.line = line;
+        this.pos = start;
+    }
+
+    /**
+     * Parses a whole String in the ||name||...||desc||...||sched||...||dur||... format into a Task
+     * @param data String containing all Task data
+     * @return new Task
+     * @throws TaskFormatException if the String is not in that format, giving the column and field
+     */
+    public static Task parse(CharSequence data) {
+        return parse(data, 0, data.length(), null, 0);
+    }
+
+    /**
+     * Parses a Task record held within a longer run of characters, such as one line of a chunk of a file,
+     * without copying it out first. The record is read in a single pass from start to end: each marker is
+     * matched where it must be, the name and description run up to the next ||, the scheduled date and time
+     * is read field by field straight into milliseconds, and the duration is read digit by digit
+     * @param data characters holding the record
+     * @param start index of the record's first character
+     * @param end index just past the record's last character
+     * @param fileName name of the file the record is from, for errors, or null if unknown
+     * @param line number of the line the record is on, for errors, or 0 if unknown
+     * @return new Task
+     * @throws TaskFormatException if the record is not in the format, giving the line, column and field
+     */
+    public static Task parse(CharSequence data, int start, int end, String fileName, int line) {
+        return new TaskRecordParser(data, null, start, end, fileName, line).record();
+    }
+
+    /**
+     * Parses a Task record held as UTF-8 bytes, such as one line of a file read into a buffer, without
+     * decoding anything but the name and description. Works like parse(CharSequence, int, int, String, int)
+     * @param data bytes holding the record, read at absolute indexes
+     * @param start index of the record's first byte
+     * @param end index just past the record's last byte
+     * @param fileName name of the file the record is from, for errors, or null if unknown
+     * @param line number of the line the record is on, for errors, or 0 if unknown
+     * @return new Task
+     * @throws TaskFormatException if the record is not in the format, giving the line, column (in bytes) and
+     *                             field
+     */
+    public static Task parse(ByteBuffer data, int start, int end, String fileName, int line) {
+        return new TaskRecordParser(null, data, start, end, fileName, line).record();
+    }
+
+    /**
+     * Parses a date and time in the M/d/yy h:mm a format (for example 2/15/21 3:00 PM) into milliseconds. Two
+     * digit years are placed within 80 years before and 20 years after today, and dates that do not exist,
+     * such as 2/30/21, are rejected
+     * @param text date and time to parse
+     * @return time in milliseconds
+     * @throws TaskFormatException if the text is not a valid date and time in that format
+     */
+    public static long parseDateTime(CharSequence text) {
+        TaskRecordParser parser = new TaskRecordParser(text, null, 0, text.length(), null, 0);
+        long millis = parser.dateTime("sched");
+        if (parser.pos != parser.end)
+            throw parser.error(parser.pos, "sched", "unexpected text after the time");
+        return millis;
+    }
+
+    /**
+     * Reads the whole record
+     * @return new Task
+     * @throws TaskFormatException if the record is not in the format
+     */
+    private Task record() {
+        expect("||name||", "name");
+        int nameStart = pos;
+        String name = text(nameStart, separator("name"));
+        expect("||desc||", "desc");
+        int descStart = pos;
+        String description = text(descStart, separator("desc"));
+        expect("||sched||", "sched");
+        long millis = dateTime("sched");
+        expect("||dur||", "dur");
+        int durStart = pos;
+        long duration = 0;
+        while (pos < end && isDigit(at(pos))) {
+            duration = duration * 10 + (at(pos) - '0');
+            if (duration > Integer.MAX_VALUE)
+                throw error(durStart, "dur", "duration is too long");
+            pos++;
+        }
+        if (pos == durStart)
+            throw error(pos, "dur", "expected the number of minutes");
+        if (pos != end)
+            throw error(pos, "dur", "unexpected text after the duration");
+        return new Task(name, description, new ScheduledTime(millis), (int) duration);
+    }
+
+    /**
+     * Gets a character of the record; bytes of multi-byte UTF-8 characters come back as values of 128 and
+     * above, which never match a marker, digit or separator. Records held in a String, the usual case, are
+     * read without going through the CharSequence interface
+     * @param i index of the character or byte
+     * @return the character
+     */
+    private char at(int i) {
+        if (string != null)
+            return string.charAt(i);
+        return chars != null ? chars.charAt(i) : (char) (bytes.get(i) & 0xff);
+    }
+
+    /**
+     * Gets part of the record as a String, decoding UTF-8 if it is held as bytes
+     * @param from index of the first character or byte
+     * @param to index just past the last character or byte
+     * @return the text
+     */
+    private String text(int from, int to) {
+        if (chars != null)
+            return chars.subSequence(from, to).toString();
+        if (bytes.hasArray())
+            return new String(bytes.array(), bytes.arrayOffset() + from, to - from, StandardCharsets.UTF_8);
+        byte[] copy = new byte[to - from];
+        for (int i = 0; i < copy.length; i++)
+            copy[i] = bytes.get(from + i);
+        return new String(copy, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks whether a character is an ASCII digit
+     * @param c character to check
+     * @return true if c is 0 to 9
+     */
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Matches a marker at the current position and moves past it
+     * @param marker marker expected, such as ||desc||
+     * @param field name of the field the marker starts
+     * @throws TaskFormatException at the first character that does not match
+     */
+    private void expect(String marker, String field) {
+        for (int i = 0; i < marker.length(); i++) {
+            if (pos >= end || at(pos) != marker.charAt(i))
+                throw error(pos, field, "expected " + marker);
+            pos++;
+        }
+    }
+
+    /**
+     * Finds the || that ends a text field, leaving the current position on it
+     * @param field name of the field
+     * @return index of the ||
+     * @throws TaskFormatException if the record ends first
+     */
+    private int separator(String field) {
+        while (pos + 1 < end) {
+            if (at(pos) == '|' && at(pos + 1) == '|')
+                return pos;
+            pos++;
+        }
+        throw error(end, field, "record ends before the next field");
+    }
+
+    /**
+     * Reads a run of digits as a number
+     * @param minDigits fewest digits allowed
+     * @param maxDigits most digits read
+     * @param field name of the field being read
+     * @param part name of the part of the field, for errors
+     * @return the number
+     * @throws TaskFormatException if there are fewer than minDigits digits
+     */
+    private int number(int minDigits, int maxDigits, String field, String part) {
+        int from = pos;
+        int value = 0;
+        while (pos < end && pos - from < maxDigits && isDigit(at(pos))) {
+            value = value * 10 + (at(pos) - '0');
+            pos++;
+        }
+        if (pos - from < minDigits)
+            throw error(pos, field, "expected " + minDigits + (minDigits == maxDigits ? "" : " to " + maxDigits) +
+                    " digits for the " + part);
+        return value;
+    }
+
+    /**
+     * Matches a single character at the current position and moves past it
+     * @param c character expected
+     * @param field name of the field being read
+     * @throws TaskFormatException if it does not match
+     */
+    private void expect(char c, String field) {
+        if (pos >= end || at(pos) != c)
+            throw error(pos, field, "expected '" + c + "'");
+        pos++;
+    }
+
+    /**
+     * Reads a date and time in the M/d/yy h:mm a format, checking each part as it goes
+     * @param field name of the field being read
+     * @return time in milliseconds
+     * @throws TaskFormatException at the first part that is missing or out of range
+     */
+    private long dateTime(String field) {
+        int monthStart = pos;
+        int month = number(1, 2, field, "month");
+        if (month < 1 || month > 12)
+            throw error(monthStart, field, "month must be 1 to 12");
+        expect('/', field);
+        int dayStart = pos;
+        int day = number(1, 2, field, "day");
+        expect('/', field);
+        int yearStart = pos;
+        int year = number(2, 4, field, "year");
+        if (pos - yearStart == 2) {
+            year += BASE_YEAR - Math.floorMod(BASE_YEAR, 100);
+            if (year < BASE_YEAR)
+                year += 100;
+        }
+        if (day < 1 || day > daysInMonth(year, month))
+            throw error(dayStart, field, "day " + day + " does not exist in month " + month);
+        expect(' ', field);
+        int hourStart = pos;
+        int hour = number(1, 2, field, "hour");
+        if (hour < 1 || hour > 12)
+            throw error(hourStart, field, "hour must be 1 to 12");
+        expect(':', field);
+        int minuteStart = pos;
+        int minute = number(2, 2, field, "minutes");
+        if (minute > 59)
+            throw error(minuteStart, field, "minutes must be 00 to 59");
+        expect(' ', field);
+        return toMillis(year, month, day, hour % 12 + (afternoon(field) ? 12 : 0), minute);
+    }
+
+    /**
+     * Reads AM or PM, in either case
+     * @param field name of the field being read
+     * @return true for PM, false for AM
+     * @throws TaskFormatException if neither is there
+     */
+    private boolean afternoon(String field) {
+        char half = pos + 1 < end ? Character.toUpperCase(at(pos)) : 0;
+        if ((half != 'A' && half != 'P') || Character.toUpperCase(at(pos + 1)) != 'M')
+            throw error(pos, field, "expected AM or PM");
+        pos += 2;
+        return half == 'P';
+    }
+
+    /**
+     * Gets the number of days in a month
+     * @param year year the month is in
+     * @param month month of the year, 1 to 12
+     * @return number of days in the month
+     */
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Converts a local date and time in the system time zone to milliseconds. The stretch of local time between
+     * two time zone transitions that was used last is kept, so only times in a different stretch, usually
+     * across a daylight saving change, go through the time zone rules
+     * @param year year
+     * @param month month of the year, 1 to 12
+     * @param day day of the month
+     * @param hour hour of the day, 0 to 23
+     * @param minute minute of the hour
+     * @return time in milliseconds
+     */
+    private static long toMillis(int year, int month, int day, int hour, int minute) {
+        long local = epochDay(year, month, day) * DAY_SECONDS + hour * 3600L + minute * 60L;
+        OffsetPeriod period = lastPeriod;
+        if (period == null || local < period.localFrom || local >= period.localTo) {
+            long millis = LocalDateTime.of(year, month, day, hour, minute).atZone(zone).toInstant().toEpochMilli();
+            period = new OffsetPeriod(Math.floorDiv(millis, 1000L));
+            if (local < period.localFrom || local >= period.localTo)
+                return millis;
+            lastPeriod = period;
+        }
+        return (local - period.offsetSeconds) * 1000L;
+    }
+
+    /**
+     * Counts the days from 1/1/1970 to a date, as LocalDate.toEpochDay() does for years 0 and later
+     * @param year year, 0 or later
+     * @param month month of the year, 1 to 12
+     * @param day day of the month
+     * @return number of days since the epoch
+     */
+    private static long epochDay(long year, int month, int day) {
+        long total = 365 * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12 + day - 1;
+        if (month > 2) {
+            total--;
+            if (daysInMonth((int) year, 2) == 28)
+                total--;
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * Builds the exception for an error found while parsing
+     * @param index index of the character or byte the error was found at
+     * @param field name of the field the error was found in
+     * @param reason what was wrong
+     * @return TaskFormatException giving where the error was found
+     */
+    private TaskFormatException error(int index, String field, String reason) {
+        int column = index - start + 1;
+        String message = "Formatting error" + (fileName != null ? " in " + fileName : "") +
+                (line > 0 ? " at line " + line + "," : " at") + " column " + column + " (" + field + "): " +
+                reason + "!";
+        return new TaskFormatException(message, fileName, line, column, field);
+    }
+
+    /**
+     * Stretch of local time throughout which the system time zone has one offset from UTC, cached by
+     * toMillis(). Local times skipped or repeated by the transitions at either end are left out, so every time
+     * within the stretch converts the same way ZonedDateTime would
+     */
+    private static class OffsetPeriod {
+        private final long localFrom;
+        private final long localTo;
+        private final long offsetSeconds;
+
+        /**
+         * Works out the stretch of local time around an instant
+         * @param epochSecond instant in seconds since the epoch
+         */
+        private OffsetPeriod(long epochSecond) {
+            ZoneRules rules = zone.getRules();
+            Instant at = Instant.ofEpochSecond(epochSecond);
+            int offset = rules.getOffset(at).getTotalSeconds();
+            ZoneOffsetTransition previous = rules.previousTransition(at.plusSeconds(1));
+            ZoneOffsetTransition next = rules.nextTransition(at);
+            this.offsetSeconds = offset;
+            this.localFrom = previous == null ? Long.MIN_VALUE : previous.getInstant().getEpochSecond() +
+                    Math.max(offset, previous.getOffsetBefore().getTotalSeconds());
+            this.localTo = next == null ? Long.MAX_VALUE : next.getInstant().getEpochSecond() +
+                    Math.min(offset, next.getOffsetAfter().getTotalSeconds());
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+import java.util.List;
+
+public interface TaskStore extends Iterable<Task> {
+
+    /**
+     * Checks whether the time range given overlaps any Task already in the store
+     * @param start start of the time range in milliseconds
+     * @param end end of the time range in milliseconds
+     * @return true if the range overlaps a Task in the store, false otherwise
+     */
+    boolean conflicts(long start, long end);
+
+    /**
+     * Finds a Task in the store overlapping the time range given
+     * @param start start of the time range in milliseconds
+     * @param end end of the time range in milliseconds
+     * @return a Task overlapping the range, or null if there is none
+     */
+    Task conflicting(long start, long end);
+
+    /**
+     * Adds a Task to the store if it does not conflict with any Task already in it
+     * @param t Task to add
+     * @return true if the Task was added, false if it conflicts with another Task
+     */
+    boolean add(Task t);
+
+    /**
+     * Removes a Task from the store
+     * @param t Task to remove, as returned by the store
+     * @return true if the Task was in the store and has been removed, false otherwise
+     */
+    boolean remove(Task t);
+
+    /**
+     * Removes every Task that ends at or before the time given. Tasks never overlap, so these are always the
+     * first Tasks in the store
+     * @param millis time in milliseconds
+     * @return Tasks removed in ascending order of scheduled time
+     */
+    List<Task> removeFinished(long millis);
+
+    /**
+     * Gets the Task scheduled to start at exactly the time given
+     * @param start start time in milliseconds
+     * @return Task starting at that time, or null if there is none
+     */
+    Task get(long start);
+
+    /**
+     * Gets the last Task starting strictly before the time given
+     * @param millis time in milliseconds
+     * @return neighbouring Task before the time, or null if there is none
+     */
+    Task before(long millis);
+
+    /**
+     * Gets the first Task starting strictly after the time given
+     * @param millis time in milliseconds
+     * @return neighbouring Task after the time, or null if there is none
+     */
+    Task after(long millis);
+
+    /**
+     * Gets all Tasks overlapping a time range, including one that started before the range and is still going
+     * at its start
+     * @param from start of the range in milliseconds
+     * @param to end of the range in milliseconds
+     * @return Tasks overlapping the range in ascending order of scheduled time
+     */
+    List<Task> range(long from, long to);
+
+    /**
+     * Gets one page of the Tasks starting within a time range. To get the next page, pass the start of the
+     * last Task returned plus one millisecond as from
+     * @param from time in milliseconds the first Task returned starts at or after
+     * @param to time in milliseconds all Tasks returned start before
+     * @param limit maximum number of Tasks to return
+     * @return up to limit Tasks in ascending order of scheduled time
+     */
+    List<Task> page(long from, long to, int limit);
+
+    /**
+     * Gets the earliest scheduled Task in the store
+     * @return earliest Task, or null if the store is empty
+     */
+    Task first();
+
+    /**
+     * Gets the latest scheduled Task in the store
+     * @return latest Task, or null if the store is empty
+     */
+    Task last();
+
+    /**
+     * Gets the number of Tasks in the store
+     * @return number of Tasks
+     */
+    int size();
+
+    /**
+     * Checks whether the store has no Tasks
+     * @return true if there are no Tasks, false otherwise
+     */
+    boolean isEmpty();
+
+    /**
+     * Removes all Tasks from the store
+     */
+    void clear();
+
+}
@@ -0,0 +1,60 @@
+public class TimeSlot {
+
+    private final long startMillis;
+    private final long endMillis;
+
+    /**
+     * Creates TimeSlot covering the time range given
+     * @param startMillis start of the slot in milliseconds
+     * @param endMillis end of the slot in milliseconds
+     */
+    public TimeSlot(long startMillis, long endMillis) {
+        this.startMillis = startMillis;
+        this.endMillis = endMillis;
+    }
+
+    /**
+     * Gets start of the slot in milliseconds
+     * @return start of the slot in milliseconds
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * Gets end of the slot in milliseconds
+     * @return end of the slot in milliseconds
+     */
+    public long getEndMillis() {
+        return endMillis;
+    }
+
+    /**
+     * Gets date and time the slot starts at
+     * @return date and time the slot starts at
+     */
+    public ScheduledTime getStart() {
+        return new ScheduledTime(startMillis);
+    }
+
+    /**
+     * Gets date and time the slot ends at
+     * @return date and time the slot ends at
+     */
+    public ScheduledTime getEnd() {
+        return new ScheduledTime(endMillis);
+    }
+
+    /**
+     * Gets a nicely formatted String of the slot's date and time range. Slots with no end, after the last
+     * Task, are shown as open-ended
+     * @return nicely formatted time range String
+     */
+    @Override
+    public String toString() {
+        if (endMillis == Long.MAX_VALUE)
+            return getStart().dateTimeStr() + " onwards";
+        return getStart().dateTimeStr() + " - " + getEnd().dateTimeStr();
+    }
+
+}
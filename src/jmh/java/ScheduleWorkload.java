@@ -0,0 +1,188 @@
+import benchmark.Workload;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+public class ScheduleWorkload implements Workload {
+
+    private static final String[] NAMES = {"Standup", "Review", "Lunch", "Planning", "1:1", "Focus time", "Gym"};
+    private static final String[] DESCRIPTIONS = {"", "Room A", "Room B", "Bring notes", "Video call"};
+
+    private List<Task> tasks;
+    private List<Task> shuffled;
+    private List<String> lines;
+    private ByteBuffer records;
+    private int[] recordStarts;
+    private String dataFile;
+    private String exportFile;
+    private String addFile;
+    private Schedule schedule;
+    private PrintStream out;
+
+    /**
+     * Generates a synthetic schedule of non-overlapping Tasks starting tomorrow. Tasks last 1 to 10 minutes with
+     * gaps of 0 to 5 minutes, so even a million Tasks stay within the years two digit dates can round trip
+     * @param count number of Tasks to generate
+     * @param seed seed for the random number generator, so runs are repeatable
+     * @return generated Tasks in ascending order of scheduled time
+     */
+    public static List<Task> generate(int count, long seed) {
+        Random random = new Random(seed);
+        ArrayList<Task> tasks = new ArrayList<>(count);
+        long minute = 60 * 1000L;
+        long start = ((new Date()).getTime() / minute + 24 * 60) * minute;
+        for (int i = 0; i < count; i++) {
+            int duration = 1 + random.nextInt(10);
+            tasks.add(new Task(NAMES[random.nextInt(NAMES.length)], DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)],
+                    new ScheduledTime(start), duration));
+            start += (duration + random.nextInt(6)) * minute;
+        }
+        return tasks;
+    }
+
+    /**
+     * Generates a synthetic schedule and the files the benchmarks read
+     * @param size number of Tasks in the schedule
+     * @param seed seed for the random number generator, so every fork times the same schedule
+     * @param dir directory for the files the benchmarks write
+     * @throws Exception if the files could not be written
+     */
+    @Override
+    public void setUp(int size, long seed, Path dir) throws Exception {
+        tasks = generate(size, seed);
+        shuffled = new ArrayList<>(tasks);
+        Collections.shuffle(shuffled, new Random(seed));
+        lines = new ArrayList<>(size);
+        for (Task t : tasks)
+            lines.add(t.getData());
+        records = ByteBuffer.wrap(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+        recordStarts = new int[size + 1];
+        for (int i = 0; i < size; i++)
+            recordStarts[i + 1] = recordStarts[i] + lines.get(i).getBytes(StandardCharsets.UTF_8).length + 1;
+        dataFile = dir.resolve("bench.txt").toString();
+        exportFile = dir.resolve("bench-export.txt").toString();
+        addFile = dir.resolve("bench-add.txt").toString();
+        schedule = new Schedule(dataFile);
+        for (Task t : tasks)
+            schedule.addTask(t);
+        schedule.save();
+        out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    /**
+     * Closes the Schedules opened by setUp()
+     */
+    @Override
+    public void tearDown() {
+        System.setOut(out);
+        schedule.close();
+    }
+
+    /**
+     * Parses one Task data line with Task(String)
+     * @param i index of the line, taken modulo the size
+     * @return parsed Task
+     */
+    @Override
+    public Object parseTask(int i) {
+        return new Task(lines.get(i % lines.size()));
+    }
+
+    /**
+     * Parses one Task data line straight from the bytes of the data file with TaskRecordParser
+     * @param i index of the line, taken modulo the size
+     * @return parsed Task
+     */
+    @Override
+    public Object parseRecord(int i) {
+        int line = i % lines.size();
+        return TaskRecordParser.parse(records, recordStarts[line], recordStarts[line + 1] - 1, null, 0);
+    }
+
+    /**
+     * Formats one Task with Task.getData()
+     * @param i index of the Task, taken modulo the size
+     * @return Task data
+     */
+    @Override
+    public Object taskData(int i) {
+        return tasks.get(i % tasks.size()).getData();
+    }
+
+    /**
+     * Sorts a shuffled copy of the Tasks by scheduled time
+     * @return sorted list
+     */
+    @Override
+    public Object sortTasks() {
+        ArrayList<Task> copy = new ArrayList<>(shuffled);
+        Collections.sort(copy);
+        return copy;
+    }
+
+    /**
+     * Adds every Task to a new Schedule in shuffled order, then tries to add each again, which conflicts
+     * @return the Schedule
+     */
+    @Override
+    public Object addTasksWithConflicts() {
+        Schedule added = new Schedule(addFile);
+        for (Task t : shuffled)
+            added.addTask(t);
+        for (Task t : shuffled)
+            added.addTask(t);
+        added.close();
+        return added;
+    }
+
+    /**
+     * Writes a snapshot of the whole Schedule
+     * @return the Schedule
+     */
+    @Override
+    public Object save() {
+        schedule.save();
+        return schedule;
+    }
+
+    /**
+     * Loads the whole data file into a new Schedule
+     * @param compact true to hold Tasks in a CompactTaskStore, false for a TaskIndex
+     * @return the Schedule
+     */
+    @Override
+    public Object load(boolean compact) {
+        Schedule loaded = new Schedule(dataFile, compact);
+        loaded.load(dataFile);
+        return loaded;
+    }
+
+    /**
+     * Prints every Task, with standard output discarded
+     * @return the Schedule
+     */
+    @Override
+    public Object printAllTasks() {
+        schedule.printAllTasks(false);
+        return schedule;
+    }
+
+    /**
+     * Exports every Task to a file
+     * @return the Schedule
+     */
+    @Override
+    public Object exportToFile() {
+        schedule.exportToFile(exportFile);
+        return schedule;
+    }
+
+}
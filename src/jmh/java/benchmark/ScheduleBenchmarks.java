@@ -0,0 +1,83 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Whole-schedule operations, each timed once per operation over every Task. Journal writes and parallel
+ * parsing run on background threads, which the gc profiler counts along with the benchmark thread
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+public class ScheduleBenchmarks {
+
+    /**
+     * Adds every Task to a new Schedule in shuffled order, then tries to add each again
+     * @param state schedule to add
+     * @return the Schedule
+     */
+    @Benchmark
+    public Object addTasksWithConflicts(WorkloadState state) {
+        return state.workload.addTasksWithConflicts();
+    }
+
+    /**
+     * Writes a snapshot of the whole Schedule
+     * @param state schedule to save
+     * @return the Schedule
+     */
+    @Benchmark
+    public Object save(WorkloadState state) {
+        return state.workload.save();
+    }
+
+    /**
+     * Loads the whole data file into a TaskIndex
+     * @param state schedule to load
+     * @return the Schedule
+     */
+    @Benchmark
+    public Object load(WorkloadState state) {
+        return state.workload.load(false);
+    }
+
+    /**
+     * Loads the whole data file into a CompactTaskStore
+     * @param state schedule to load
+     * @return the Schedule
+     */
+    @Benchmark
+    public Object loadCompact(WorkloadState state) {
+        return state.workload.load(true);
+    }
+
+    /**
+     * Prints every Task, with standard output discarded
+     * @param state schedule to print
+     * @return the Schedule
+     */
+    @Benchmark
+    public Object printAllTasks(WorkloadState state) {
+        return state.workload.printAllTasks();
+    }
+
+    /**
+     * Exports every Task to a file
+     * @param state schedule to export
+     * @return the Schedule
+     */
+    @Benchmark
+    public Object exportToFile(WorkloadState state) {
+        return state.workload.exportToFile();
+    }
+
+}
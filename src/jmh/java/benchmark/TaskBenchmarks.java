@@ -0,0 +1,64 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-Task hot paths: parsing a data line, formatting one, and sorting by scheduled time. Each operation works
+ * on the next Task in turn, so larger schedules show the cost of a working set that no longer fits in cache
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+public class TaskBenchmarks {
+
+    /**
+     * Parses a data line with Task(String)
+     * @param state schedule to take the line from
+     * @return parsed Task
+     */
+    @Benchmark
+    public Object parseTask(WorkloadState state) {
+        return state.workload.parseTask(state.next++);
+    }
+
+    /**
+     * Parses a data line straight from the bytes of the data file with TaskRecordParser
+     * @param state schedule to take the line from
+     * @return parsed Task
+     */
+    @Benchmark
+    public Object parseRecord(WorkloadState state) {
+        return state.workload.parseRecord(state.next++);
+    }
+
+    /**
+     * Formats a Task with Task.getData()
+     * @param state schedule to take the Task from
+     * @return Task data
+     */
+    @Benchmark
+    public Object taskData(WorkloadState state) {
+        return state.workload.taskData(state.next++);
+    }
+
+    /**
+     * Sorts a shuffled copy of every Task by scheduled time, once per operation
+     * @param state schedule to sort
+     * @return sorted list
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object sortTasks(WorkloadState state) {
+        return state.workload.sortTasks();
+    }
+
+}
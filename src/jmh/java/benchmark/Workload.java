@@ -0,0 +1,84 @@
+package benchmark;
+
+import java.nio.file.Path;
+
+/**
+ * Operations the benchmarks time, implemented by ScheduleWorkload. JMH only accepts benchmarks in a named
+ * package, and classes in a named package cannot refer to the application's classes in the default package,
+ * so the benchmarks load the implementation by name and call it through this interface
+ */
+public interface Workload {
+
+    /**
+     * Generates a synthetic schedule and the files the benchmarks read
+     * @param size number of Tasks in the schedule
+     * @param seed seed for the random number generator, so every fork times the same schedule
+     * @param dir directory for the files the benchmarks write
+     * @throws Exception if the files could not be written
+     */
+    void setUp(int size, long seed, Path dir) throws Exception;
+
+    /**
+     * Closes the Schedules opened by setUp()
+     */
+    void tearDown();
+
+    /**
+     * Parses one Task data line with Task(String)
+     * @param i index of the line, taken modulo the size
+     * @return parsed Task
+     */
+    Object parseTask(int i);
+
+    /**
+     * Parses one Task data line straight from the bytes of the data file with TaskRecordParser
+     * @param i index of the line, taken modulo the size
+     * @return parsed Task
+     */
+    Object parseRecord(int i);
+
+    /**
+     * Formats one Task with Task.getData()
+     * @param i index of the Task, taken modulo the size
+     * @return Task data
+     */
+    Object taskData(int i);
+
+    /**
+     * Sorts a shuffled copy of the Tasks by scheduled time
+     * @return sorted list
+     */
+    Object sortTasks();
+
+    /**
+     * Adds every Task to a new Schedule in shuffled order, then tries to add each again, which conflicts
+     * @return the Schedule
+     */
+    Object addTasksWithConflicts();
+
+    /**
+     * Writes a snapshot of the whole Schedule
+     * @return the Schedule
+     */
+    Object save();
+
+    /**
+     * Loads the whole data file into a new Schedule
+     * @param compact true to hold Tasks in a CompactTaskStore, false for a TaskIndex
+     * @return the Schedule
+     */
+    Object load(boolean compact);
+
+    /**
+     * Prints every Task, with standard output discarded
+     * @return the Schedule
+     */
+    Object printAllTasks();
+
+    /**
+     * Exports every Task to a file
+     * @return the Schedule
+     */
+    Object exportToFile();
+
+}
@@ -0,0 +1,54 @@
+package benchmark;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * A synthetic schedule of each size, generated from a fixed seed so every fork and every run times the same
+ * Tasks, with its files in a temporary directory
+ */
+@State(Scope.Benchmark)
+public class WorkloadState {
+
+    private static final long SEED = 42;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    public Workload workload;
+    public int next;
+    private Path dir;
+
+    /**
+     * Generates the schedule and writes its data file
+     * @throws Exception if the files could not be written
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("schedule-bench");
+        workload = (Workload) Class.forName("ScheduleWorkload").getDeclaredConstructor().newInstance();
+        workload.setUp(size, SEED, dir);
+    }
+
+    /**
+     * Closes the schedule and deletes its files
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        workload.tearDown();
+        File[] files = dir.toFile().listFiles();
+        if (files != null) {
+            for (File f : files)
+                f.delete();
+        }
+        dir.toFile().delete();
+    }
+
+}
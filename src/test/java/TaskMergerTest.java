@@ -0,0 +1,106 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TaskMergerTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Creates a Task tomorrow at the time given
+     * @param name name of the Task
+     * @param hour hour it starts at
+     * @param minute minute it starts at
+     * @param duration duration in minutes
+     * @return the Task
+     */
+    private static Task tomorrow(String name, int hour, int minute, int duration) {
+        long millis = LocalDate.now().plusDays(1).atTime(LocalTime.of(hour, minute))
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return new Task(name, "", new ScheduledTime(millis), duration);
+    }
+
+    /**
+     * Writes Tasks to a text Task file
+     * @param name file name
+     * @param tasks Tasks to write
+     * @return the file
+     * @throws IOException if the file could not be written
+     */
+    private File write(String name, Task... tasks) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (Task t : tasks)
+            lines.add(t.getData());
+        return Files.write(dir.resolve(name), lines).toFile();
+    }
+
+    /**
+     * With SKIP_INCOMING, an incoming Task that a current Task pushes out must not block another incoming Task,
+     * and the report must only name Tasks that stayed as kept
+     * @throws IOException if the incoming files could not be written
+     */
+    @Test
+    public void incomingTaskDroppedForCurrentOneBlocksNothing() throws IOException {
+        Task a = tomorrow("A", 5, 50, 10);
+        Task b = tomorrow("B", 5, 0, 100);
+        Task c = tomorrow("C", 5, 20, 10);
+        TaskMerger merger = new TaskMerger(TaskMerger.ConflictPolicy.SKIP_INCOMING, null, "none");
+        merger.addCurrent(Collections.singletonList(a));
+        long now = System.currentTimeMillis();
+        merger.addFile(write("b.txt", b), now);
+        merger.addFile(write("c.txt", c), now);
+        TaskIndex store = new TaskIndex();
+
+        assertEquals(true, merger.merge(store));
+        List<String> kept = new ArrayList<>();
+        for (Task t : store)
+            kept.add(t.getName());
+        assertEquals(List.of("C", "A"), kept);
+        assertEquals(2, merger.getKept());
+        assertEquals(1, merger.getConflicts());
+
+        StringWriter report = new StringWriter();
+        merger.writeReport(report);
+        String text = report.toString();
+        assertEquals(true, text.contains("  kept    current schedule: " + a.getData()));
+        assertEquals(true, text.contains("  dropped b.txt: " + b.getData()));
+    }
+
+    /**
+     * With KEEP_INCOMING, the earlier incoming Task wins over both the later one and the current Task
+     * @throws IOException if the incoming files could not be written
+     */
+    @Test
+    public void keepIncomingReplacesCurrentTask() throws IOException {
+        Task a = tomorrow("A", 5, 50, 10);
+        Task b = tomorrow("B", 5, 0, 100);
+        Task c = tomorrow("C", 5, 20, 10);
+        TaskMerger merger = new TaskMerger(TaskMerger.ConflictPolicy.KEEP_INCOMING, null, "none");
+        merger.addCurrent(Collections.singletonList(a));
+        long now = System.currentTimeMillis();
+        merger.addFile(write("b.txt", b), now);
+        merger.addFile(write("c.txt", c), now);
+        TaskIndex store = new TaskIndex();
+
+        assertEquals(true, merger.merge(store));
+        List<String> kept = new ArrayList<>();
+        for (Task t : store)
+            kept.add(t.getName());
+        assertEquals(List.of("B"), kept);
+        assertEquals(2, merger.getConflicts());
+    }
+
+}